@@ -0,0 +1,86 @@
+package study.querydsl.benchmark;
+
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import study.querydsl.QuerydslApplication;
+
+import javax.persistence.EntityManager;
+import java.util.function.Supplier;
+
+/**
+ * 벤치마크용 스프링 컨텍스트
+ * 메모리 H2에 team 10개, member memberCount개를 넣어두고 시작한다.
+ * local 프로파일(InitMember)이나 SQL 로그가 측정에 끼지 않도록 커맨드라인 인자로 덮어쓴다.
+ */
+public class BenchmarkContext implements AutoCloseable {
+
+    static final int TEAM_COUNT = 10;
+
+    private final ConfigurableApplicationContext context;
+    private final TransactionTemplate tx;
+    private final TransactionTemplate readOnlyTx;
+
+    private BenchmarkContext(ConfigurableApplicationContext context) {
+        this.context = context;
+        PlatformTransactionManager transactionManager = context.getBean(PlatformTransactionManager.class);
+        this.tx = new TransactionTemplate(transactionManager);
+        this.readOnlyTx = new TransactionTemplate(transactionManager);
+        this.readOnlyTx.setReadOnly(true);
+    }
+
+    public static BenchmarkContext start(int memberCount, String... extraArgs) {
+        String[] args = {
+                "--spring.profiles.active=bench",
+                "--spring.datasource.url=jdbc:h2:mem:bench;DB_CLOSE_DELAY=-1",
+                "--spring.jpa.properties.hibernate.show_sql=false",
+                "--spring.jpa.properties.hibernate.format_sql=false",
+                "--logging.level.org.hibernate.SQL=warn",
+                "--decorator.datasource.p6spy.enable-logging=false"
+        };
+        String[] allArgs = new String[args.length + extraArgs.length];
+        System.arraycopy(args, 0, allArgs, 0, args.length);
+        System.arraycopy(extraArgs, 0, allArgs, args.length, extraArgs.length);
+
+        ConfigurableApplicationContext context = new SpringApplicationBuilder(QuerydslApplication.class)
+                .web(WebApplicationType.NONE)
+                .run(allArgs);
+        BenchmarkContext benchmarkContext = new BenchmarkContext(context);
+        benchmarkContext.seed(memberCount);
+        return benchmarkContext;
+    }
+
+    //persist로 넣으면 seed가 측정보다 오래 걸려서 H2 system_range로 한번에 넣는다.
+    private void seed(int memberCount) {
+        tx.executeWithoutResult(status -> {
+            EntityManager em = getBean(EntityManager.class);
+            em.createNativeQuery("insert into team (id, name)" +
+                    " select x, concat('team', x) from system_range(1, " + TEAM_COUNT + ")")
+                    .executeUpdate();
+            em.createNativeQuery("insert into member (member_id, username, age, team_id)" +
+                    " select x, concat('member', x), mod(x, 100), mod(x, " + TEAM_COUNT + ") + 1" +
+                    " from system_range(1, ?1)")
+                    .setParameter(1, memberCount)
+                    .executeUpdate();
+        });
+    }
+
+    public <T> T getBean(Class<T> type) {
+        return context.getBean(type);
+    }
+
+    public <T> T readOnly(Supplier<T> work) {
+        return readOnlyTx.execute(status -> work.get());
+    }
+
+    public <T> T inTransaction(Supplier<T> work) {
+        return tx.execute(status -> work.get());
+    }
+
+    @Override
+    public void close() {
+        context.close();
+    }
+}
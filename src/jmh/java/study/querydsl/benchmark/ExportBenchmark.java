@@ -0,0 +1,81 @@
+package study.querydsl.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import study.querydsl.dto.MemberSearchCondition;
+import study.querydsl.repository.MemberExportRepository;
+import study.querydsl.repository.MemberJpaRepository;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * member 전체(memberCount개)를 하나씩 consumer로 넘기는 내보내기 비교, 결과는 모으지 않고 Blackhole로
+ * - querydsl  : MemberJpaRepository.streamSearch (QMemberTeamDto, row마다 Object[] + DTO)
+ * - mapper    : MemberExportRepository.export (querydsl-sql + ResultSetMapper, row마다 DTO만)
+ * - rowView   : MemberExportRepository.exportRows (querydsl-sql + MemberTeamRowView, row마다 객체 없음)
+ * ./gradlew jmh -PjmhArgs='ExportBenchmark -prof gc'
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ExportBenchmark {
+
+    @Param({"100000", "1000000"})
+    int memberCount;
+
+    @Param({"500"})
+    int fetchSize;
+
+    BenchmarkContext context;
+    MemberJpaRepository memberJpaRepository;
+    MemberExportRepository memberExportRepository;
+    MemberSearchCondition all = new MemberSearchCondition();
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = BenchmarkContext.start(memberCount);
+        memberJpaRepository = context.getBean(MemberJpaRepository.class);
+        memberExportRepository = context.getBean(MemberExportRepository.class);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public void querydsl(Blackhole blackhole) {
+        memberJpaRepository.streamSearch(all, fetchSize, blackhole::consume);
+    }
+
+    @Benchmark
+    public void mapper(Blackhole blackhole) {
+        memberExportRepository.export(all, fetchSize, blackhole::consume);
+    }
+
+    @Benchmark
+    public void rowView(Blackhole blackhole) {
+        memberExportRepository.exportRows(all, fetchSize, row -> {
+            blackhole.consume(row.getMemberId());
+            blackhole.consume(row.getUsername());
+            blackhole.consume(row.getAge());
+            blackhole.consume(row.getTeamId());
+            blackhole.consume(row.getTeamName());
+        });
+    }
+}
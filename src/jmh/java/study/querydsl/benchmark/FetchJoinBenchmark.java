@@ -0,0 +1,86 @@
+package study.querydsl.benchmark;
+
+import com.querydsl.jpa.impl.JPAQueryFactory;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import study.querydsl.entity.Member;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static study.querydsl.entity.QMember.member;
+import static study.querydsl.entity.QTeam.team;
+
+/**
+ * member rowCount개를 조회하고 member.getTeam().getName()까지 읽는 비용
+ * lazy: 팀마다 추가 select (N+1), fetchJoin: 한번에 조인
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class FetchJoinBenchmark {
+
+    @Param({"1000", "100000"})
+    int memberCount;
+
+    @Param({"100", "1000"})
+    int rowCount;
+
+    BenchmarkContext context;
+    JPAQueryFactory queryFactory;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = BenchmarkContext.start(memberCount);
+        queryFactory = context.getBean(JPAQueryFactory.class);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public void lazy(Blackhole blackhole) {
+        context.readOnly(() -> {
+            List<Member> members = queryFactory
+                    .selectFrom(member)
+                    .limit(rowCount)
+                    .fetch();
+            for (Member findMember : members) {
+                blackhole.consume(findMember.getTeam().getName());
+            }
+            return null;
+        });
+    }
+
+    @Benchmark
+    public void fetchJoin(Blackhole blackhole) {
+        context.readOnly(() -> {
+            List<Member> members = queryFactory
+                    .selectFrom(member)
+                    .join(member.team, team).fetchJoin()
+                    .limit(rowCount)
+                    .fetch();
+            for (Member findMember : members) {
+                blackhole.consume(findMember.getTeam().getName());
+            }
+            return null;
+        });
+    }
+}
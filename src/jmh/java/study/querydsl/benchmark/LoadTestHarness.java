@@ -0,0 +1,121 @@
+package study.querydsl.benchmark;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 떠있는 서버에 동시 요청을 보내서 처리량과 latency를 잰다. (JMH가 아니라 그냥 main)
+ * 같은 DB, 같은 데이터로 서버를 두 번 띄워서 비교한다.
+ *   1) ./gradlew bootRun                                                     (tomcat 기본 쓰레드 풀 200개)
+ *   2) ./gradlew bootRun -PvirtualThreads --args='--spring.profiles.active=local,virtual-threads'
+ * ./gradlew loadTest -PloadTestArgs='<url> <동시 요청 수> <초> [warmup 초]'
+ * 동시 요청 수를 tomcat 쓰레드 수(200)보다 크게 줘야 차이가 보인다.
+ */
+public class LoadTestHarness {
+
+    public static void main(String[] args) throws Exception {
+        if (args.length < 3) {
+            System.out.println("usage: LoadTestHarness <url> <concurrency> <seconds> [warmupSeconds]");
+            return;
+        }
+        URL url = new URL(args[0]);
+        int concurrency = Integer.parseInt(args[1]);
+        int seconds = Integer.parseInt(args[2]);
+        int warmup = args.length > 3 ? Integer.parseInt(args[3]) : 5;
+
+        run(url, concurrency, warmup);
+        Result result = run(url, concurrency, seconds);
+        System.out.println(result.report(concurrency, seconds));
+    }
+
+    private static Result run(URL url, int concurrency, int seconds) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(seconds);
+        Result result = new Result();
+        CountDownLatch done = new CountDownLatch(concurrency);
+        List<Thread> clients = new ArrayList<>(concurrency);
+        for (int i = 0; i < concurrency; i++) {
+            Thread client = new Thread(() -> {
+                try {
+                    List<Long> latencies = new ArrayList<>();
+                    while (System.nanoTime() - deadline < 0) {
+                        long start = System.nanoTime();
+                        boolean ok = request(url);
+                        latencies.add(System.nanoTime() - start);
+                        (ok ? result.ok : result.failed).incrementAndGet();
+                    }
+                    result.add(latencies);
+                } finally {
+                    done.countDown();
+                }
+            }, "load-client-" + i);
+            client.setDaemon(true);
+            clients.add(client);
+        }
+        clients.forEach(Thread::start);
+        done.await();
+        return result;
+    }
+
+    private static boolean request(URL url) {
+        HttpURLConnection connection = null;
+        try {
+            connection = (HttpURLConnection) url.openConnection();
+            connection.setConnectTimeout(5_000);
+            connection.setReadTimeout(30_000);
+            int status = connection.getResponseCode();
+            try (InputStream body = status < 400 ? connection.getInputStream() : connection.getErrorStream()) {
+                drain(body);
+            }
+            return status < 400;
+        } catch (IOException e) {
+            return false;
+        } finally {
+            if (connection != null) {
+                connection.disconnect();
+            }
+        }
+    }
+
+    private static void drain(InputStream body) throws IOException {
+        if (body == null) {
+            return;
+        }
+        byte[] buffer = new byte[8192];
+        while (body.read(buffer) != -1) {
+            //keep-alive로 커넥션을 재사용하려면 다 읽어야 한다.
+        }
+    }
+
+    private static class Result {
+        private final AtomicLong ok = new AtomicLong();
+        private final AtomicLong failed = new AtomicLong();
+        private final List<long[]> latencies = new ArrayList<>();
+
+        private synchronized void add(List<Long> clientLatencies) {
+            latencies.add(clientLatencies.stream().mapToLong(Long::longValue).toArray());
+        }
+
+        private synchronized String report(int concurrency, int seconds) {
+            long[] all = latencies.stream().flatMapToLong(Arrays::stream).sorted().toArray();
+            return String.format("concurrency=%d, %ds: ok=%d failed=%d, %.1f req/s, p50=%.1fms p99=%.1fms max=%.1fms",
+                    concurrency, seconds, ok.get(), failed.get(), ok.get() / (double) seconds,
+                    percentile(all, 0.50), percentile(all, 0.99), percentile(all, 1.0));
+        }
+
+        private static double percentile(long[] sorted, double p) {
+            if (sorted.length == 0) {
+                return 0;
+            }
+            int index = (int) Math.ceil(p * sorted.length) - 1;
+            return sorted[Math.max(index, 0)] / 1_000_000.0;
+        }
+    }
+}
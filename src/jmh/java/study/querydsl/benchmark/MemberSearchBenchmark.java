@@ -0,0 +1,104 @@
+package study.querydsl.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import study.querydsl.dto.MemberSearchCondition;
+import study.querydsl.dto.MemberTeamDto;
+import study.querydsl.repository.MemberJpaRepository;
+import study.querydsl.repository.MemberRepository;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 검색 경로 비교
+ * - MemberJpaRepository.search(where 파라미터) vs searchByBuilder(BooleanBuilder)
+ * - MemberRepository.search (미리 만든 JPQL 템플릿)
+ * - searchPageSimple(content + count 항상) vs searchPageComplex(count 생략 가능)
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class MemberSearchBenchmark {
+
+    @Param({"1000", "10000", "100000"})
+    int memberCount;
+
+    BenchmarkContext context;
+    MemberJpaRepository memberJpaRepository;
+    MemberRepository memberRepository;
+    MemberSearchCondition condition;
+    PageRequest firstPage;
+    PageRequest deepPage;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = BenchmarkContext.start(memberCount);
+        memberJpaRepository = context.getBean(MemberJpaRepository.class);
+        memberRepository = context.getBean(MemberRepository.class);
+
+        condition = new MemberSearchCondition();
+        condition.setTeamName("team3");
+        condition.setAgeGoe(20);
+        condition.setAgeLoe(40);
+
+        firstPage = PageRequest.of(0, 20);
+        deepPage = PageRequest.of(memberCount / 200, 20);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public List<MemberTeamDto> jpaSearchWhereParam() {
+        return context.readOnly(() -> memberJpaRepository.search(condition));
+    }
+
+    @Benchmark
+    public List<MemberTeamDto> jpaSearchByBuilder() {
+        return context.readOnly(() -> memberJpaRepository.searchByBuilder(condition));
+    }
+
+    @Benchmark
+    public List<MemberTeamDto> customSearchTemplate() {
+        return context.readOnly(() -> memberRepository.search(condition));
+    }
+
+    @Benchmark
+    public Page<MemberTeamDto> searchPageSimpleFirstPage() {
+        return context.readOnly(() -> memberRepository.searchPageSimple(condition, firstPage));
+    }
+
+    @Benchmark
+    public Page<MemberTeamDto> searchPageComplexFirstPage() {
+        return context.readOnly(() -> memberRepository.searchPageComplex(condition, firstPage));
+    }
+
+    @Benchmark
+    public Page<MemberTeamDto> searchPageSimpleDeepPage() {
+        return context.readOnly(() -> memberRepository.searchPageSimple(condition, deepPage));
+    }
+
+    @Benchmark
+    public Page<MemberTeamDto> searchPageComplexDeepPage() {
+        return context.readOnly(() -> memberRepository.searchPageComplex(condition, deepPage));
+    }
+}
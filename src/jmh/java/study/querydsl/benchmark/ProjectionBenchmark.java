@@ -0,0 +1,120 @@
+package study.querydsl.benchmark;
+
+import com.querydsl.core.types.Projections;
+import com.querydsl.jpa.impl.JPAQueryFactory;
+import org.hibernate.Session;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import study.querydsl.dto.MemberDto;
+import study.querydsl.dto.QMemberDto;
+import study.querydsl.projection.ResultSetMapper;
+
+import javax.persistence.EntityManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static study.querydsl.entity.QMember.member;
+
+/**
+ * DTO 조회 방법 비교 (QuerydslBasicTest의 findBySetter/findByField/findDtoByConstructor/findDtoByQueryProjection)
+ * 한번에 rowCount개씩 가져온다.
+ * resultSetMapper는 JPA를 거치지 않고 JDBC ResultSet에서 바로 생성자 호출 (MemberExportRepository 방식)
+ * 할당량까지 보려면 -prof gc
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ProjectionBenchmark {
+
+    @Param({"1000", "100000"})
+    int memberCount;
+
+    @Param({"100", "1000"})
+    int rowCount;
+
+    BenchmarkContext context;
+    JPAQueryFactory queryFactory;
+    EntityManager em;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = BenchmarkContext.start(memberCount);
+        queryFactory = context.getBean(JPAQueryFactory.class);
+        em = context.getBean(EntityManager.class);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public List<MemberDto> bean() {
+        return context.readOnly(() -> queryFactory
+                .select(Projections.bean(MemberDto.class, member.username, member.age))
+                .from(member)
+                .limit(rowCount)
+                .fetch());
+    }
+
+    @Benchmark
+    public List<MemberDto> fields() {
+        return context.readOnly(() -> queryFactory
+                .select(Projections.fields(MemberDto.class, member.username, member.age))
+                .from(member)
+                .limit(rowCount)
+                .fetch());
+    }
+
+    @Benchmark
+    public List<MemberDto> constructor() {
+        return context.readOnly(() -> queryFactory
+                .select(Projections.constructor(MemberDto.class, member.username, member.age))
+                .from(member)
+                .limit(rowCount)
+                .fetch());
+    }
+
+    @Benchmark
+    public List<MemberDto> queryProjection() {
+        return context.readOnly(() -> queryFactory
+                .select(new QMemberDto(member.username, member.age))
+                .from(member)
+                .limit(rowCount)
+                .fetch());
+    }
+
+    @Benchmark
+    public List<MemberDto> resultSetMapper() {
+        ResultSetMapper<MemberDto> mapper = ResultSetMapper.of(MemberDto.class);
+        return context.readOnly(() -> em.unwrap(Session.class).doReturningWork(connection -> {
+            try (PreparedStatement statement = connection.prepareStatement("select m.username, m.age from member m limit ?")) {
+                statement.setInt(1, rowCount);
+                try (ResultSet rs = statement.executeQuery()) {
+                    List<MemberDto> rows = new ArrayList<>(rowCount);
+                    while (rs.next()) {
+                        rows.add(mapper.map(rs));
+                    }
+                    return rows;
+                }
+            }
+        }));
+    }
+}
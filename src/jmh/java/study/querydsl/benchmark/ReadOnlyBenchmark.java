@@ -0,0 +1,113 @@
+package study.querydsl.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.support.DefaultTransactionDefinition;
+import study.querydsl.entity.Member;
+import study.querydsl.repository.MemberFetchPlan;
+import study.querydsl.repository.MemberJpaRepository;
+
+import javax.persistence.EntityManager;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * findAll_Querydsl을 쓰기 트랜잭션 안에서 부를 때 MANAGED / READ_ONLY / STATELESS 비교 (MemberFetchPlan 참고)
+ * - load      : 조회 + flush 한번 (서비스 메서드 하나)
+ * - flushOnly : 이미 올라와있는 entity를 flush 하는 시간만, MANAGED는 스냅샷과 전부 비교한다.
+ * heap 차이는 gc 프로파일러의 gc.alloc.rate.norm(op당 할당 byte)으로 본다. MANAGED는 row마다 스냅샷 배열이 하나 더 생긴다.
+ * ./gradlew jmh -PjmhArgs='ReadOnlyBenchmark -prof gc'
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx2g")
+@State(Scope.Thread)
+public class ReadOnlyBenchmark {
+
+    @Param({"100000"})
+    int memberCount;
+
+    @Param({"MANAGED", "READ_ONLY", "STATELESS"})
+    MemberFetchPlan.ReadMode readMode;
+
+    BenchmarkContext context;
+    MemberJpaRepository memberJpaRepository;
+    EntityManager em;
+    PlatformTransactionManager transactionManager;
+    MemberFetchPlan fetchPlan;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = BenchmarkContext.start(memberCount);
+        memberJpaRepository = context.getBean(MemberJpaRepository.class);
+        em = context.getBean(EntityManager.class);
+        transactionManager = context.getBean(PlatformTransactionManager.class);
+        fetchPlan = fetchPlan(readMode);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public List<Member> load() {
+        return context.inTransaction(() -> {
+            List<Member> members = memberJpaRepository.findAll_Querydsl(fetchPlan);
+            em.flush();
+            return members;
+        });
+    }
+
+    @Benchmark
+    public void flushOnly(LoadedMembers loaded) {
+        em.flush();
+    }
+
+    //flush 할 entity를 측정 밖에서 올려두고, 측정이 끝나면 롤백
+    @State(Scope.Thread)
+    public static class LoadedMembers {
+
+        TransactionStatus status;
+        List<Member> members;
+        PlatformTransactionManager transactionManager;
+
+        @Setup(Level.Invocation)
+        public void load(ReadOnlyBenchmark benchmark) {
+            transactionManager = benchmark.transactionManager;
+            status = transactionManager.getTransaction(new DefaultTransactionDefinition());
+            members = benchmark.memberJpaRepository.findAll_Querydsl(benchmark.fetchPlan);
+        }
+
+        @TearDown(Level.Invocation)
+        public void rollback() {
+            transactionManager.rollback(status);
+        }
+    }
+
+    private static MemberFetchPlan fetchPlan(MemberFetchPlan.ReadMode readMode) {
+        switch (readMode) {
+            case READ_ONLY:
+                return MemberFetchPlan.lazy().readOnly();
+            case STATELESS:
+                return MemberFetchPlan.lazy().stateless();
+            default:
+                return MemberFetchPlan.lazy();
+        }
+    }
+}
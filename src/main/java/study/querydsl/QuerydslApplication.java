@@ -1,9 +1,10 @@
 package study.querydsl;
 
-import com.querydsl.jpa.impl.JPAQueryFactory;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
 import org.springframework.context.annotation.Bean;
+import study.querydsl.metrics.InstrumentedJPAQueryFactory;
+import study.querydsl.metrics.QueryMetrics;
 
 import javax.persistence.EntityManager;
 
@@ -16,8 +17,9 @@ public class QuerydslApplication {
 	}
 	
 	@Bean//스프링 빈으로 등록
-	JPAQueryFactory JpaQueryFactory(EntityManager em){
-		return new JPAQueryFactory(em);
+	//조회 쿼리마다 시간, row 수, statement 수를 메트릭으로 남긴다. (QueryMetrics)
+	InstrumentedJPAQueryFactory JpaQueryFactory(EntityManager em, QueryMetrics queryMetrics){
+		return new InstrumentedJPAQueryFactory(em, queryMetrics);
 	}
 
 }
@@ -0,0 +1,61 @@
+package study.querydsl.config;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 가상 쓰레드 executor 앞에 두는 제한
+ * 가상 쓰레드는 얼마든지 만들 수 있지만 DB 커넥션은 풀 크기만큼뿐이다.
+ * - 동시에 실행되는 작업은 커넥션 수(permits)까지, 나머지는 Semaphore에서 기다린다.
+ *   (j.u.c 락에서 기다리는 가상 쓰레드는 carrier를 놓아준다. hikari 대기 timeout까지 쌓이지 않는다)
+ * - 기다리는 작업이 maxWaiting을 넘으면 RejectedExecutionException (ThreadPoolTaskExecutor 큐가 꽉 찬 것과 같다)
+ */
+public class ConnectionBoundedExecutor implements Executor {
+
+    private final Executor delegate;
+    private final Semaphore connections;
+    private final int maxWaiting;
+    private final AtomicInteger waiting = new AtomicInteger();
+
+    public ConnectionBoundedExecutor(Executor delegate, int permits, int maxWaiting) {
+        this.delegate = delegate;
+        this.connections = new Semaphore(permits);
+        this.maxWaiting = maxWaiting;
+    }
+
+    @Override
+    public void execute(Runnable task) {
+        if (waiting.incrementAndGet() > maxWaiting) {
+            waiting.decrementAndGet();
+            throw new RejectedExecutionException("DB 작업 대기가 " + maxWaiting + "개를 넘었습니다.");
+        }
+        try {
+            delegate.execute(() -> run(task));
+        } catch (RejectedExecutionException e) {
+            waiting.decrementAndGet();
+            throw e;
+        }
+    }
+
+    private void run(Runnable task) {
+        try {
+            connections.acquire();
+        } catch (InterruptedException e) {
+            waiting.decrementAndGet();
+            Thread.currentThread().interrupt();
+            return;
+        }
+        waiting.decrementAndGet();
+        try {
+            task.run();
+        } finally {
+            connections.release();
+        }
+    }
+
+    public int getWaiting() {
+        return waiting.get();
+    }
+}
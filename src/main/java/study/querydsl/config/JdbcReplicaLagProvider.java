@@ -0,0 +1,53 @@
+package study.querydsl.config;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import javax.sql.DataSource;
+import java.time.Duration;
+import java.time.temporal.ChronoUnit;
+
+/**
+ * replica에 lag 조회 쿼리(결과: 초)를 날려서 지연을 잰다.
+ * ex) MySQL : select ... seconds_behind_source, PostgreSQL : select extract(epoch from now() - pg_last_xact_replay_timestamp())
+ * 쿼리마다 재면 replica에 부담이라 refreshInterval 동안은 마지막 값을 쓴다.
+ */
+public class JdbcReplicaLagProvider implements ReplicaLagProvider {
+
+    private static final Duration UNKNOWN = ChronoUnit.FOREVER.getDuration();
+
+    private final JdbcTemplate replica;
+    private final String lagQuery;
+    private final long refreshNanos;
+
+    private volatile Duration lag = Duration.ZERO;
+    private volatile long checkedAt;
+    private volatile boolean checked;
+
+    public JdbcReplicaLagProvider(DataSource replica, String lagQuery, Duration refreshInterval) {
+        this.replica = new JdbcTemplate(replica);
+        this.lagQuery = lagQuery;
+        this.refreshNanos = refreshInterval.toNanos();
+    }
+
+    //동시에 여러 쓰레드가 갱신해도 값이 비슷하니 락은 걸지 않는다.
+    @Override
+    public Duration currentLag() {
+        long now = System.nanoTime();
+        if (checked && now - checkedAt < refreshNanos) {
+            return lag;
+        }
+        lag = measure();
+        checkedAt = now;
+        checked = true;
+        return lag;
+    }
+
+    private Duration measure() {
+        try {
+            Number seconds = replica.queryForObject(lagQuery, Number.class);
+            return seconds == null ? UNKNOWN : Duration.ofMillis((long) (seconds.doubleValue() * 1000));
+        } catch (RuntimeException e) {
+            return UNKNOWN; //replica에 못 붙으면 primary로 보낸다.
+        }
+    }
+}
@@ -0,0 +1,17 @@
+package study.querydsl.config;
+
+import org.hibernate.cfg.AvailableSettings;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import study.querydsl.metrics.QueryStatementInspector;
+
+@Configuration
+public class QueryMetricsConfig {
+
+    //SQL 로그 대신 statement 수를 센다. (QueryMetrics)
+    @Bean
+    HibernatePropertiesCustomizer queryStatementInspector() {
+        return properties -> properties.put(AvailableSettings.STATEMENT_INSPECTOR, new QueryStatementInspector());
+    }
+}
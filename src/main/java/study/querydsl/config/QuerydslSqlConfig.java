@@ -0,0 +1,27 @@
+package study.querydsl.config;
+
+import com.querydsl.sql.H2Templates;
+import com.querydsl.sql.SQLQueryFactory;
+import com.querydsl.sql.spring.SpringConnectionProvider;
+import com.querydsl.sql.spring.SpringExceptionTranslator;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import study.querydsl.metrics.QueryStatementInspector;
+
+import javax.sql.DataSource;
+
+@Configuration
+public class QuerydslSqlConfig {
+
+    //JPQL/HQL을 거치지 않는 querydsl-sql (MemberSearchRepository)
+    //SpringConnectionProvider라 JPA 트랜잭션이 열려있으면 그 커넥션을 같이 쓴다. (같은 트랜잭션, replica 라우팅도 같다)
+    //SQLException은 스프링 DataAccessException으로 바꾼다.
+    //실행한 SQL은 JPA 쿼리처럼 QueryStatementInspector에 남긴다. (statement 수 메트릭, 느린 쿼리 SQL)
+    @Bean
+    public SQLQueryFactory sqlQueryFactory(DataSource dataSource) {
+        com.querydsl.sql.Configuration configuration = new com.querydsl.sql.Configuration(H2Templates.builder().build());
+        configuration.setExceptionTranslator(new SpringExceptionTranslator());
+        configuration.addListener(new QueryStatementInspector.SqlListener());
+        return new SQLQueryFactory(configuration, new SpringConnectionProvider(dataSource));
+    }
+}
@@ -0,0 +1,78 @@
+package study.querydsl.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.boot.jdbc.DataSourceBuilder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+
+import javax.sql.DataSource;
+import java.time.Duration;
+
+import static org.springframework.util.StringUtils.hasText;
+
+/**
+ * querydsl.datasource.replica.url 이 있을 때만 켜진다.
+ * primary는 spring.datasource, replica는 querydsl.datasource.replica 설정으로 만들고
+ * 앞에 readOnly 트랜잭션을 replica로 보내는 ReplicaRoutingDataSource를 둔다.
+ */
+@Configuration
+@ConditionalOnProperty("querydsl.datasource.replica.url")
+public class ReadReplicaConfig {
+
+    @Bean
+    public HikariDataSource primaryDataSource(DataSourceProperties properties) {
+        HikariDataSource dataSource = properties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+        dataSource.setPoolName("primary");
+        return dataSource;
+    }
+
+    @Bean
+    public HikariDataSource replicaDataSource(DataSourceProperties properties,
+                                              @Value("${querydsl.datasource.replica.url}") String url,
+                                              @Value("${querydsl.datasource.replica.username:${spring.datasource.username:}}") String username,
+                                              @Value("${querydsl.datasource.replica.password:${spring.datasource.password:}}") String password,
+                                              @Value("${querydsl.datasource.replica.maximum-pool-size:10}") int maximumPoolSize) {
+        HikariDataSource dataSource = DataSourceBuilder.create()
+                .type(HikariDataSource.class)
+                .driverClassName(properties.determineDriverClassName())
+                .url(url)
+                .username(username)
+                .password(password)
+                .build();
+        dataSource.setPoolName("replica");
+        dataSource.setMaximumPoolSize(maximumPoolSize);
+        dataSource.setReadOnly(true);
+        return dataSource;
+    }
+
+    @Bean
+    public ReplicaLagProvider replicaLagProvider(@Qualifier("replicaDataSource") DataSource replica,
+                                                 @Value("${querydsl.datasource.replica.lag-query:}") String lagQuery,
+                                                 @Value("${querydsl.datasource.replica.lag-refresh:1s}") Duration refresh) {
+        return hasText(lagQuery) ? new JdbcReplicaLagProvider(replica, lagQuery, refresh) : ReplicaLagProvider.NONE;
+    }
+
+    @Bean
+    @Primary
+    public DataSource dataSource(@Qualifier("primaryDataSource") DataSource primary,
+                                 @Qualifier("replicaDataSource") DataSource replica,
+                                 ReplicaLagProvider replicaLagProvider,
+                                 @Value("${querydsl.datasource.replica.sticky-window:2s}") Duration stickyWindow,
+                                 @Value("${querydsl.datasource.replica.max-lag:5s}") Duration maxLag) {
+        return new LazyConnectionDataSourceProxy(
+                new ReplicaRoutingDataSource(primary, replica, stickyWindow, maxLag, replicaLagProvider));
+    }
+
+    //OSIV로 세션이 요청 내내 살아있어도 트랜잭션이 끝나면 커넥션을 돌려줘야 다음 트랜잭션이 다시 라우팅된다.
+    @Bean
+    HibernatePropertiesCustomizer releaseConnectionAfterTransaction() {
+        return properties -> properties.put("hibernate.connection.handling_mode", "DELAYED_ACQUISITION_AND_RELEASE_AFTER_TRANSACTION");
+    }
+}
@@ -0,0 +1,12 @@
+package study.querydsl.config;
+
+import java.time.Duration;
+
+//replica가 primary보다 얼마나 늦는지, 알 수 없으면(장애 등) 아주 큰 값을 준다.
+@FunctionalInterface
+public interface ReplicaLagProvider {
+
+    ReplicaLagProvider NONE = () -> Duration.ZERO;
+
+    Duration currentLag();
+}
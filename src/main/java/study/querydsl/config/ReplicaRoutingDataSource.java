@@ -0,0 +1,88 @@
+package study.querydsl.config;
+
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.sql.DataSource;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * @Transactional(readOnly = true) 트랜잭션은 replica, 나머지는 primary로 보낸다.
+ * readOnly 여부는 트랜잭션이 시작된 뒤에 정해지기 때문에 LazyConnectionDataSourceProxy로 감싸서
+ * 실제 커넥션을 첫 쿼리 때 가져오게 해야한다. (ReadReplicaConfig)
+ *
+ * readOnly라도 primary로 가는 경우
+ * - 트랜잭션 밖 (schema 생성, 트랜잭션 없는 조회)
+ * - sticky : 이 쓰레드에서 쓰기 트랜잭션이 있고 stickyWindow가 안 지났을 때 (방금 쓴 데이터를 replica에서 못 읽는 문제)
+ * - replica 지연이 maxLag보다 클 때
+ */
+public class ReplicaRoutingDataSource extends AbstractRoutingDataSource {
+
+    public enum Target {PRIMARY, REPLICA}
+
+    //요청 쓰레드는 풀에서 재사용되지만 남아있어도 window 동안 primary로 가는 것뿐이라 문제없다.
+    private static final ThreadLocal<Long> STICKY_UNTIL = new ThreadLocal<>();
+
+    private final long stickyWindowNanos;
+    private final Duration maxLag;
+    private final ReplicaLagProvider lagProvider;
+
+    public ReplicaRoutingDataSource(DataSource primary, DataSource replica,
+                                    Duration stickyWindow, Duration maxLag, ReplicaLagProvider lagProvider) {
+        Map<Object, Object> targets = new HashMap<>();
+        targets.put(Target.PRIMARY, primary);
+        targets.put(Target.REPLICA, replica);
+        setTargetDataSources(targets);
+        setDefaultTargetDataSource(primary);
+        afterPropertiesSet();
+        this.stickyWindowNanos = stickyWindow.toNanos();
+        this.maxLag = maxLag;
+        this.lagProvider = lagProvider;
+    }
+
+    @Override
+    protected Object determineCurrentLookupKey() {
+        return currentTarget();
+    }
+
+    public Target currentTarget() {
+        if (!TransactionSynchronizationManager.isCurrentTransactionReadOnly()) {
+            if (TransactionSynchronizationManager.isActualTransactionActive()) {
+                markSticky();
+            }
+            return Target.PRIMARY;
+        }
+        if (isSticky() || replicaTooFarBehind()) {
+            return Target.PRIMARY;
+        }
+        return Target.REPLICA;
+    }
+
+    private void markSticky() {
+        if (stickyWindowNanos > 0) {
+            STICKY_UNTIL.set(System.nanoTime() + stickyWindowNanos);
+        }
+    }
+
+    private boolean isSticky() {
+        Long until = STICKY_UNTIL.get();
+        if (until == null) {
+            return false;
+        }
+        if (until - System.nanoTime() > 0) {
+            return true;
+        }
+        STICKY_UNTIL.remove();
+        return false;
+    }
+
+    private boolean replicaTooFarBehind() {
+        try {
+            return lagProvider.currentLag().compareTo(maxLag) > 0;
+        } catch (RuntimeException e) {
+            return true;
+        }
+    }
+}
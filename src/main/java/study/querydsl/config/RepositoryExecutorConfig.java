@@ -0,0 +1,40 @@
+package study.querydsl.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Profile;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+@Configuration
+public class RepositoryExecutorConfig {
+
+    //repository 쿼리를 요청 쓰레드와 따로 돌릴 때 쓰는 풀
+    //큐를 제한해두고 꽉 차면 TaskRejectedException -> 호출한 쪽에서 직접 실행
+    @Bean
+    @Profile("!virtual-threads") //virtual-threads 프로파일이면 VirtualThreadConfig
+    public ThreadPoolTaskExecutor repositoryQueryExecutor(@Value("${querydsl.query-executor.pool-size:4}") int poolSize,
+                                                          @Value("${querydsl.query-executor.queue-capacity:100}") int queueCapacity) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(poolSize);
+        executor.setMaxPoolSize(poolSize);
+        executor.setQueueCapacity(queueCapacity);
+        executor.setThreadNamePrefix("repository-query-");
+        return executor;
+    }
+
+    //MemberAsyncRepository 전용 풀, 쓰레드 수를 커넥션 풀 크기에 맞춘다.
+    //쓰레드가 커넥션보다 많으면 남는 쓰레드는 커넥션을 기다리기만 한다.
+    //큐도 작게 잡고 꽉 차면 바로 거절(RejectedExecutionException)해서 호출한 쪽이 알게 한다.
+    @Bean
+    @Profile("!virtual-threads")
+    public ThreadPoolTaskExecutor asyncRepositoryExecutor(@Value("${querydsl.async.pool-size:${spring.datasource.hikari.maximum-pool-size:10}}") int poolSize,
+                                                          @Value("${querydsl.async.queue-capacity:50}") int queueCapacity) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(poolSize);
+        executor.setMaxPoolSize(poolSize);
+        executor.setQueueCapacity(queueCapacity);
+        executor.setThreadNamePrefix("repository-async-");
+        return executor;
+    }
+}
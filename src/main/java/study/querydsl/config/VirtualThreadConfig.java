@@ -0,0 +1,50 @@
+package study.querydsl.config;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.web.embedded.tomcat.TomcatProtocolHandlerCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Profile;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+
+/**
+ * virtual-threads 프로파일 (JDK 21 이상, ./gradlew bootRun -PvirtualThreads --args='--spring.profiles.active=local,virtual-threads')
+ * - tomcat 요청 처리를 가상 쓰레드로 (MemberController)
+ * - repositoryQueryExecutor, asyncRepositoryExecutor도 가상 쓰레드로, 커넥션 풀 크기만큼만 동시에 DB 작업
+ *
+ * JDBC 드라이버(H2 등)는 I/O를 synchronized 안에서 해서 그동안 가상 쓰레드가 carrier에 pinning 된다.
+ * pinning은 커넥션을 들고 있는 동안만 생기니 동시에 pinning 되는 carrier는 커넥션 풀 크기를 넘지 않는다.
+ * 풀 크기가 carrier 수보다 크면 carrier가 전부 묶여서 다른 요청이 멈출 수 있어 시작할 때 경고한다.
+ */
+@Slf4j
+@Configuration
+@Profile("virtual-threads")
+public class VirtualThreadConfig {
+
+    @Bean(destroyMethod = "shutdown")
+    public ExecutorService virtualThreadExecutor() {
+        return VirtualThreads.newPerTaskExecutor();
+    }
+
+    @Bean
+    TomcatProtocolHandlerCustomizer<?> virtualThreadProtocolHandler(@Qualifier("virtualThreadExecutor") ExecutorService executor) {
+        return protocolHandler -> protocolHandler.setExecutor(executor);
+    }
+
+    //RepositoryExecutorConfig의 두 풀 대신, 커넥션 풀을 같이 쓰니 제한도 하나로 같이 건다.
+    @Bean(name = {"repositoryQueryExecutor", "asyncRepositoryExecutor"})
+    public Executor connectionBoundedExecutor(@Qualifier("virtualThreadExecutor") ExecutorService executor,
+                                              @Value("${spring.datasource.hikari.maximum-pool-size:10}") int connections,
+                                              @Value("${querydsl.async.queue-capacity:50}") int maxWaiting) {
+        int carriers = VirtualThreads.carrierParallelism();
+        if (connections >= carriers) {
+            log.warn("커넥션 풀({})이 carrier 쓰레드({})보다 많거나 같습니다. JDBC 안에서 pinning되면 carrier가 모자랄 수 있으니"
+                    + " -Djdk.virtualThreadScheduler.parallelism 을 늘리거나 풀을 줄이세요.", connections, carriers);
+        }
+        return new ConnectionBoundedExecutor(executor, connections, maxWaiting);
+    }
+}
@@ -0,0 +1,47 @@
+package study.querydsl.config;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ExecutorService;
+
+/**
+ * 소스는 1.8로 컴파일하기 때문에 가상 쓰레드 API(JDK 21)는 리플렉션으로 부른다.
+ * virtual-threads 프로파일에서만 쓴다. (VirtualThreadConfig)
+ */
+public final class VirtualThreads {
+
+    private VirtualThreads() {
+    }
+
+    public static boolean isSupported() {
+        return factoryMethod() != null;
+    }
+
+    //작업마다 가상 쓰레드를 하나씩 만드는 ExecutorService
+    public static ExecutorService newPerTaskExecutor() {
+        Method factory = factoryMethod();
+        if (factory == null) {
+            throw new IllegalStateException("virtual-threads 프로파일은 JDK 21 이상에서 실행해야 합니다. (현재 "
+                    + System.getProperty("java.version") + ")");
+        }
+        try {
+            return (ExecutorService) factory.invoke(null);
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException("가상 쓰레드 executor를 만들지 못했습니다.", e);
+        }
+    }
+
+    //carrier 쓰레드 수, 기본은 CPU 코어 수
+    public static int carrierParallelism() {
+        String parallelism = System.getProperty("jdk.virtualThreadScheduler.parallelism");
+        return parallelism != null ? Integer.parseInt(parallelism) : Runtime.getRuntime().availableProcessors();
+    }
+
+    private static Method factoryMethod() {
+        try {
+            return Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+        } catch (NoSuchMethodException e) {
+            return null;
+        }
+    }
+}
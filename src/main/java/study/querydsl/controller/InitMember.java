@@ -1,15 +1,18 @@
 package study.querydsl.controller;
 
 import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.context.annotation.Profile;
 import org.springframework.stereotype.Component;
 import org.springframework.transaction.annotation.Transactional;
 import study.querydsl.entity.Member;
 import study.querydsl.entity.Team;
+import study.querydsl.repository.MemberBulkLoader;
 
 import javax.annotation.PostConstruct;
 import javax.persistence.EntityManager;
 import javax.persistence.PersistenceContext;
+import java.util.stream.IntStream;
 
 @Profile("local")
 @Component //Spring bean에 자동으로 등록되게 만듦
@@ -35,6 +38,9 @@ public class InitMember {
         @PersistenceContext
         EntityManager em;
 
+        @Autowired
+        MemberBulkLoader memberBulkLoader;
+
         @Transactional
         public void init(){
             Team teamA = new Team("teamA");
@@ -42,10 +48,8 @@ public class InitMember {
             em.persist(teamA);
             em.persist(teamB);
 
-            for(int i = 0; i<100;i++){
-                Team selectedTeam = i%2 ==0 ?teamA : teamB;
-                em.persist(new Member("member"+i,i,selectedTeam));
-            }
+            memberBulkLoader.load(IntStream.range(0, 100)
+                    .mapToObj(i -> new Member("member"+i,i,i%2 ==0 ?teamA : teamB)));
         }
     }
 }
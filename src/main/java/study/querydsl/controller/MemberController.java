@@ -1,24 +1,172 @@
 package study.querydsl.controller;
 
 
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
 import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ExceptionHandler;
 import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.ResponseStatus;
 import org.springframework.web.bind.annotation.RestController;
+import study.querydsl.dto.AgeHistogram;
+import study.querydsl.dto.AgePercentiles;
+import study.querydsl.dto.AgeSummary;
+import study.querydsl.dto.MemberCursor;
 import study.querydsl.dto.MemberSearchCondition;
+import study.querydsl.dto.MemberSlice;
 import study.querydsl.dto.MemberTeamDto;
+import study.querydsl.dto.TeamMemberStats;
+import study.querydsl.repository.MemberAsyncRepository;
+import study.querydsl.repository.MemberExportRepository;
 import study.querydsl.repository.MemberJpaRepository;
 import study.querydsl.repository.MemberRepository;
+import study.querydsl.repository.MemberStatsRepository;
+import study.querydsl.repository.SnapshotRoutingMemberRepository;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
 
 @RestController
 @RequiredArgsConstructor
 public class MemberController {
 
     private final MemberJpaRepository memberJpaRepository;
+    private final MemberRepository memberRepository;
+    private final MemberAsyncRepository memberAsyncRepository;
+    private final SnapshotRoutingMemberRepository snapshotRoutingMemberRepository;
+    private final MemberStatsRepository memberStatsRepository;
+    private final MemberExportRepository memberExportRepository;
+    private final ObjectMapper objectMapper;
+
+    @Value("${querydsl.stream.fetch-size:500}")
+    private int streamFetchSize;
 
     @GetMapping("/v1/members")
     public List<MemberTeamDto> searchMemberV1(MemberSearchCondition condition){
         return memberJpaRepository.search(condition);
 
     }
+
+    //검색 조건 목록을 한번에, 응답은 조건 순서대로 결과 목록
+    //ex) [{"username":"member1"},{"teamName":"teamB","ageGoe":30}]
+    @PostMapping("/v1/members/batch")
+    public List<List<MemberTeamDto>> searchMemberBatch(@RequestBody List<MemberSearchCondition> conditions){
+        return memberRepository.searchBatch(conditions);
+    }
+
+    //대시보드용, 스냅샷(querydsl.snapshot.enabled)이 최신이면 메모리에서 바로 답한다.
+    @GetMapping("/v1/members/page")
+    public Page<MemberTeamDto> searchMemberPage(MemberSearchCondition condition, Pageable pageable){
+        return snapshotRoutingMemberRepository.searchPageComplex(condition, pageable);
+    }
+
+    //통계는 검색조건별로 캐시되고 member/team이 바뀌면 비워진다. (MemberStatsRepository)
+    @GetMapping("/v1/members/stats/ages")
+    public AgeSummary ageSummary(MemberSearchCondition condition){
+        return memberStatsRepository.ageSummary(condition);
+    }
+
+    @GetMapping("/v1/members/stats/age-histogram")
+    public AgeHistogram ageHistogram(MemberSearchCondition condition, @RequestParam(defaultValue = "10") int bucketWidth){
+        return memberStatsRepository.ageHistogram(condition, bucketWidth);
+    }
+
+    //ex) /v1/members/stats/age-percentiles?p=50&p=90&p=99
+    @GetMapping("/v1/members/stats/age-percentiles")
+    public AgePercentiles agePercentiles(MemberSearchCondition condition, @RequestParam(name = "p", defaultValue = "50,90,99") double[] percentiles){
+        return memberStatsRepository.agePercentiles(condition, percentiles);
+    }
+
+    @GetMapping("/v1/members/stats/teams")
+    public List<TeamMemberStats> teamStats(MemberSearchCondition condition){
+        return memberStatsRepository.teamStats(condition);
+    }
+
+    //요청 쓰레드는 바로 반환되고 content와 count 쿼리가 동시에 돈다.
+    @GetMapping("/v1/members/async")
+    public CompletableFuture<Page<MemberTeamDto>> searchMemberAsync(MemberSearchCondition condition, Pageable pageable){
+        return memberAsyncRepository.searchPage(condition, pageable);
+    }
+
+    //비동기 검색 풀이 꽉 찼으면 503, 클라이언트가 잠깐 뒤에 다시 요청한다.
+    @ExceptionHandler(RejectedExecutionException.class)
+    @ResponseStatus(HttpStatus.SERVICE_UNAVAILABLE)
+    public void repositoryBusy(){
+    }
+
+    //cursor는 이전 응답의 nextCursor를 그대로 넘기면 된다. 없으면 첫 페이지
+    @GetMapping("/v1/members/slice")
+    public MemberSlice searchMemberSlice(MemberSearchCondition condition,
+                                         @RequestParam(required = false) String cursor,
+                                         @RequestParam(defaultValue = "20") int size){
+        return memberRepository.searchSlice(condition, MemberCursor.decode(cursor), size);
+    }
+
+    //결과를 List로 만들지 않고 한 줄에 하나씩 JSON(NDJSON)으로 바로 응답에 쓴다.
+    //조건이 없어서 전체 테이블이 나가도 메모리는 fetchSize 만큼만 쓴다.
+    @GetMapping("/v1/members/stream")
+    public void streamMemberV1(MemberSearchCondition condition, HttpServletResponse response) throws IOException {
+        response.setContentType("application/x-ndjson");
+        response.setCharacterEncoding("UTF-8");
+
+        //row마다 flush하면 row마다 chunk가 나가니 버퍼가 찰 때만 내보낸다.
+        ObjectWriter writer = objectMapper.writerFor(MemberTeamDto.class)
+                .without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+        try (JsonGenerator generator = objectMapper.getFactory().createGenerator(response.getOutputStream())) {
+            generator.setRootValueSeparator(null);
+            memberJpaRepository.streamSearch(condition, streamFetchSize, row -> {
+                try {
+                    writer.writeValue(generator, row);
+                    generator.writeRaw('\n');
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    //stream과 같은 NDJSON, 대신 JDBC row를 DTO 없이(MemberTeamRowView) 바로 JSON 필드로 쓴다. 내보내기(수백만 row)용
+    @GetMapping("/v1/members/export")
+    public void exportMembers(MemberSearchCondition condition, HttpServletResponse response) throws IOException {
+        response.setContentType("application/x-ndjson");
+        response.setCharacterEncoding("UTF-8");
+
+        try (JsonGenerator generator = objectMapper.getFactory().createGenerator(response.getOutputStream())) {
+            generator.setRootValueSeparator(null);
+            memberExportRepository.exportRows(condition, streamFetchSize, row -> {
+                try {
+                    generator.writeStartObject();
+                    generator.writeNumberField("memberId", row.getMemberId());
+                    generator.writeStringField("username", row.getUsername());
+                    generator.writeNumberField("age", row.getAge());
+                    if (row.hasTeam()) {
+                        generator.writeNumberField("teamId", row.getTeamId());
+                    } else {
+                        generator.writeNullField("teamId");
+                    }
+                    generator.writeStringField("teamName", row.getTeamName());
+                    generator.writeEndObject();
+                    generator.writeRaw('\n');
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
 }
@@ -0,0 +1,36 @@
+package study.querydsl.dto;
+
+import lombok.Getter;
+import lombok.ToString;
+
+import java.util.Collections;
+import java.util.List;
+
+//bucketWidth살 단위 나이 분포, member가 있는 구간만 나이 순서로
+//ex) bucketWidth=10 -> [10~19: 2명, 30~39: 1명]
+@Getter
+@ToString
+public class AgeHistogram {
+
+    private final int bucketWidth;
+    private final List<Bucket> buckets;
+
+    public AgeHistogram(int bucketWidth, List<Bucket> buckets) {
+        this.bucketWidth = bucketWidth;
+        this.buckets = Collections.unmodifiableList(buckets);
+    }
+
+    @Getter
+    @ToString
+    public static class Bucket {
+        private final int from; //포함
+        private final int to;   //포함
+        private final long count;
+
+        public Bucket(int from, int to, long count) {
+            this.from = from;
+            this.to = to;
+            this.count = count;
+        }
+    }
+}
@@ -0,0 +1,26 @@
+package study.querydsl.dto;
+
+import lombok.Getter;
+import lombok.ToString;
+
+import java.util.Collections;
+import java.util.Map;
+
+//나이 백분위(nearest-rank), key는 0~100 백분위, 값은 그 백분위의 나이 (member가 없으면 비어있다)
+//ex) {50.0=25, 90.0=38, 99.0=40}
+@Getter
+@ToString
+public class AgePercentiles {
+
+    private final long count;
+    private final Map<Double, Integer> values;
+
+    public AgePercentiles(long count, Map<Double, Integer> values) {
+        this.count = count;
+        this.values = Collections.unmodifiableMap(values);
+    }
+
+    public Integer get(double percentile) {
+        return values.get(percentile);
+    }
+}
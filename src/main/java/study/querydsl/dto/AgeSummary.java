@@ -0,0 +1,24 @@
+package study.querydsl.dto;
+
+import lombok.Getter;
+import lombok.ToString;
+
+//검색조건에 맞는 member 나이의 count/sum/min/max/avg, member가 없으면 min/max/avg는 null
+@Getter
+@ToString
+public class AgeSummary {
+
+    private final long count;
+    private final long sum;
+    private final Integer min;
+    private final Integer max;
+    private final Double avg;
+
+    public AgeSummary(long count, long sum, Integer min, Integer max) {
+        this.count = count;
+        this.sum = sum;
+        this.min = min;
+        this.max = max;
+        this.avg = count > 0 ? (double) sum / count : null;
+    }
+}
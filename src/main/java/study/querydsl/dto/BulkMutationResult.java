@@ -0,0 +1,21 @@
+package study.querydsl.dto;
+
+import lombok.Getter;
+import lombok.ToString;
+
+import java.util.Collections;
+import java.util.List;
+
+//벌크 update/delete 결과, chunk(id chunkSize개)마다 바뀐 row 수
+@Getter
+@ToString
+public class BulkMutationResult {
+
+    private final List<Long> chunkCounts;
+    private final long totalCount;
+
+    public BulkMutationResult(List<Long> chunkCounts) {
+        this.chunkCounts = Collections.unmodifiableList(chunkCounts);
+        this.totalCount = chunkCounts.stream().mapToLong(Long::longValue).sum();
+    }
+}
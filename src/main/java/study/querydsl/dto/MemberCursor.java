@@ -0,0 +1,79 @@
+package study.querydsl.dto;
+
+import lombok.Getter;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+import static org.springframework.util.StringUtils.hasText;
+
+/**
+ * keyset(seek) 페이징용 커서
+ * 마지막으로 본 (memberId) 또는 (age, memberId) 를 들고 있다가 다음 페이지의 where 조건으로 바뀐다.
+ * 클라이언트에게는 encode()한 불투명 토큰만 넘긴다.
+ */
+@Getter
+public class MemberCursor {
+
+    private static final String ID_ORDER = "i";
+    private static final String AGE_ORDER = "a";
+
+    private final boolean ageOrder; //true면 (age, memberId) 순서, false면 memberId 순서
+    private final Integer age;
+    private final Long memberId;
+
+    private MemberCursor(boolean ageOrder, Integer age, Long memberId) {
+        this.ageOrder = ageOrder;
+        this.age = age;
+        this.memberId = memberId;
+    }
+
+    //첫 페이지 memberId 순서
+    public static MemberCursor first() {
+        return new MemberCursor(false, null, null);
+    }
+
+    //첫 페이지 (age, memberId) 순서
+    public static MemberCursor firstByAge() {
+        return new MemberCursor(true, null, null);
+    }
+
+    //마지막으로 본 row 다음부터
+    public static MemberCursor after(MemberTeamDto last, boolean ageOrder) {
+        return new MemberCursor(ageOrder, ageOrder ? last.getAge() : null, last.getMemberId());
+    }
+
+    public boolean isFirst() {
+        return memberId == null;
+    }
+
+    public String encode() {
+        String raw = ageOrder
+                ? AGE_ORDER + ":" + (isFirst() ? "" : age + ":" + memberId)
+                : ID_ORDER + ":" + (isFirst() ? "" : memberId);
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    //토큰이 없으면 memberId 순서의 첫 페이지
+    public static MemberCursor decode(String token) {
+        if (!hasText(token)) {
+            return first();
+        }
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+            String[] parts = raw.split(":", -1);
+            if (ID_ORDER.equals(parts[0]) && parts.length == 2) {
+                return parts[1].isEmpty() ? first() : new MemberCursor(false, null, Long.valueOf(parts[1]));
+            }
+            if (AGE_ORDER.equals(parts[0]) && parts.length == 2 && parts[1].isEmpty()) {
+                return firstByAge();
+            }
+            if (AGE_ORDER.equals(parts[0]) && parts.length == 3) {
+                return new MemberCursor(true, Integer.valueOf(parts[1]), Long.valueOf(parts[2]));
+            }
+        } catch (IllegalArgumentException e) {
+            //Base64나 숫자 형식이 깨진 경우 아래에서 같이 처리
+        }
+        throw new IllegalArgumentException("잘못된 cursor 토큰입니다: " + token);
+    }
+}
@@ -2,6 +2,14 @@ package study.querydsl.dto;
 
 import lombok.Data;
 
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Objects;
+import java.util.TreeSet;
+
+import static org.springframework.util.StringUtils.hasText;
+
 @Data
 public class MemberSearchCondition {
     //회원명, 팀명, 나이(ageGoe,ageLoe)
@@ -11,6 +19,88 @@ public class MemberSearchCondition {
     private Integer ageGoe;//Integer를 쓴이유는 값이 null일수 있어서.
     private Integer ageLoe;
 
+    //여러 값 중 하나 (in), 비어있으면 조건 없음
+    //ex) /v1/members?usernames=member1&usernames=member2
+    private List<String> usernames;
+    private List<String> teamNames;
+    private List<Long> memberIds;
+
+    //username 앞부분(대소문자 무시), username이나 팀 이름과 비슷한 검색어(오타 허용)
+    //DB like가 아니라 메모리 색인(MemberNameIndex)에서 후보 member id를 먼저 찾는다.
+    //ex) /v1/members?usernamePrefix=mem, /v1/members?query=membr1
+    private String usernamePrefix;
+    private String query;
+
+    //where절에서 무시되는 값(빈 문자열 등)을 null로 맞춘 복사본, 같은 검색이면 equals가 같아서 캐시 key로 쓴다.
+    //목록은 순서와 중복이 결과에 상관없으니 정렬, 중복제거 한다.
+    public MemberSearchCondition normalized() {
+        MemberSearchCondition normalized = new MemberSearchCondition();
+        normalized.setUsername(hasText(username) ? username : null);
+        normalized.setTeamName(hasText(teamName) ? teamName : null);
+        normalized.setAgeGoe(ageGoe);
+        normalized.setAgeLoe(ageLoe);
+        normalized.setUsernames(normalize(usernames));
+        normalized.setTeamNames(normalize(teamNames));
+        normalized.setMemberIds(normalize(memberIds));
+        normalized.setUsernamePrefix(hasText(usernamePrefix) ? usernamePrefix : null);
+        normalized.setQuery(hasText(query) ? query.trim() : null);
+        return normalized;
+    }
+
+    public boolean hasCollectionCriteria() {
+        return !isEmpty(usernames) || !isEmpty(teamNames) || !isEmpty(memberIds);
+    }
+
+    public boolean hasTeamCriteria() {
+        return hasText(teamName) || !isEmpty(teamNames);
+    }
+
+    public boolean hasIndexCriteria() {
+        return hasText(usernamePrefix) || hasText(query);
+    }
+
+    /**
+     * 검색 결과 row가 이 조건에 맞는지 (where절과 같은 의미)
+     * 배치 검색에서 합쳐서 가져온 결과를 조건별로 다시 나눌 때 쓴다.
+     * query는 색인에서 memberIds로 바꾼(MemberNameIndex.resolve) 조건에서만 쓸 수 있다.
+     */
+    public boolean matches(MemberTeamDto row) {
+        if (hasText(username) && !username.equals(row.getUsername())) {
+            return false;
+        }
+        if (hasText(teamName) && !teamName.equals(row.getTeamName())) {
+            return false;
+        }
+        if (ageGoe != null && row.getAge() < ageGoe) {
+            return false;
+        }
+        if (ageLoe != null && row.getAge() > ageLoe) {
+            return false;
+        }
+        if (hasText(usernamePrefix) && (row.getUsername() == null
+                || !row.getUsername().regionMatches(true, 0, usernamePrefix, 0, usernamePrefix.length()))) {
+            return false;
+        }
+        return (isEmpty(usernames) || usernames.contains(row.getUsername()))
+                && (isEmpty(teamNames) || teamNames.contains(row.getTeamName()))
+                && (isEmpty(memberIds) || memberIds.contains(row.getMemberId()));
+    }
+
+    private static boolean isEmpty(Collection<?> values) {
+        return values == null || values.isEmpty();
+    }
 
+    private static <T extends Comparable<T>> List<T> normalize(List<T> values) {
+        if (isEmpty(values)) {
+            return null;
+        }
+        TreeSet<T> sorted = new TreeSet<>();
+        for (T value : values) {
+            if (value instanceof String ? hasText((String) value) : Objects.nonNull(value)) {
+                sorted.add(value);
+            }
+        }
+        return sorted.isEmpty() ? null : new ArrayList<>(sorted);
+    }
 
 }
@@ -0,0 +1,20 @@
+package study.querydsl.dto;
+
+import lombok.Getter;
+
+import java.util.List;
+
+//keyset 페이징 결과, total count는 없고 다음 페이지 토큰만 준다.
+@Getter
+public class MemberSlice {
+
+    private final List<MemberTeamDto> content;
+    private final String nextCursor; //마지막 페이지면 null
+    private final boolean hasNext;
+
+    public MemberSlice(List<MemberTeamDto> content, String nextCursor) {
+        this.content = content;
+        this.nextCursor = nextCursor;
+        this.hasNext = nextCursor != null;
+    }
+}
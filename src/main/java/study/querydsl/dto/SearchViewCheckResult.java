@@ -0,0 +1,29 @@
+package study.querydsl.dto;
+
+import lombok.Getter;
+import lombok.ToString;
+
+import java.util.Collections;
+import java.util.List;
+
+//member_search_view와 원본(member left join team) 비교 결과, id 목록은 앞에서부터 최대 sampleSize개
+@Getter
+@ToString
+public class SearchViewCheckResult {
+
+    private final long sourceRows;
+    private final long viewRows;
+    private final List<Long> missing;   //원본에는 있는데 view에 없는 member id
+    private final List<Long> extra;     //view에만 있는 member id
+    private final List<Long> different; //둘 다 있는데 값이 다른 member id
+    private final boolean consistent;
+
+    public SearchViewCheckResult(long sourceRows, long viewRows, List<Long> missing, List<Long> extra, List<Long> different) {
+        this.sourceRows = sourceRows;
+        this.viewRows = viewRows;
+        this.missing = Collections.unmodifiableList(missing);
+        this.extra = Collections.unmodifiableList(extra);
+        this.different = Collections.unmodifiableList(different);
+        this.consistent = missing.isEmpty() && extra.isEmpty() && different.isEmpty();
+    }
+}
@@ -0,0 +1,24 @@
+package study.querydsl.dto;
+
+import lombok.Getter;
+import lombok.ToString;
+
+//팀별 member 수와 평균 나이 (팀 없는 member는 빠진다)
+@Getter
+@ToString
+public class TeamMemberStats {
+
+    private final Long teamId;
+    private final String teamName;
+    private final long memberCount;
+    private final long ageSum;
+    private final double avgAge;
+
+    public TeamMemberStats(Long teamId, String teamName, long memberCount, long ageSum) {
+        this.teamId = teamId;
+        this.teamName = teamName;
+        this.memberCount = memberCount;
+        this.ageSum = ageSum;
+        this.avgAge = memberCount > 0 ? (double) ageSum / memberCount : 0;
+    }
+}
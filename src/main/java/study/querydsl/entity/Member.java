@@ -1,22 +1,46 @@
 package study.querydsl.entity;
 
+import lombok.AccessLevel;
 import lombok.Getter;
 import lombok.Setter;
 import lombok.ToString;
 
 import javax.persistence.*;
 
+//검색 조건(MemberSearchTemplates)마다 탈 수 있는 인덱스
+//- username = ?                        : idx_member_username
+//- team.name = ? (team에서 시작해서 조인) : idx_member_team_age (team_id, age) 나이 범위까지 같이
+//- age 범위만                          : idx_member_age_cover, MemberTeamDto에 필요한 member 컬럼이 다 있어서 테이블을 안읽는다.
+//- usernamePrefix (대소문자 무시)       : idx_member_username_lower, username_lower like 'al%'
 @Entity
+@Table(indexes = {
+        @Index(name = "idx_member_username", columnList = "username"),
+        @Index(name = "idx_member_username_lower", columnList = "username_lower"),
+        @Index(name = "idx_member_team_age", columnList = "team_id, age"),
+        @Index(name = "idx_member_age_cover", columnList = "age, username, team_id, member_id")
+})
+@NamedEntityGraph(name = "Member.team", attributeNodes = @NamedAttributeNode("team"))
 @Getter @Setter
 @ToString(of = {"id","username","age"}) //team 이런것은 들어가면안된다 왓다리갓다리한다.
 public class Member {
 
-    @Id @GeneratedValue
+    //기본 전략(hibernate_sequence, 1씩 증가)이면 insert마다 시퀀스를 한번씩 호출한다.
+    //allocationSize만큼 미리 받아두면(pooled) 시퀀스 호출이 줄고 jdbc batch insert도 된다.
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "member_seq_generator")
+    @SequenceGenerator(name = "member_seq_generator", sequenceName = "member_seq", allocationSize = 50)
     @Column(name ="member_id")
     private Long id;
     private String username;
     private int age;
 
+    //lower(username) like ? 는 함수를 거쳐서 인덱스를 못탄다. DB가 계산해서 넣는 소문자 컬럼에 인덱스를 건다.
+    //H2 계산 컬럼 문법이라 다른 DB면 generated column(postgres: generated always as (lower(username)) stored)으로 바꾼다.
+    //DB가 채우니 JPA는 읽기만 한다. (벌크 update, JDBC insert도 같이 맞춰진다)
+    @Setter(AccessLevel.NONE)
+    @Column(name = "username_lower", insertable = false, updatable = false, columnDefinition = "varchar(255) as lower(username)")
+    private String usernameLower;
+
     @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "team_id")
     private Team team;
@@ -0,0 +1,43 @@
+package study.querydsl.entity;
+
+import lombok.AccessLevel;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.ToString;
+import org.hibernate.annotations.Immutable;
+
+import javax.persistence.Column;
+import javax.persistence.Entity;
+import javax.persistence.Id;
+import javax.persistence.Index;
+import javax.persistence.Table;
+
+//MemberTeamDto 모양 그대로 member + team을 미리 펼쳐둔 조회용 테이블 (조인 없이 검색)
+//JPA로는 읽기만 하고 쓰기는 MemberSearchViewMaintainer가 flush 때 JDBC로 한다.
+@Entity
+@Immutable
+@Table(name = "member_search_view", indexes = {
+        @Index(name = "idx_msv_username", columnList = "username"),
+        @Index(name = "idx_msv_username_lower", columnList = "username_lower"),
+        @Index(name = "idx_msv_team_name_age", columnList = "team_name, age"),
+        @Index(name = "idx_msv_team_id", columnList = "team_id, member_id"),
+        @Index(name = "idx_msv_age", columnList = "age")
+})
+@Getter
+@NoArgsConstructor(access = AccessLevel.PROTECTED)
+@ToString
+public class MemberSearchView {
+
+    @Id
+    @Column(name = "member_id")
+    private Long memberId;
+    private String username;
+    //usernamePrefix용 소문자 username, DB가 계산한다. (Member.usernameLower와 같다)
+    @Column(name = "username_lower", insertable = false, updatable = false, columnDefinition = "varchar(255) as lower(username)")
+    private String usernameLower;
+    private int age;
+    @Column(name = "team_id")
+    private Long teamId;
+    @Column(name = "team_name")
+    private String teamName;
+}
@@ -0,0 +1,31 @@
+package study.querydsl.event;
+
+import lombok.Getter;
+import lombok.ToString;
+
+import java.io.Serializable;
+
+//Hibernate가 insert/update/delete를 DB에 반영(flush)한 직후에 발행된다.
+//벌크 연산에서 발행할 때는 영속성 컨텍스트에 없던 row라 entity가 null일 수 있다.
+@Getter
+@ToString(of = {"type", "entityType", "id"})
+public class EntityChangedEvent {
+
+    public enum Type { INSERT, UPDATE, DELETE }
+
+    private final Type type;
+    private final Class<?> entityType;
+    private final Object entity;
+    private final Serializable id;
+
+    public EntityChangedEvent(Type type, Class<?> entityType, Object entity, Serializable id) {
+        this.type = type;
+        this.entityType = entityType;
+        this.entity = entity;
+        this.id = id;
+    }
+
+    public boolean isOf(Class<?> type) {
+        return type.isAssignableFrom(entityType);
+    }
+}
@@ -0,0 +1,138 @@
+package study.querydsl.metrics;
+
+import com.mysema.commons.lang.CloseableIterator;
+import com.querydsl.core.NonUniqueResultException;
+import com.querydsl.core.QueryMetadata;
+import com.querydsl.core.QueryResults;
+import com.querydsl.jpa.JPQLSerializer;
+import com.querydsl.jpa.JPQLTemplates;
+import com.querydsl.jpa.impl.JPAQuery;
+
+import javax.persistence.EntityManager;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+//실행 메서드(fetch, fetchOne, fetchResults, fetchCount, iterate)만 감싼다. fetchFirst는 fetchOne을 탄다.
+public class InstrumentedJPAQuery<T> extends JPAQuery<T> {
+
+    private final QueryMetrics metrics;
+    private final String name;
+
+    public InstrumentedJPAQuery(EntityManager em, QueryMetrics metrics, String name) {
+        super(em);
+        this.metrics = metrics;
+        this.name = name;
+    }
+
+    private InstrumentedJPAQuery(EntityManager em, JPQLTemplates templates, QueryMetadata metadata,
+                                 QueryMetrics metrics, String name) {
+        super(em, templates, metadata);
+        this.metrics = metrics;
+        this.name = name;
+    }
+
+    @Override
+    public List<T> fetch() {
+        return metrics.record(name, "fetch", super::fetch, shape());
+    }
+
+    @Override
+    public T fetchOne() throws NonUniqueResultException {
+        return metrics.record(name, "fetchOne", super::fetchOne, shape());
+    }
+
+    @Override
+    public QueryResults<T> fetchResults() {
+        return metrics.record(name, "fetchResults", super::fetchResults, shape());
+    }
+
+    @Override
+    public long fetchCount() {
+        return metrics.record(name, "fetchCount", super::fetchCount, countShape());
+    }
+
+    //커서를 닫을 때까지(다 읽을 때까지)를 한번으로 기록한다.
+    @Override
+    public CloseableIterator<T> iterate() {
+        long statements = QueryStatementInspector.statementCount();
+        long start = System.nanoTime();
+        CloseableIterator<T> rows = super.iterate();
+        return new CloseableIterator<T>() {
+            private long count;
+            private boolean closed;
+
+            @Override
+            public boolean hasNext() {
+                return rows.hasNext();
+            }
+
+            @Override
+            public T next() {
+                T next = rows.next();
+                count++;
+                return next;
+            }
+
+            @Override
+            public void remove() {
+                rows.remove();
+            }
+
+            @Override
+            public void close() {
+                rows.close();
+                if (!closed) {
+                    closed = true;
+                    metrics.record(name, "iterate", start, statements, count, shape());
+                }
+            }
+        };
+    }
+
+    private QueryShape shape() {
+        return shape(false);
+    }
+
+    private QueryShape countShape() {
+        return shape(true);
+    }
+
+    //직렬화는 느린 쿼리라서 jpql()/binds()가 불릴 때만 한다. (querydsl이 실행할 때와 같은 방식으로 한번 더)
+    private QueryShape shape(boolean forCount) {
+        return new QueryShape() {
+            private JPQLSerializer serializer;
+
+            @Override
+            public String jpql() {
+                return serializer().toString();
+            }
+
+            @Override
+            public Map<String, Object> binds() {
+                //querydsl은 상수에 "1", "2" ... 라벨을 붙이고 jpql에는 ?1, ?2 로 쓴다. jpql과 같게 ?를 붙인다.
+                //"?10"이 "?2"보다 앞에 오지 않도록 라벨을 숫자로 정렬한다.
+                Map<Integer, Object> byLabel = new TreeMap<>();
+                serializer().getConstantToLabel().forEach((value, label) -> byLabel.put(Integer.valueOf(label), value));
+                Map<String, Object> binds = new LinkedHashMap<>();
+                byLabel.forEach((label, value) -> binds.put("?" + label, value));
+                return binds;
+            }
+
+            private JPQLSerializer serializer() {
+                if (serializer == null) {
+                    serializer = serialize(forCount);
+                }
+                return serializer;
+            }
+        };
+    }
+
+    @Override
+    public InstrumentedJPAQuery<T> clone(EntityManager entityManager, JPQLTemplates templates) {
+        InstrumentedJPAQuery<T> q = new InstrumentedJPAQuery<>(entityManager, templates, getMetadata().clone(), metrics, name);
+        q.clone(this);
+        return q;
+    }
+}
@@ -0,0 +1,42 @@
+package study.querydsl.metrics;
+
+import com.querydsl.jpa.impl.JPAQuery;
+import com.querydsl.jpa.impl.JPAQueryFactory;
+
+import javax.persistence.EntityManager;
+
+/**
+ * select/selectFrom/from이 전부 query()를 거치기 때문에 query()만 바꾸면 모든 조회가 QueryMetrics에 기록된다.
+ * 쿼리 이름은 named()로 붙인다.
+ * ex) queryFactory.named("member.searchSlice").select(...).from(member)...fetch()
+ * update/delete/insert 절은 그대로다.
+ */
+public class InstrumentedJPAQueryFactory extends JPAQueryFactory {
+
+    public static final String UNNAMED = "unnamed";
+
+    private final EntityManager em;
+    private final QueryMetrics metrics;
+    private final String name;
+
+    public InstrumentedJPAQueryFactory(EntityManager em, QueryMetrics metrics) {
+        this(em, metrics, UNNAMED);
+    }
+
+    private InstrumentedJPAQueryFactory(EntityManager em, QueryMetrics metrics, String name) {
+        super(em);
+        this.em = em;
+        this.metrics = metrics;
+        this.name = name;
+    }
+
+    //필드 3개짜리 객체라 쿼리마다 만들어도 부담 없다.
+    public InstrumentedJPAQueryFactory named(String name) {
+        return new InstrumentedJPAQueryFactory(em, metrics, name);
+    }
+
+    @Override
+    public JPAQuery<?> query() {
+        return new InstrumentedJPAQuery<Void>(em, metrics, name);
+    }
+}
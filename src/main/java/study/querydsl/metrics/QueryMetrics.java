@@ -0,0 +1,154 @@
+package study.querydsl.metrics;
+
+import com.querydsl.core.QueryResults;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.hibernate.engine.spi.SessionImplementor;
+import org.springframework.orm.jpa.EntityManagerHolder;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.persistence.EntityManagerFactory;
+import javax.persistence.Parameter;
+import javax.persistence.Query;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * 쿼리 이름(query)과 실행 방식(op)별 메트릭
+ * - querydsl.query                        : 실행 시간 (percentile histogram)
+ * - querydsl.query.rows                   : 가져온 row 수
+ * - querydsl.query.statements             : 실행하면서 나간 JDBC statement 수 (auto flush, 지연로딩 포함)
+ * - querydsl.query.persistence-context    : 실행 후 영속성 컨텍스트에 올라가 있는 entity 수
+ * 쿼리 이름은 코드에 박힌 상수만 쓴다. (파라미터 값을 넣으면 meter가 끝없이 늘어난다)
+ * threshold보다 느린 쿼리는 SlowQuerySampler에도 남긴다.
+ */
+@Component
+public class QueryMetrics {
+
+    private final MeterRegistry registry;
+    private final EntityManagerFactory emf;
+    private final SlowQuerySampler slowQuerySampler;
+    private final Map<String, Meters> meters = new ConcurrentHashMap<>();
+
+    public QueryMetrics(MeterRegistry registry, EntityManagerFactory emf, SlowQuerySampler slowQuerySampler) {
+        this.registry = registry;
+        this.emf = emf;
+        this.slowQuerySampler = slowQuerySampler;
+    }
+
+    public <T> T record(String name, String op, Supplier<T> query) {
+        return record(name, op, query, null);
+    }
+
+    //JPA Query를 직접 만든 경우(MemberSearchTemplates), 느리면 JPQL과 바인딩 값을 query에서 꺼낸다.
+    public <Q extends Query, T> T record(String name, String op, Q query, Function<Q, T> execution) {
+        return record(name, op, () -> execution.apply(query), new JpaQueryShape(query));
+    }
+
+    public <T> T record(String name, String op, Supplier<T> query, QueryShape shape) {
+        long statements = QueryStatementInspector.statementCount();
+        long start = System.nanoTime();
+        T result = null;
+        try {
+            result = query.get();
+            return result;
+        } finally {
+            record(name, op, start, statements, rows(result), shape);
+        }
+    }
+
+    //iterate()처럼 끝나는 시점이 따로인 경우 시작 값을 직접 넘긴다.
+    void record(String name, String op, long startNanos, long statementsBefore, long rows, QueryShape shape) {
+        long elapsed = System.nanoTime() - startNanos;
+        Meters m = meters.computeIfAbsent(name + ':' + op, key -> new Meters(name, op));
+        m.latency.record(elapsed, TimeUnit.NANOSECONDS);
+        m.rows.record(rows);
+        m.statements.record(QueryStatementInspector.statementCount() - statementsBefore);
+        int managed = managedEntities();
+        if (managed >= 0) {
+            m.persistenceContext.record(managed);
+        }
+        if (slowQuerySampler.isSlow(elapsed)) {
+            slowQuerySampler.sample(name, op, elapsed, shape);
+        }
+    }
+
+    private static long rows(Object result) {
+        if (result == null) {
+            return 0;
+        }
+        if (result instanceof Collection) {
+            return ((Collection<?>) result).size();
+        }
+        if (result instanceof QueryResults) {
+            return ((QueryResults<?>) result).getResults().size();
+        }
+        return 1;
+    }
+
+    //트랜잭션(또는 OSIV)에 묶인 EntityManager가 없으면 쿼리마다 새 em이라 의미가 없어서 -1
+    private int managedEntities() {
+        EntityManagerHolder holder = (EntityManagerHolder) TransactionSynchronizationManager.getResource(emf);
+        if (holder == null) {
+            return -1;
+        }
+        return holder.getEntityManager().unwrap(SessionImplementor.class)
+                .getPersistenceContext().getNumberOfManagedEntities();
+    }
+
+    private static class JpaQueryShape implements QueryShape {
+        private final Query query;
+
+        private JpaQueryShape(Query query) {
+            this.query = query;
+        }
+
+        @Override
+        public String jpql() {
+            return query.unwrap(org.hibernate.query.Query.class).getQueryString();
+        }
+
+        @Override
+        public Map<String, Object> binds() {
+            Map<String, Object> binds = new LinkedHashMap<>();
+            for (Parameter<?> parameter : query.getParameters()) {
+                String name = parameter.getName() != null ? parameter.getName() : "?" + parameter.getPosition();
+                binds.put(name, query.isBound(parameter) ? query.getParameterValue(parameter) : null);
+            }
+            return binds;
+        }
+    }
+
+    private class Meters {
+        private final Timer latency;
+        private final DistributionSummary rows;
+        private final DistributionSummary statements;
+        private final DistributionSummary persistenceContext;
+
+        private Meters(String name, String op) {
+            this.latency = Timer.builder("querydsl.query")
+                    .tag("query", name).tag("op", op)
+                    .publishPercentileHistogram()
+                    .register(registry);
+            this.rows = DistributionSummary.builder("querydsl.query.rows")
+                    .tag("query", name).tag("op", op)
+                    .baseUnit("rows")
+                    .register(registry);
+            this.statements = DistributionSummary.builder("querydsl.query.statements")
+                    .tag("query", name).tag("op", op)
+                    .baseUnit("statements")
+                    .register(registry);
+            this.persistenceContext = DistributionSummary.builder("querydsl.query.persistence-context")
+                    .tag("query", name).tag("op", op)
+                    .baseUnit("entities")
+                    .register(registry);
+        }
+    }
+}
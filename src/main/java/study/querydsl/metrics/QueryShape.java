@@ -0,0 +1,11 @@
+package study.querydsl.metrics;
+
+import java.util.Map;
+
+//느린 쿼리를 남길 때만 꺼내보는 쿼리 모양(JPQL, 바인딩 값). 빠른 쿼리는 만들지 않는다.
+public interface QueryShape {
+
+    String jpql();
+
+    Map<String, Object> binds();
+}
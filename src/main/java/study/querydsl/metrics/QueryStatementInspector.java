@@ -0,0 +1,72 @@
+package study.querydsl.metrics;
+
+import com.querydsl.sql.SQLBaseListener;
+import com.querydsl.sql.SQLListenerContext;
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * hibernate가 PreparedStatement를 만들 때마다 불리는 훅
+ * SQL 로그를 찍는 대신 쓰레드별로 몇 번 나갔는지와 마지막 SQL(참조만)을 남긴다.
+ * (QueryMetrics에서 쿼리 전후 값을 빼고, 느린 쿼리일 때만 SQL을 꺼내간다)
+ * 요청 쓰레드 하나가 세션 하나를 쓰는 구조라 ThreadLocal로 충분하다.
+ * querydsl-sql(hibernate를 안거친다)은 SqlListener가 같은 곳에 남긴다. (QuerydslSqlConfig)
+ */
+public class QueryStatementInspector implements StatementInspector {
+
+    private static final ThreadLocal<Statements> STATEMENTS = ThreadLocal.withInitial(Statements::new);
+
+    @Override
+    public String inspect(String sql) {
+        record(sql);
+        return sql;
+    }
+
+    private static void record(String sql) {
+        Statements statements = STATEMENTS.get();
+        statements.count++;
+        statements.lastSql = sql;
+        if (statements.recorded != null) {
+            statements.recorded.add(sql);
+        }
+    }
+
+    //지금 쓰레드에서 지금까지 나간 statement 수 (누적값)
+    public static long statementCount() {
+        return STATEMENTS.get().count;
+    }
+
+    //지금 쓰레드에서 마지막으로 나간 SQL
+    public static String lastSql() {
+        return STATEMENTS.get().lastSql;
+    }
+
+    //지금 쓰레드에서 나가는 SQL을 전부 모은다. (쿼리 계획 회귀 테스트용, 평소에는 null 체크만)
+    public static void startRecording() {
+        STATEMENTS.get().recorded = new ArrayList<>();
+    }
+
+    public static List<String> stopRecording() {
+        Statements statements = STATEMENTS.get();
+        List<String> recorded = statements.recorded != null ? statements.recorded : Collections.emptyList();
+        statements.recorded = null;
+        return recorded;
+    }
+
+    //querydsl-sql이 PreparedStatement를 만들 때
+    public static class SqlListener extends SQLBaseListener {
+        @Override
+        public void prepared(SQLListenerContext context) {
+            record(context.getSQL());
+        }
+    }
+
+    private static class Statements {
+        private long count;
+        private String lastSql;
+        private List<String> recorded;
+    }
+}
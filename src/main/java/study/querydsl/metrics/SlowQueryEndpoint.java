@@ -0,0 +1,30 @@
+package study.querydsl.metrics;
+
+import org.springframework.boot.actuate.endpoint.annotation.DeleteOperation;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+//GET /actuator/slowqueries : 최근 느린 쿼리, DELETE : 비우기
+@Component
+@Endpoint(id = "slowqueries")
+public class SlowQueryEndpoint {
+
+    private final SlowQuerySampler sampler;
+
+    public SlowQueryEndpoint(SlowQuerySampler sampler) {
+        this.sampler = sampler;
+    }
+
+    @ReadOperation
+    public List<SlowQuerySample> samples() {
+        return sampler.samples();
+    }
+
+    @DeleteOperation
+    public void clear() {
+        sampler.clear();
+    }
+}
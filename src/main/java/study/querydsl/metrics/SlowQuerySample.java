@@ -0,0 +1,31 @@
+package study.querydsl.metrics;
+
+import lombok.Getter;
+
+import java.time.Instant;
+import java.util.Map;
+
+@Getter
+public class SlowQuerySample {
+
+    private final Instant at;
+    private final String query; //QueryMetrics의 쿼리 이름
+    private final String op;
+    private final double elapsedMillis;
+    private final String caller; //ex) MemberRepositoryImpl.searchPageComplex
+    private final String jpql;
+    private final String sql; //마지막으로 나간 SQL
+    private final Map<String, Object> binds;
+
+    public SlowQuerySample(Instant at, String query, String op, double elapsedMillis, String caller,
+                           String jpql, String sql, Map<String, Object> binds) {
+        this.at = at;
+        this.query = query;
+        this.op = op;
+        this.elapsedMillis = elapsedMillis;
+        this.caller = caller;
+        this.jpql = jpql;
+        this.sql = sql;
+        this.binds = binds;
+    }
+}
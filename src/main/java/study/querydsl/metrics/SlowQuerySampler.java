@@ -0,0 +1,127 @@
+package study.querydsl.metrics;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * threshold보다 오래 걸린 쿼리만 남기는 샘플러 (actuator /actuator/slowqueries)
+ * p6spy처럼 모든 쿼리를 찍지 않는다. 빠른 쿼리는 QueryMetrics에서 시간 비교 한번으로 끝나고
+ * JPQL 직렬화, 바인딩 값, 호출한 repository 메서드(stack trace)는 느린 쿼리일 때만 만든다.
+ * 최근 capacity개만 ring buffer에 들고 있다. 락 없이 sequence 번호로 자리를 정하고 덮어쓴다.
+ */
+@Component
+public class SlowQuerySampler {
+
+    private static final String REDACTED = "****";
+    private static final String METRICS_PACKAGE = SlowQuerySampler.class.getPackage().getName() + ".";
+
+    private final long thresholdNanos;
+    private final boolean redactBinds;
+    private final String callerPackage;
+    private final AtomicReferenceArray<SlowQuerySample> samples;
+    private final AtomicLong sequence = new AtomicLong();
+
+    public SlowQuerySampler(@Value("${querydsl.slow-query.threshold:200ms}") Duration threshold,
+                            @Value("${querydsl.slow-query.capacity:100}") int capacity,
+                            @Value("${querydsl.slow-query.redact-binds:true}") boolean redactBinds,
+                            @Value("${querydsl.slow-query.caller-package:study.querydsl.repository}") String callerPackage) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("capacity는 1 이상이어야 합니다: " + capacity);
+        }
+        this.thresholdNanos = threshold.toNanos();
+        this.redactBinds = redactBinds;
+        this.callerPackage = callerPackage + ".";
+        this.samples = new AtomicReferenceArray<>(capacity);
+    }
+
+    public boolean isSlow(long elapsedNanos) {
+        return elapsedNanos >= thresholdNanos;
+    }
+
+    public void sample(String query, String op, long elapsedNanos, QueryShape shape) {
+        String jpql = null;
+        Map<String, Object> binds = Collections.emptyMap();
+        if (shape != null) {
+            try {
+                jpql = shape.jpql();
+                binds = redact(shape.binds());
+            } catch (RuntimeException e) {
+                //샘플링 때문에 원래 쿼리가 실패하면 안된다.
+                jpql = "(jpql을 만들지 못함: " + e + ")";
+            }
+        }
+        SlowQuerySample sample = new SlowQuerySample(Instant.now(), query, op, elapsedNanos / 1_000_000.0,
+                caller(), jpql, QueryStatementInspector.lastSql(), binds);
+        long seq = sequence.getAndIncrement();
+        samples.set((int) (seq % samples.length()), sample);
+    }
+
+    //최근 것부터
+    public List<SlowQuerySample> samples() {
+        long last = sequence.get();
+        int capacity = samples.length();
+        List<SlowQuerySample> result = new ArrayList<>(capacity);
+        for (long seq = last - 1; seq >= 0 && seq >= last - capacity; seq--) {
+            SlowQuerySample sample = samples.get((int) (seq % capacity));
+            if (sample != null) {
+                result.add(sample);
+            }
+        }
+        return result;
+    }
+
+    public void clear() {
+        for (int i = 0; i < samples.length(); i++) {
+            samples.set(i, null);
+        }
+    }
+
+    private Map<String, Object> redact(Map<String, Object> binds) {
+        if (!redactBinds) {
+            return binds;
+        }
+        Map<String, Object> redacted = new LinkedHashMap<>();
+        binds.forEach((name, value) -> redacted.put(name, value == null ? null : REDACTED));
+        return redacted;
+    }
+
+    /**
+     * callerPackage 프레임이 처음 이어지는 구간에서 가장 바깥(호출한 쪽) 메서드
+     * 람다 본문(lambda$...), 프록시(CGLIB $$)는 건너뛰고, 구간 안의 private 헬퍼보다 그것을 부른 메서드를 고른다.
+     * QueryMetrics.record 처럼 이 패키지(metrics) 프레임은 구간을 끊지 않는다.
+     */
+    private String caller() {
+        StackTraceElement outermost = null;
+        for (StackTraceElement frame : new Throwable().getStackTrace()) {
+            String className = frame.getClassName();
+            if (className.startsWith(METRICS_PACKAGE)) {
+                continue;
+            }
+            if (!className.startsWith(callerPackage)) {
+                if (outermost != null) {
+                    break;
+                }
+                continue;
+            }
+            if (className.contains("$$") || frame.getMethodName().startsWith("lambda$")) {
+                continue;
+            }
+            outermost = frame;
+        }
+        if (outermost == null) {
+            return null;
+        }
+        String className = outermost.getClassName();
+        return className.substring(className.lastIndexOf('.') + 1) + "." + outermost.getMethodName();
+    }
+}
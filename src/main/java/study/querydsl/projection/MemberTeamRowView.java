@@ -0,0 +1,60 @@
+package study.querydsl.projection;
+
+import study.querydsl.dto.MemberTeamDto;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+/**
+ * MemberTeamDto 컬럼(member_id, username, age, team_id, team_name)을 가리키는 재사용 row (flyweight)
+ * row마다 DTO를 만들지 않고 같은 객체에 다음 row 값을 다시 채운다. 숫자는 기본형으로 들고 있는다.
+ * consumer가 값을 그 자리에서 쓰고 버리는 스트리밍용이다. 객체를 모아두면 전부 마지막 row가 된다. -> 모을 때는 toDto()
+ */
+public final class MemberTeamRowView {
+
+    private long memberId;
+    private String username;
+    private int age;
+    private long teamId;
+    private boolean hasTeam;
+    private String teamName;
+
+    //커서가 가리키는 row로 다시 채운다.
+    public void load(ResultSet rs) throws SQLException {
+        memberId = rs.getLong(1);
+        username = rs.getString(2);
+        age = rs.getInt(3);
+        teamId = rs.getLong(4);
+        hasTeam = !rs.wasNull();
+        teamName = rs.getString(5);
+    }
+
+    public long getMemberId() {
+        return memberId;
+    }
+
+    public String getUsername() {
+        return username;
+    }
+
+    public int getAge() {
+        return age;
+    }
+
+    //팀이 없으면 0, hasTeam()으로 확인
+    public long getTeamId() {
+        return teamId;
+    }
+
+    public boolean hasTeam() {
+        return hasTeam;
+    }
+
+    public String getTeamName() {
+        return teamName;
+    }
+
+    public MemberTeamDto toDto() {
+        return new MemberTeamDto(memberId, username, age, hasTeam ? teamId : null, teamName);
+    }
+}
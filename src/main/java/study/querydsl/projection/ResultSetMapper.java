@@ -0,0 +1,197 @@
+package study.querydsl.projection;
+
+import com.querydsl.core.annotations.QueryProjection;
+import org.springframework.asm.ClassWriter;
+import org.springframework.asm.MethodVisitor;
+import org.springframework.asm.Opcodes;
+import org.springframework.asm.Type;
+
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.math.BigDecimal;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * JDBC ResultSet 한 row -> DTO 생성자 호출 (컬럼 순서 = 생성자 파라미터 순서)
+ * DTO마다 아래 메서드 하나짜리 클래스를 바이트코드로 만들어둔다. (spring-core의 asm)
+ *   public Object read(ResultSet rs) { return new MemberTeamDto(getNullableLong(rs, 1), rs.getString(2), rs.getInt(3), ...); }
+ * 손으로 쓴 코드와 같아서 JIT가 getXxx와 생성자를 read 안에 inline 한다.
+ * (MethodHandle을 조합하면 필드에 든 MethodHandle은 상수가 아니라 inline 되지 않고,
+ *  LambdaMetafactory는 메서드/생성자 하나를 직접 가리키는 handle만 받아서 조합한 handle로는 못만든다)
+ * (ConstructorExpression은 row마다 Object[]를 만들고, Projections.bean/fields는 row마다 리플렉션으로 set)
+ *
+ * DTO 클래스마다 한번만 만들고 ClassValue에 캐시한다. @QueryProjection 생성자가 있으면 그것, 없으면 public 생성자가 하나여야 한다.
+ * 파라미터 타입은 String, 기본형(int, long, double, boolean)과 그 wrapper(null 그대로), BigDecimal, Timestamp
+ */
+public final class ResultSetMapper<T> {
+
+    private static final ClassValue<ResultSetMapper<?>> MAPPERS = new ClassValue<ResultSetMapper<?>>() {
+        @Override
+        protected ResultSetMapper<?> computeValue(Class<?> type) {
+            return new ResultSetMapper<>(type);
+        }
+    };
+
+    //파라미터 타입 -> row에서 그 타입을 읽는 메서드 (ResultSet.getXxx(int) 또는 getNullableXxx(ResultSet, int))
+    private static final Map<Class<?>, Method> READERS = new HashMap<>();
+    private static final AtomicInteger SEQUENCE = new AtomicInteger();
+
+    static {
+        try {
+            READERS.put(String.class, ResultSet.class.getMethod("getString", int.class));
+            READERS.put(int.class, ResultSet.class.getMethod("getInt", int.class));
+            READERS.put(long.class, ResultSet.class.getMethod("getLong", int.class));
+            READERS.put(double.class, ResultSet.class.getMethod("getDouble", int.class));
+            READERS.put(boolean.class, ResultSet.class.getMethod("getBoolean", int.class));
+            READERS.put(BigDecimal.class, ResultSet.class.getMethod("getBigDecimal", int.class));
+            READERS.put(Timestamp.class, ResultSet.class.getMethod("getTimestamp", int.class));
+            READERS.put(Integer.class, ResultSetMapper.class.getMethod("getNullableInt", ResultSet.class, int.class));
+            READERS.put(Long.class, ResultSetMapper.class.getMethod("getNullableLong", ResultSet.class, int.class));
+            READERS.put(Double.class, ResultSetMapper.class.getMethod("getNullableDouble", ResultSet.class, int.class));
+            READERS.put(Boolean.class, ResultSetMapper.class.getMethod("getNullableBoolean", ResultSet.class, int.class));
+        } catch (ReflectiveOperationException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+
+    private final Class<T> type;
+    private final int columnCount;
+    private final RowReader reader;
+
+    private ResultSetMapper(Class<T> type) {
+        this.type = type;
+        Constructor<?> constructor = constructor(type);
+        Class<?>[] parameters = constructor.getParameterTypes();
+        for (int i = 0; i < parameters.length; i++) {
+            if (!READERS.containsKey(parameters[i])) {
+                throw new IllegalArgumentException(type.getName() + " 생성자의 " + (i + 1) + "번째 파라미터 타입은 지원하지 않습니다: " + parameters[i].getName());
+            }
+        }
+        this.reader = spin(type, constructor);
+        this.columnCount = parameters.length;
+    }
+
+    @SuppressWarnings("unchecked")
+    public static <T> ResultSetMapper<T> of(Class<T> type) {
+        return (ResultSetMapper<T>) MAPPERS.get(type);
+    }
+
+    public int getColumnCount() {
+        return columnCount;
+    }
+
+    //커서가 가리키는 row 하나, 다음 row로 넘기지 않는다.
+    public T map(ResultSet rs) throws SQLException {
+        return type.cast(reader.read(rs));
+    }
+
+    //만든 클래스가 구현하는 인터페이스, 다른 클래스로더에서 보여야 해서 public
+    public interface RowReader {
+        Object read(ResultSet rs) throws SQLException;
+    }
+
+    //public class X implements RowReader { public Object read(ResultSet rs) { return new T(reader1(rs, 1), reader2(rs, 2), ...); } }
+    private static RowReader spin(Class<?> type, Constructor<?> constructor) {
+        String className = ResultSetMapper.class.getName() + "$$" + type.getSimpleName() + "$" + SEQUENCE.incrementAndGet();
+        ClassWriter cw = new ClassWriter(ClassWriter.COMPUTE_MAXS); //분기가 없어서 stack map frame은 필요 없다.
+        cw.visit(Opcodes.V1_8, Opcodes.ACC_PUBLIC | Opcodes.ACC_FINAL | Opcodes.ACC_SUPER, className.replace('.', '/'), null,
+                Type.getInternalName(Object.class), new String[]{Type.getInternalName(RowReader.class)});
+
+        MethodVisitor init = cw.visitMethod(Opcodes.ACC_PUBLIC, "<init>", "()V", null, null);
+        init.visitCode();
+        init.visitVarInsn(Opcodes.ALOAD, 0);
+        init.visitMethodInsn(Opcodes.INVOKESPECIAL, Type.getInternalName(Object.class), "<init>", "()V", false);
+        init.visitInsn(Opcodes.RETURN);
+        init.visitMaxs(0, 0);
+        init.visitEnd();
+
+        MethodVisitor read = cw.visitMethod(Opcodes.ACC_PUBLIC, "read",
+                Type.getMethodDescriptor(Type.getType(Object.class), Type.getType(ResultSet.class)),
+                null, new String[]{Type.getInternalName(SQLException.class)});
+        read.visitCode();
+        read.visitTypeInsn(Opcodes.NEW, Type.getInternalName(type));
+        read.visitInsn(Opcodes.DUP);
+        Class<?>[] parameters = constructor.getParameterTypes();
+        for (int i = 0; i < parameters.length; i++) {
+            Method reader = READERS.get(parameters[i]);
+            boolean isStatic = Modifier.isStatic(reader.getModifiers());
+            read.visitVarInsn(Opcodes.ALOAD, 1);
+            read.visitLdcInsn(i + 1);
+            read.visitMethodInsn(isStatic ? Opcodes.INVOKESTATIC : Opcodes.INVOKEINTERFACE,
+                    Type.getInternalName(reader.getDeclaringClass()), reader.getName(), Type.getMethodDescriptor(reader), !isStatic);
+        }
+        read.visitMethodInsn(Opcodes.INVOKESPECIAL, Type.getInternalName(type), "<init>", Type.getConstructorDescriptor(constructor), false);
+        read.visitInsn(Opcodes.ARETURN);
+        read.visitMaxs(0, 0);
+        read.visitEnd();
+        cw.visitEnd();
+
+        //DTO의 클래스로더 밑에 둬서 DTO, ResultSet, RowReader가 다 보이게 한다. (public 멤버만 부른다)
+        ClassLoader parent = type.getClassLoader() != null ? type.getClassLoader() : ResultSetMapper.class.getClassLoader();
+        Class<?> readerClass = new GeneratedClassLoader(parent).define(className, cw.toByteArray());
+        try {
+            return (RowReader) readerClass.getConstructor().newInstance();
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException(type.getName() + " reader를 만들 수 없습니다.", e);
+        }
+    }
+
+    private static final class GeneratedClassLoader extends ClassLoader {
+
+        private GeneratedClassLoader(ClassLoader parent) {
+            super(parent);
+        }
+
+        private Class<?> define(String name, byte[] bytes) {
+            return defineClass(name, bytes, 0, bytes.length);
+        }
+    }
+
+    private static Constructor<?> constructor(Class<?> type) {
+        if (!Modifier.isPublic(type.getModifiers())) {
+            throw new IllegalArgumentException("public 클래스여야 합니다: " + type.getName());
+        }
+        Constructor<?> only = null;
+        int publicCount = 0;
+        for (Constructor<?> constructor : type.getConstructors()) {
+            if (constructor.isAnnotationPresent(QueryProjection.class)) {
+                return constructor;
+            }
+            if (constructor.getParameterCount() > 0) {
+                only = constructor;
+                publicCount++;
+            }
+        }
+        if (publicCount != 1) {
+            throw new IllegalArgumentException("@QueryProjection 생성자나 파라미터가 있는 public 생성자 하나가 필요합니다: " + type.getName());
+        }
+        return only;
+    }
+
+    //아래는 만든 클래스(다른 클래스로더)에서 부르기 때문에 public
+    public static Integer getNullableInt(ResultSet rs, int column) throws SQLException {
+        int value = rs.getInt(column);
+        return rs.wasNull() ? null : value;
+    }
+
+    public static Long getNullableLong(ResultSet rs, int column) throws SQLException {
+        long value = rs.getLong(column);
+        return rs.wasNull() ? null : value;
+    }
+
+    public static Double getNullableDouble(ResultSet rs, int column) throws SQLException {
+        double value = rs.getDouble(column);
+        return rs.wasNull() ? null : value;
+    }
+
+    public static Boolean getNullableBoolean(ResultSet rs, int column) throws SQLException {
+        boolean value = rs.getBoolean(column);
+        return rs.wasNull() ? null : value;
+    }
+}
@@ -0,0 +1,97 @@
+package study.querydsl.repository;
+
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.HikariPoolMXBean;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.support.PageableExecutionUtils;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import study.querydsl.dto.MemberCursor;
+import study.querydsl.dto.MemberSearchCondition;
+import study.querydsl.dto.MemberSlice;
+import study.querydsl.dto.MemberTeamDto;
+
+import javax.sql.DataSource;
+import java.sql.SQLException;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.function.Supplier;
+
+/**
+ * MemberRepositoryCustom 검색의 비동기 버전
+ * 쿼리마다 asyncRepositoryExecutor 쓰레드에서 자기 트랜잭션(읽기 전용)과 EntityManager로 돈다.
+ * 그래서 searchPage의 content와 count가 서로 다른 커넥션에서 동시에 나간다.
+ *
+ * 트랜잭션이 따로라 호출한 쪽 트랜잭션에서 아직 커밋 안한 데이터는 안보인다.
+ * 풀(쓰레드, 큐)이 꽉 찼거나 커넥션을 기다리는 쓰레드가 있으면 쌓아두지 않고
+ * RejectedExecutionException으로 실패한 future를 돌려준다.
+ */
+@Repository
+public class MemberAsyncRepository {
+
+    private final MemberRepositoryImpl memberRepositoryImpl;
+    private final Executor executor;
+    private final TransactionTemplate readOnlyTx;
+    private final HikariDataSource connectionPool; //hikari가 아니면 null
+
+    public MemberAsyncRepository(MemberRepositoryImpl memberRepositoryImpl,
+                                 @Qualifier("asyncRepositoryExecutor") Executor executor,
+                                 PlatformTransactionManager transactionManager,
+                                 DataSource dataSource) {
+        this.memberRepositoryImpl = memberRepositoryImpl;
+        this.executor = executor;
+        this.readOnlyTx = new TransactionTemplate(transactionManager);
+        this.readOnlyTx.setReadOnly(true);
+        this.connectionPool = connectionPool(dataSource);
+    }
+
+    public CompletableFuture<List<MemberTeamDto>> search(MemberSearchCondition condition) {
+        return submit(() -> memberRepositoryImpl.search(condition));
+    }
+
+    public CompletableFuture<MemberSlice> searchSlice(MemberSearchCondition condition, MemberCursor cursor, int size) {
+        return submit(() -> memberRepositoryImpl.searchSlice(condition, cursor, size));
+    }
+
+    //content와 count를 같이 시작한다. count가 필요 없는 페이지(마지막 페이지 등)면 결과만 버린다.
+    public CompletableFuture<Page<MemberTeamDto>> searchPage(MemberSearchCondition condition, Pageable pageable) {
+        CompletableFuture<List<MemberTeamDto>> content = submit(() -> memberRepositoryImpl.pageContent(condition, pageable));
+        CompletableFuture<Long> total = submit(() -> memberRepositoryImpl.exactCount(condition));
+        return content.thenCombine(total, (rows, count) -> PageableExecutionUtils.getPage(rows, pageable, () -> count));
+    }
+
+    private <T> CompletableFuture<T> submit(Supplier<T> query) {
+        if (connectionWaiting()) {
+            return rejected(new RejectedExecutionException("DB 커넥션을 기다리는 요청이 있어서 거절합니다."));
+        }
+        try {
+            return CompletableFuture.supplyAsync(() -> readOnlyTx.execute(status -> query.get()), executor);
+        } catch (RejectedExecutionException e) {
+            return rejected(e);
+        }
+    }
+
+    private boolean connectionWaiting() {
+        HikariPoolMXBean pool = connectionPool != null ? connectionPool.getHikariPoolMXBean() : null; //풀이 시작 전이면 null
+        return pool != null && pool.getThreadsAwaitingConnection() > 0;
+    }
+
+    private static <T> CompletableFuture<T> rejected(RejectedExecutionException e) {
+        CompletableFuture<T> future = new CompletableFuture<>();
+        future.completeExceptionally(e);
+        return future;
+    }
+
+    private static HikariDataSource connectionPool(DataSource dataSource) {
+        try {
+            return dataSource.isWrapperFor(HikariDataSource.class) ? dataSource.unwrap(HikariDataSource.class) : null;
+        } catch (SQLException e) {
+            return null;
+        }
+    }
+}
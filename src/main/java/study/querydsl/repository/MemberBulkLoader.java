@@ -0,0 +1,84 @@
+package study.querydsl.repository;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+import study.querydsl.dto.BulkLoadResult;
+import study.querydsl.entity.Member;
+import study.querydsl.entity.Team;
+
+import javax.persistence.EntityManager;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Stream;
+
+/**
+ * member 대량 저장
+ * - id는 시퀀스를 allocationSize(50)씩 받아와서 insert마다 시퀀스를 부르지 않는다.
+ * - hibernate.jdbc.batch_size + order_inserts 로 insert를 batch로 묶어서 보낸다.
+ * - batch_size마다 flush 하고 여기서 저장한 member만 detach 해서 영속성 컨텍스트가 커지지 않게 한다.
+ *   em.clear()는 호출한 쪽 트랜잭션의 다른 entity까지 준영속으로 만들어서 쓰지 않는다. (InitMember처럼 team을 저장하고 부르는 경우)
+ * team은 미리 저장되어 있어야 한다.(member가 참조하는 team은 cascade 되지 않는다)
+ */
+@Slf4j
+@Repository
+public class MemberBulkLoader {
+
+    private static final long REPORT_EVERY = 100_000;
+
+    private final EntityManager em;
+    private final int batchSize;
+
+    public MemberBulkLoader(EntityManager em,
+                            @Value("${spring.jpa.properties.hibernate.jdbc.batch_size:100}") int batchSize) {
+        this.em = em;
+        this.batchSize = batchSize;
+    }
+
+    @Transactional
+    public BulkLoadResult load(Stream<Member> members) {
+        long start = System.nanoTime();
+        long rows = 0;
+        List<Member> persisted = new ArrayList<>(batchSize);
+        Set<Team> teams = new HashSet<>();
+
+        Iterator<Member> iterator = members.iterator();
+        while (iterator.hasNext()) {
+            Member member = iterator.next();
+            em.persist(member);
+            persisted.add(member);
+            if (member.getTeam() != null) {
+                teams.add(member.getTeam());
+            }
+            if (++rows % batchSize == 0) {
+                flushAndDetach(persisted, teams);
+            }
+            if (rows % REPORT_EVERY == 0) {
+                log.info("member bulk load: {} rows, {} rows/sec", rows, (long) new BulkLoadResult(rows, System.nanoTime() - start).getRowsPerSecond());
+            }
+        }
+        flushAndDetach(persisted, teams);
+
+        BulkLoadResult result = new BulkLoadResult(rows, System.nanoTime() - start);
+        log.info("member bulk load finished: {}", result);
+        return result;
+    }
+
+    private void flushAndDetach(List<Member> persisted, Set<Team> teams) {
+        em.flush();
+        for (Member member : persisted) {
+            em.detach(member);
+        }
+        persisted.clear();
+        //new Member(.., team)이 team.members에 자기를 넣기 때문에 그대로 두면 저장한 member가 전부 메모리에 남는다.
+        //members는 연관관계 주인이 아니라서(mappedBy) 비워도 DB에는 영향이 없다.
+        for (Team team : teams) {
+            team.getMembers().clear();
+        }
+        teams.clear();
+    }
+}
@@ -0,0 +1,152 @@
+package study.querydsl.repository;
+
+import com.querydsl.core.types.Predicate;
+import com.querydsl.jpa.impl.JPAQueryFactory;
+import com.querydsl.jpa.impl.JPAUpdateClause;
+import org.hibernate.engine.spi.SessionImplementor;
+import org.hibernate.persister.entity.EntityPersister;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import study.querydsl.dto.BulkMutationResult;
+import study.querydsl.entity.Member;
+import study.querydsl.event.EntityChangedEvent;
+
+import javax.persistence.EntityManager;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+import static study.querydsl.entity.QMember.member;
+import static study.querydsl.entity.QTeam.team;
+
+/**
+ * member 벌크 update/delete
+ * 벌크 연산은 영속성 컨텍스트를 무시하고 DB에 바로 나가기 때문에 em.flush(); em.clear(); 를 직접 해야했다.(QuerydslBasicTest.bulkUpdate)
+ * 여기서는
+ * - 키셋(id > 마지막 id order by id limit chunkSize)으로 조건에 맞는 id를 chunkSize개씩 나눠서 실행한다.
+ *   id 구간으로 나누면 id가 듬성듬성할 때 빈 chunk만 계속 돌게 된다. 트랜잭션 밖에서 부르면 chunk마다 트랜잭션이 따로라 lock을 오래 잡지 않는다.
+ * - 바뀐 member만 영속성 컨텍스트에서 detach하고 2차 캐시에서 evict 한다. (clear로 다 날리지 않음)
+ * - 바뀐 id마다 EntityChangedEvent를 발행해서 count 캐시 같은 곳도 같이 비워진다.
+ * - member_search_view도 바뀐 id만 다시 넣는다. (Hibernate 이벤트가 안오기 때문에)
+ * 조건(where)에는 team도 쓸 수 있다.(member.team과 left join)
+ */
+@Repository
+public class MemberBulkMutator {
+
+    private final EntityManager em;
+    private final JPAQueryFactory queryFactory;
+    private final TransactionTemplate tx;
+    private final ApplicationEventPublisher publisher;
+    private final MemberSearchViewMaintainer searchViewMaintainer;
+    private final int defaultChunkSize;
+
+    public MemberBulkMutator(EntityManager em,
+                             PlatformTransactionManager transactionManager,
+                             ApplicationEventPublisher publisher,
+                             MemberSearchViewMaintainer searchViewMaintainer,
+                             @Value("${querydsl.bulk.chunk-size:1000}") int defaultChunkSize) {
+        this.em = em;
+        this.queryFactory = new JPAQueryFactory(em);
+        this.tx = new TransactionTemplate(transactionManager);
+        this.publisher = publisher;
+        this.searchViewMaintainer = searchViewMaintainer;
+        this.defaultChunkSize = defaultChunkSize;
+    }
+
+    public BulkMutationResult update(Predicate where, Consumer<JPAUpdateClause> assignments) {
+        return update(where, assignments, defaultChunkSize);
+    }
+
+    //ex) update(member.age.lt(28), clause -> clause.set(member.username, "비회원"))
+    public BulkMutationResult update(Predicate where, Consumer<JPAUpdateClause> assignments, int chunkSize) {
+        return execute(where, chunkSize, EntityChangedEvent.Type.UPDATE, ids -> {
+            JPAUpdateClause clause = queryFactory.update(member).where(member.id.in(ids));
+            assignments.accept(clause);
+            return clause.execute();
+        });
+    }
+
+    public BulkMutationResult delete(Predicate where) {
+        return delete(where, defaultChunkSize);
+    }
+
+    public BulkMutationResult delete(Predicate where, int chunkSize) {
+        return execute(where, chunkSize, EntityChangedEvent.Type.DELETE,
+                ids -> queryFactory.delete(member).where(member.id.in(ids)).execute());
+    }
+
+    private BulkMutationResult execute(Predicate where, int chunkSize, EntityChangedEvent.Type type, Function<List<Long>, Long> mutation) {
+        if (chunkSize < 1) {
+            throw new IllegalArgumentException("chunkSize는 1 이상이어야 합니다: " + chunkSize);
+        }
+        //시작할 때의 마지막 id까지만 한다. 도중에 insert된 member까지 쫓아가지 않는다.
+        Long maxId = tx.execute(status -> queryFactory
+                .select(member.id.max())
+                .from(member)
+                .leftJoin(member.team, team)
+                .where(where)
+                .fetchOne());
+        List<Long> chunkCounts = new ArrayList<>();
+        if (maxId == null) {
+            return new BulkMutationResult(chunkCounts);
+        }
+
+        long lastId = Long.MIN_VALUE;
+        while (lastId < maxId) {
+            long after = lastId;
+            //트랜잭션 안에서 부르면 그 트랜잭션에 참여하고, 밖에서 부르면 chunk마다 새 트랜잭션
+            Chunk chunk = tx.execute(status -> mutateChunk(where, after, maxId, chunkSize, type, mutation));
+            if (chunk.ids.isEmpty()) {
+                break;
+            }
+            chunkCounts.add(chunk.count);
+            lastId = chunk.ids.get(chunk.ids.size() - 1);
+        }
+        return new BulkMutationResult(chunkCounts);
+    }
+
+    private Chunk mutateChunk(Predicate where, long after, long maxId, int chunkSize, EntityChangedEvent.Type type, Function<List<Long>, Long> mutation) {
+        List<Long> ids = queryFactory
+                .select(member.id)
+                .from(member)
+                .leftJoin(member.team, team)
+                .where(where, member.id.gt(after), member.id.loe(maxId))
+                .orderBy(member.id.asc())
+                .limit(chunkSize)
+                .fetch();
+        if (ids.isEmpty()) {
+            return new Chunk(ids, 0L);
+        }
+        long count = mutation.apply(ids);
+        evict(ids, type);
+        searchViewMaintainer.refreshMembers(ids); //member_search_view를 쓰면 같은 트랜잭션에서 다시 읽어둔다.
+        return new Chunk(ids, count);
+    }
+
+    private void evict(List<Long> ids, EntityChangedEvent.Type type) {
+        SessionImplementor session = em.unwrap(SessionImplementor.class);
+        EntityPersister persister = session.getFactory().getMetamodel().entityPersister(Member.class);
+        for (Long id : ids) {
+            Object managed = session.getPersistenceContext().getEntity(session.generateEntityKey(id, persister));
+            if (managed != null) {
+                em.detach(managed); //다음 조회에서 DB의 값으로 다시 로딩된다.
+            }
+            em.getEntityManagerFactory().getCache().evict(Member.class, id);
+            publisher.publishEvent(new EntityChangedEvent(type, Member.class, managed, id));
+        }
+    }
+
+    private static class Chunk {
+        private final List<Long> ids;
+        private final long count;
+
+        private Chunk(List<Long> ids, long count) {
+            this.ids = ids;
+            this.count = count;
+        }
+    }
+}
@@ -0,0 +1,85 @@
+package study.querydsl.repository;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import study.querydsl.dto.MemberSearchCondition;
+import study.querydsl.entity.Member;
+import study.querydsl.entity.Team;
+import study.querydsl.event.EntityChangedEvent;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.LongSupplier;
+
+/**
+ * 검색조건별 total count 캐시
+ * member나 team이 바뀌면 어떤 조건의 count가 바뀌는지 알 수 없으니 전부 비운다.
+ * 벌크 연산은 이벤트가 안 오기 때문에 TTL 동안은 틀린 값이 나갈 수 있다.
+ */
+@Component
+public class MemberCountCache {
+
+    private final Map<MemberSearchCondition, Entry> counts = new ConcurrentHashMap<>();
+    private final long ttlNanos;
+    private final int maxEntries;
+
+    public MemberCountCache(@Value("${querydsl.count-cache.ttl:30s}") Duration ttl,
+                            @Value("${querydsl.count-cache.max-entries:10000}") int maxEntries) {
+        this.ttlNanos = ttl.toNanos();
+        this.maxEntries = maxEntries;
+    }
+
+    public long get(MemberSearchCondition condition, LongSupplier counter) {
+        MemberSearchCondition key = condition.normalized();
+        long now = System.nanoTime();
+        Entry entry = counts.get(key);
+        if (entry != null && entry.expiresAt - now > 0) {
+            return entry.count;
+        }
+        long count = counter.getAsLong();
+        if (counts.size() >= maxEntries) {
+            counts.clear();
+        }
+        counts.put(key, new Entry(count, now + ttlNanos));
+        return count;
+    }
+
+    public void invalidateAll() {
+        counts.clear();
+    }
+
+    //flush 때 비워도 커밋 전에 다른 요청이 예전 값으로 count를 다시 채울 수 있어서 트랜잭션이 끝날 때 한번 더 비운다.
+    @EventListener
+    public void onEntityChanged(EntityChangedEvent event) {
+        if (!(event.isOf(Member.class) || event.isOf(Team.class))) {
+            return;
+        }
+        invalidateAll();
+        //벌크 insert면 이벤트가 row마다 오기 때문에 트랜잭션당 한번만 등록한다.
+        if (TransactionSynchronizationManager.isSynchronizationActive()
+                && !TransactionSynchronizationManager.hasResource(this)) {
+            TransactionSynchronizationManager.bindResource(this, Boolean.TRUE);
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    TransactionSynchronizationManager.unbindResourceIfPossible(MemberCountCache.this);
+                    invalidateAll();
+                }
+            });
+        }
+    }
+
+    private static class Entry {
+        private final long count;
+        private final long expiresAt;
+
+        private Entry(long count, long expiresAt) {
+            this.count = count;
+            this.expiresAt = expiresAt;
+        }
+    }
+}
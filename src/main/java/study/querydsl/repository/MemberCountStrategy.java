@@ -0,0 +1,9 @@
+package study.querydsl.repository;
+
+//searchPageComplex에서 total count를 어떻게 구할지
+public enum MemberCountStrategy {
+    EXACT,     //매번 count 쿼리
+    CACHED,    //정규화한 검색조건별로 TTL 동안 캐시, member/team 변경시 무효화
+    ESTIMATED, //조건이 없으면 테이블 통계의 추정치, 조건이 있거나 추정치를 모르는 DB면 EXACT로 넘어간다.
+    DEFERRED   //content 쿼리와 동시에 다른 커넥션에서 count(커밋된 데이터만 보인다), 풀이 꽉 차서 거절되면 content 다음에 EXACT
+}
@@ -0,0 +1,81 @@
+package study.querydsl.repository;
+
+import com.querydsl.sql.SQLQuery;
+import com.querydsl.sql.SQLQueryFactory;
+import com.querydsl.sql.StatementOptions;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+import study.querydsl.dto.MemberSearchCondition;
+import study.querydsl.dto.MemberTeamDto;
+import study.querydsl.projection.MemberTeamRowView;
+import study.querydsl.projection.ResultSetMapper;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.function.Consumer;
+
+import static study.querydsl.sql.SMember.member;
+import static study.querydsl.sql.STeam.team;
+
+/**
+ * 수백만 row 내보내기용 검색 (querydsl-sql, JPA를 거치지 않고 JDBC ResultSet을 바로 읽는다)
+ * where절은 MemberSearchPredicates.searchCondition(MemberSearchPaths.SQL)이라 MemberRepositoryImpl과 같은 조건이다. 순서는 member_id
+ * 목록이 커서 조건을 나누면(MemberSearchChunks) 조각마다 차례로 읽고 순서는 조각 안에서만 member_id (memberIds만 나눴으면 전체가 member_id 순서)
+ * - export : ResultSetMapper로 row마다 MemberTeamDto 생성자만 호출 (Object[], 리플렉션 없음)
+ * - exportRows : MemberTeamRowView 하나를 row마다 다시 채워서 넘긴다. (row마다 객체 생성 없음)
+ * 영속성 컨텍스트에 아무것도 안올라가니 clear할 필요도 없다. 호출한 트랜잭션의 커넥션에서 돈다. (flush 안한 변경은 안보인다)
+ */
+@Repository
+@Transactional(readOnly = true)
+public class MemberExportRepository {
+
+    private final SQLQueryFactory queryFactory;
+    private final MemberNameIndex nameIndex;
+
+    public MemberExportRepository(SQLQueryFactory queryFactory, MemberNameIndex nameIndex) {
+        this.queryFactory = queryFactory;
+        this.nameIndex = nameIndex;
+    }
+
+    public void export(MemberSearchCondition condition, int fetchSize, Consumer<MemberTeamDto> consumer) {
+        ResultSetMapper<MemberTeamDto> mapper = ResultSetMapper.of(MemberTeamDto.class);
+        query(condition, fetchSize, rs -> consumer.accept(mapper.map(rs)));
+    }
+
+    //consumer가 받은 view는 다음 row에서 값이 바뀐다. 모아두려면 toDto()
+    public void exportRows(MemberSearchCondition condition, int fetchSize, Consumer<MemberTeamRowView> consumer) {
+        MemberTeamRowView view = new MemberTeamRowView();
+        query(condition, fetchSize, rs -> {
+            view.load(rs);
+            consumer.accept(view);
+        });
+    }
+
+    //select 순서 = MemberTeamDto 생성자 파라미터 순서 (MemberTeamRowView.load도 같은 순서)
+    private void query(MemberSearchCondition searchCondition, int fetchSize, RowHandler handler) {
+        for (MemberSearchCondition part : MemberSearchChunks.split(nameIndex.resolve(searchCondition))) {
+            queryPart(part, fetchSize, handler);
+        }
+    }
+
+    private void queryPart(MemberSearchCondition condition, int fetchSize, RowHandler handler) {
+        SQLQuery<?> query = MemberSearchPredicates.joinTeam(queryFactory.select(member.memberId, member.username, member.age, team.id, team.name)
+                .from(member), condition.hasTeamCriteria())
+                .where(MemberSearchPredicates.searchCondition(condition, MemberSearchPaths.SQL))
+                .orderBy(member.memberId.asc());
+        query.setStatementOptions(StatementOptions.builder().setFetchSize(fetchSize).build());
+        //getResults()의 ResultSet을 닫으면 statement도 닫힌다.
+        try (ResultSet rs = query.getResults()) {
+            while (rs.next()) {
+                handler.handle(rs);
+            }
+        } catch (SQLException e) {
+            throw queryFactory.getConfiguration().translate(e);
+        }
+    }
+
+    @FunctionalInterface
+    private interface RowHandler {
+        void handle(ResultSet rs) throws SQLException;
+    }
+}
@@ -0,0 +1,79 @@
+package study.querydsl.repository;
+
+import lombok.Getter;
+
+/**
+ * Member를 조회할 때 team을 어떻게 가져올지
+ * LAZY로 두고 루프에서 member.getTeam().getName()을 하면 member 수만큼 쿼리가 나간다. (N+1)
+ *
+ * LAZY         : 지금처럼 프록시, team을 안쓰는 경우
+ * FETCH_JOIN   : join fetch로 한번에 (페이징이 없는 조회에서 제일 싸다)
+ * ENTITY_GRAPH : @NamedEntityGraph("Member.team") fetchgraph 힌트, 쿼리는 그대로 두고 조인만 추가
+ * BATCH        : member를 먼저 읽고 team은 id in (...) 으로 batchSize개씩 모아서 읽는다. (@BatchSize와 같은 방식)
+ *
+ * 읽기만 할 거면 readOnly() / stateless() 를 붙인다. ex) MemberFetchPlan.fetchJoinTeam().readOnly()
+ * MANAGED   : 보통 entity, 로딩할 때 변경감지용 스냅샷을 하나 더 들고 있고 flush 때마다 전부 비교한다.
+ * READ_ONLY : org.hibernate.readOnly 힌트로 스냅샷 없이 영속성 컨텍스트에만 올린다. 값을 바꿔도 update가 안나간다.
+ *             조회 전에 flush(FlushMode.AUTO)도 안한다. (FlushMode.MANUAL 힌트)
+ *             @Transactional(readOnly = true)로 새로 시작한 트랜잭션은 이미 이렇게 되지만, 쓰기 트랜잭션 안에서 부르면 이 힌트가 필요하다.
+ * STATELESS : StatelessSession으로 읽는다. 영속성 컨텍스트에 안올라가서(1차 캐시도 없음) 결과가 커도 메모리가 안 늘어난다.
+ *             대신 lazy 로딩이 안되니 LAZY(team은 id만 쓸 때)나 FETCH_JOIN만 된다.
+ */
+@Getter
+public class MemberFetchPlan {
+
+    public enum Mode {LAZY, FETCH_JOIN, ENTITY_GRAPH, BATCH}
+
+    public enum ReadMode {MANAGED, READ_ONLY, STATELESS}
+
+    public static final String TEAM_GRAPH = "Member.team";
+
+    private static final MemberFetchPlan LAZY = new MemberFetchPlan(Mode.LAZY, null, 0, ReadMode.MANAGED);
+    private static final MemberFetchPlan FETCH_JOIN = new MemberFetchPlan(Mode.FETCH_JOIN, null, 0, ReadMode.MANAGED);
+
+    private final Mode mode;
+    private final String entityGraph;
+    private final int batchSize;
+    private final ReadMode readMode;
+
+    private MemberFetchPlan(Mode mode, String entityGraph, int batchSize, ReadMode readMode) {
+        this.mode = mode;
+        this.entityGraph = entityGraph;
+        this.batchSize = batchSize;
+        this.readMode = readMode;
+    }
+
+    public static MemberFetchPlan lazy() {
+        return LAZY;
+    }
+
+    public static MemberFetchPlan fetchJoinTeam() {
+        return FETCH_JOIN;
+    }
+
+    public static MemberFetchPlan entityGraph(String name) {
+        return new MemberFetchPlan(Mode.ENTITY_GRAPH, name, 0, ReadMode.MANAGED);
+    }
+
+    public static MemberFetchPlan teamGraph() {
+        return entityGraph(TEAM_GRAPH);
+    }
+
+    public static MemberFetchPlan batchTeam(int batchSize) {
+        if (batchSize < 1) {
+            throw new IllegalArgumentException("batchSize는 1 이상이어야 합니다: " + batchSize);
+        }
+        return new MemberFetchPlan(Mode.BATCH, null, batchSize, ReadMode.MANAGED);
+    }
+
+    public MemberFetchPlan readOnly() {
+        return new MemberFetchPlan(mode, entityGraph, batchSize, ReadMode.READ_ONLY);
+    }
+
+    public MemberFetchPlan stateless() {
+        if (mode != Mode.LAZY && mode != Mode.FETCH_JOIN) {
+            throw new IllegalStateException("stateless는 LAZY, FETCH_JOIN만 됩니다: " + mode);
+        }
+        return new MemberFetchPlan(mode, entityGraph, batchSize, ReadMode.STATELESS);
+    }
+}
@@ -1,11 +1,19 @@
 package study.querydsl.repository;
 
+import com.mysema.commons.lang.CloseableIterator;
 import com.querydsl.core.BooleanBuilder;
 import com.querydsl.core.types.Predicate;
-import com.querydsl.core.types.dsl.BooleanExpression;
-import com.querydsl.jpa.impl.JPAQueryFactory;
-
+import com.querydsl.jpa.impl.JPAQuery;
+
+import com.querydsl.jpa.HQLTemplates;
+import com.querydsl.jpa.hibernate.HibernateQuery;
+import com.querydsl.jpa.hibernate.StatelessSessionHolder;
+import org.hibernate.FlushMode;
+import org.hibernate.StatelessSession;
+import org.hibernate.annotations.QueryHints;
+import org.hibernate.engine.spi.SessionImplementor;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 import org.springframework.util.StringUtils;
 import study.querydsl.dto.MemberSearchCondition;
 import study.querydsl.dto.MemberTeamDto;
@@ -14,24 +22,33 @@ import study.querydsl.dto.QMemberTeamDto;
 import study.querydsl.entity.Member;
 import study.querydsl.entity.QMember;
 import study.querydsl.entity.QTeam;
+import study.querydsl.entity.Team;
+import study.querydsl.metrics.InstrumentedJPAQueryFactory;
 
 import java.util.List;
 import javax.persistence.Entity;
 import javax.persistence.EntityManager;
+import javax.persistence.PersistenceUnitUtil;
 import javax.persistence.TypedQuery;
 
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
 import java.util.Optional;
+import java.util.Set;
+import java.util.function.Consumer;
 
 import static org.springframework.util.StringUtils.*;
 import static study.querydsl.entity.QMember.member;
 import static study.querydsl.entity.QTeam.*;
 
 @Repository //데이터를 접근하는 계층
+@Transactional(readOnly = true) //조회는 replica로 (ReplicaRoutingDataSource), 쓰기 메서드만 따로 @Transactional
 public class MemberJpaRepository {
 
     private final EntityManager em;
 
-    private final JPAQueryFactory queryFactory;
+    private final InstrumentedJPAQueryFactory queryFactory;
+    private final MemberNameIndex nameIndex;
     //동시성문제가 생기지 않나? ->
     // @Bean에서 등록한것은 싱글톤인데 같은 객체를 모든 멀티쓰레드에서 다쓰는데 문제가 없을까?
     //없다 왜냐하면 어차피 JPAQueryFactory에 대한 동시성 문제는 EnitityManager에 다의존한다.
@@ -41,18 +58,14 @@ public class MemberJpaRepository {
     //
 
     //Spring bean 생성하는 방법 ,얘는 인젝션을 두개해줘야해서 귀찮고
-//    public MemberJpaRepository(EntityManager em, JPAQueryFactory queryFactory) {
-//        this.em = em;
-//        this.queryFactory = queryFactory;
-//    }
-
-    //테스트 코드짤때 편함 주입받는게 하나이기때문
-    public MemberJpaRepository(EntityManager em) {
+    //-> 쿼리 메트릭(InstrumentedJPAQueryFactory)을 같이 쓰려고 bean을 주입받는다.
+    public MemberJpaRepository(EntityManager em, InstrumentedJPAQueryFactory queryFactory, MemberNameIndex nameIndex) {
         this.em = em;
-        this.queryFactory = new JPAQueryFactory(em);
-
+        this.queryFactory = queryFactory;
+        this.nameIndex = nameIndex;
     }
 
+    @Transactional
     public void save(Member member){
         em.persist(member);
     }
@@ -68,16 +81,88 @@ public class MemberJpaRepository {
 
     }
     public List<Member> findAll_Querydsl(){
-        return queryFactory.selectFrom(member).fetch();
+        return findAll_Querydsl(MemberFetchPlan.lazy());
+    }
+
+    public List<Member> findAll_Querydsl(MemberFetchPlan fetchPlan){
+        return fetch(queryFactory.named("memberJpa.findAll").selectFrom(member), fetchPlan);
     }
 
     public List<Member> findByUsername(String username){
-        return em.createQuery("select m.username from Member m where m.username =:username",Member.class)
+        return em.createQuery("select m from Member m where m.username =:username",Member.class)
                 .setParameter("username",username).getResultList();
     }
     public List<Member> findByUsername_Querydsl(String username){
-        return queryFactory.selectFrom(member).where(member.username.eq(username)).fetch();
+        return findByUsername_Querydsl(username, MemberFetchPlan.lazy());
+    }
+
+    public List<Member> findByUsername_Querydsl(String username, MemberFetchPlan fetchPlan){
+        return fetch(queryFactory.named("memberJpa.findByUsername").selectFrom(member).where(member.username.eq(username)), fetchPlan);
+    }
+
+    //fetchPlan에 따라 team을 같이 가져온다. (MemberFetchPlan 참고)
+    private List<Member> fetch(JPAQuery<Member> query, MemberFetchPlan fetchPlan){
+        if (fetchPlan.getReadMode() == MemberFetchPlan.ReadMode.STATELESS) {
+            return fetchStateless(query, fetchPlan);
+        }
+        readOnlyHints(query, fetchPlan);
+        switch (fetchPlan.getMode()) {
+            case FETCH_JOIN:
+                return query.leftJoin(member.team, team).fetchJoin().fetch();
+            case ENTITY_GRAPH:
+                return query.setHint("javax.persistence.fetchgraph", em.getEntityGraph(fetchPlan.getEntityGraph())).fetch();
+            case BATCH:
+                List<Member> members = query.fetch();
+                loadTeams(members, fetchPlan);
+                return members;
+            default:
+                return query.fetch();
+        }
+    }
+
+    //아직 초기화 안된 team 프록시의 id만 모아서 in 쿼리로 읽어둔다.
+    //같은 영속성 컨텍스트에 올라가 있으니 프록시를 초기화할 때 쿼리가 안나간다.
+    private void loadTeams(List<Member> members, MemberFetchPlan fetchPlan){
+        int batchSize = fetchPlan.getBatchSize();
+        PersistenceUnitUtil util = em.getEntityManagerFactory().getPersistenceUnitUtil();
+        Set<Long> teamIds = new LinkedHashSet<>();
+        for (Member m : members) {
+            Team t = m.getTeam();
+            if (t != null && !util.isLoaded(t)) {
+                teamIds.add((Long) util.getIdentifier(t));
+            }
+        }
+        List<Long> ids = new ArrayList<>(teamIds);
+        for (int from = 0; from < ids.size(); from += batchSize) {
+            JPAQuery<Team> teams = queryFactory.named("memberJpa.loadTeams").selectFrom(team)
+                    .where(team.id.in(ids.subList(from, Math.min(from + batchSize, ids.size()))));
+            readOnlyHints(teams, fetchPlan);
+            teams.fetch();
+        }
+    }
+
+    //스냅샷 없이 로딩, 조회 전 auto flush도 안한다.
+    private static void readOnlyHints(JPAQuery<?> query, MemberFetchPlan fetchPlan){
+        if (fetchPlan.getReadMode() == MemberFetchPlan.ReadMode.READ_ONLY) {
+            query.setHint(QueryHints.READ_ONLY, true)
+                    .setHint(QueryHints.FLUSH_MODE, FlushMode.MANUAL);
+        }
+    }
 
+    //같은 querydsl 쿼리(metadata)를 StatelessSession에서 실행한다.
+    //트랜잭션이 잡고 있는 커넥션을 같이 쓰고, StatelessSession을 닫아도 넘겨준 커넥션은 안닫힌다.
+    private List<Member> fetchStateless(JPAQuery<Member> query, MemberFetchPlan fetchPlan){
+        if (fetchPlan.getMode() == MemberFetchPlan.Mode.FETCH_JOIN) {
+            query.leftJoin(member.team, team).fetchJoin();
+        }
+        SessionImplementor session = em.unwrap(SessionImplementor.class);
+        StatelessSession statelessSession = session.getFactory().openStatelessSession(session.connection());
+        try {
+            return new HibernateQuery<Member>(new StatelessSessionHolder(statelessSession), HQLTemplates.DEFAULT, query.getMetadata())
+                    .fetch();
+        } finally {
+            statelessSession.close();
+        }
     }
 
     public List<MemberTeamDto> searchByBuilder(MemberSearchCondition condition){
@@ -99,7 +184,7 @@ public class MemberJpaRepository {
             builder.and(member.age.loe(condition.getAgeLoe()));
         }
 
-        return queryFactory
+        return queryFactory.named("memberJpa.searchByBuilder")
                 .select(new QMemberTeamDto(
                         member.id.as("memberId")
                         ,member.username
@@ -108,52 +193,52 @@ public class MemberJpaRepository {
                         ,team.name.as("teamName")))
                 .from(member)
                 .join(member.team, team)
+                .where(builder)
                 .fetch();
     }
 
-    public List<MemberTeamDto> search(MemberSearchCondition condition){
+    public List<MemberTeamDto> search(MemberSearchCondition searchCondition){
         //builder를 쓰면 조건문이 들어가기때문에 눈으로 봐야한다.
         //하지만  where절에 하면 쿼리처럼 볼수있다.
         //재사용이 가능하다.
-        return queryFactory.select(new QMemberTeamDto(
+        //목록이 커서 바인딩 파라미터가 너무 많으면 나눠서 가져와 합친다. (MemberSearchChunks)
+        MemberSearchCondition condition = nameIndex.resolve(searchCondition);
+        return MemberSearchChunks.concat(MemberSearchChunks.split(condition), part -> MemberSearchPredicates.joinTeam(queryFactory.named("memberJpa.search").select(new QMemberTeamDto(
                 member.id.as("memberId")
                 ,member.username
                 ,member.age
                 ,team.id.as("teamId")
                 ,team.name.as("teamName")))
-                .from(member)
-                .leftJoin(member.team,team)
-                .where(
-                        usernameEq(condition.getUsername())
-                        ,teamNameEq(condition.getTeamName())
-                        ,ageGoe(condition.getAgeGoe())
-                        ,ageLoe(condition.getAgeLoe())
-                ).fetch();
-    }
-
-    //기본적으로 Predicate가 반환타입으로 나와있는데 이것보단 BooleanExpression이 낫다
-    //BooleanExpression은 조합 할 수 있다.
-    private BooleanExpression usernameEq(String username) {
-        return hasText(username) ?  member.username.eq(username):null;
+                .from(member), part.hasTeamCriteria())
+                .where(MemberSearchPredicates.searchCondition(part))
+                .fetch());
     }
 
-    private BooleanExpression teamNameEq(String teamName) {
-        return hasText(teamName) ?  team.name.eq(teamName) :null;
-    }
-
-    private BooleanExpression ageGoe(Integer ageGoe) {
-        return ageGoe!=null ? member.age.goe(ageGoe):null;
-    }
-
-    private BooleanExpression ageLoe(Integer ageLoe) {
-        return ageLoe!=null ? member.age.goe(ageLoe):null;
-
+    //결과를 List로 모으지 않고 한 row씩 consumer에 넘긴다.
+    //iterate()는 hibernate ScrollableResults(FORWARD_ONLY)라서 fetchSize만큼씩 DB에서 가져온다.
+    //커서가 열려있는 동안 커넥션을 잡고 있어야 하니 트랜잭션 안에서 돈다.
+    //목록이 커서 조건을 나누면(MemberSearchChunks) 조각마다 커서를 하나씩 차례로 연다. 조각끼리 row는 겹치지 않는다.
+    @Transactional(readOnly = true)
+    public void streamSearch(MemberSearchCondition searchCondition, int fetchSize, Consumer<MemberTeamDto> consumer){
+        for (MemberSearchCondition part : MemberSearchChunks.split(nameIndex.resolve(searchCondition))) {
+            try (CloseableIterator<MemberTeamDto> rows = streamQuery(part, fetchSize).iterate()) {
+                while (rows.hasNext()) {
+                    consumer.accept(rows.next());
+                }
+            }
+        }
     }
 
-
-    private BooleanExpression ageBetween(int ageLoe, int ageGoe){
-        return ageGoe(ageGoe).and(ageGoe(ageGoe));
-
+    //streamSearch가 실행하는 쿼리, 테스트에서 fetchSize 힌트를 확인하려고 따로 뺐다.
+    JPAQuery<MemberTeamDto> streamQuery(MemberSearchCondition condition, int fetchSize){
+        return MemberSearchPredicates.joinTeam(queryFactory.named("memberJpa.streamSearch").select(new QMemberTeamDto(
+                member.id.as("memberId")
+                ,member.username
+                ,member.age
+                ,team.id.as("teamId")
+                ,team.name.as("teamName")))
+                .from(member), condition.hasTeamCriteria())
+                .where(MemberSearchPredicates.searchCondition(condition))
+                .setHint(QueryHints.FETCH_SIZE, fetchSize);
     }
-
 }
@@ -0,0 +1,536 @@
+package study.querydsl.repository;
+
+import com.querydsl.core.Tuple;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import study.querydsl.dto.MemberSearchCondition;
+import study.querydsl.entity.Member;
+import study.querydsl.entity.Team;
+import study.querydsl.event.EntityChangedEvent;
+import study.querydsl.metrics.InstrumentedJPAQueryFactory;
+
+import javax.annotation.PreDestroy;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+import static study.querydsl.entity.QMember.member;
+import static study.querydsl.entity.QTeam.team;
+import static study.querydsl.repository.MemberSearchPredicates.IN_CHUNK_SIZE;
+
+/**
+ * Member.username, Team.name 메모리 색인
+ * - usernamePrefix: 소문자 username을 정렬해둔 ConcurrentSkipListMap에서 subMap으로 범위만 읽는다. (대소문자 무시)
+ * - query: username, 팀 이름의 trigram(3글자 조각) 색인으로 오타가 좀 있어도 비슷한 member를 찾는다. (pg_trgm 방식)
+ *   ex) "membr1" -> member1, "teamb" -> teamB의 member들
+ * like '%x%'는 인덱스를 못타서 테이블 전체를 읽기 때문에 여기서 후보 id를 먼저 찾고 DB에는 id in (...)으로 간다.
+ *
+ * 시작할 때 member/team 전체를 한번 읽고, 그 다음부터는 커밋된 EntityChangedEvent의 id만
+ * refresh-interval마다 백그라운드 쓰레드에서 다시 읽는다. (MemberSnapshotEngine과 같은 방식, 벌크 연산 이벤트의 entity는 바뀌기 전 값이라 믿지 않는다)
+ * 검색 요청은 DB 색인 갱신을 기다리지 않고 락도 안잡는다. 아직 반영 안된 커밋은 refresh-interval만큼 늦게 보인다.
+ *
+ * 호출한 트랜잭션에서 바꾼 member/team(커밋 전)은 색인에 없으니 그 id만 호출한 트랜잭션에서 다시 읽어서(overlay)
+ * 색인 결과에서 그 member들을 빼고 다시 읽은 값으로 채운다. 새 트랜잭션은 열지 않는다.
+ * 색인을 아직 못 만들었으면 usernamePrefix는 SQL like로만, query는 overlay에서만 찾는다.
+ */
+@Slf4j
+@Component
+public class MemberNameIndex {
+
+    //후보가 하나도 없을 때 memberIds에 넣는 id, 시퀀스 id는 1부터라 아무 row와도 안맞는다.
+    static final Long NO_MATCH = -1L;
+
+    private final InstrumentedJPAQueryFactory queryFactory;
+    private final TransactionTemplate primaryTx;
+    private final int maxCandidates;
+    private final double similarity;
+    private final Duration refreshInterval;
+
+    //소문자 username -> member id들
+    private final ConcurrentSkipListMap<String, Set<Long>> usernames = new ConcurrentSkipListMap<>();
+    //trigram -> member id들 / team id들
+    private final Map<String, Set<Long>> usernameGrams = new ConcurrentHashMap<>();
+    private final Map<String, Set<Long>> teamGrams = new ConcurrentHashMap<>();
+    private final Map<Long, Set<Long>> teamMembers = new ConcurrentHashMap<>();
+    private final Map<Long, IndexedMember> members = new ConcurrentHashMap<>();
+    private final Map<Long, String> teams = new ConcurrentHashMap<>();
+
+    private final Set<Long> staleMembers = ConcurrentHashMap.newKeySet();
+    private final Set<Long> staleTeams = ConcurrentHashMap.newKeySet();
+    private volatile boolean loaded;
+    private ScheduledExecutorService refresher;
+
+    public MemberNameIndex(InstrumentedJPAQueryFactory queryFactory,
+                           PlatformTransactionManager transactionManager,
+                           @Value("${querydsl.name-index.max-candidates:10000}") int maxCandidates,
+                           @Value("${querydsl.name-index.similarity:0.3}") double similarity,
+                           @Value("${querydsl.name-index.refresh-interval:1s}") Duration refreshInterval) {
+        this.queryFactory = queryFactory;
+        //색인은 모든 요청이 같이 쓰니 replica(늦을 수 있다)가 아니라 primary에서 읽는다. (ReplicaRoutingDataSource)
+        this.primaryTx = new TransactionTemplate(transactionManager);
+        this.maxCandidates = maxCandidates;
+        this.similarity = similarity;
+        this.refreshInterval = refreshInterval;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        refresher = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "member-name-index-refresh");
+            thread.setDaemon(true);
+            return thread;
+        });
+        //처음 읽기도 백그라운드에서, 실패하면 다음 주기에 다시
+        long interval = refreshInterval.toMillis();
+        refresher.scheduleWithFixedDelay(this::refreshQuietly, 0, interval, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (refresher != null) {
+            refresher.shutdownNow();
+        }
+    }
+
+    /**
+     * usernamePrefix, query를 색인에서 찾은 member id(memberIds)로 바꾼 조건
+     * query는 memberIds로 바뀌고 빠진다. usernamePrefix는 반영 안된 커밋 등을 걸러내려고 SQL에서 한번 더 확인하도록 남긴다.
+     * prefix 후보가 maxCandidates보다 많으면 id 목록 없이 SQL like로만 찾는다.
+     */
+    public MemberSearchCondition resolve(MemberSearchCondition condition) {
+        if (!condition.hasIndexCriteria()) {
+            return condition;
+        }
+        MemberSearchCondition resolved = condition.normalized();
+        Overlay overlay = overlay();
+
+        Set<Long> ids = null;
+        if (resolved.getQuery() != null) {
+            ids = new LinkedHashSet<>(similar(resolved.getQuery(), maxCandidates, overlay));
+            resolved.setQuery(null);
+        }
+        if (resolved.getUsernamePrefix() != null) {
+            List<Long> prefixed = prefix(resolved.getUsernamePrefix(), maxCandidates, overlay);
+            if (prefixed != null) {
+                if (ids == null) {
+                    ids = new LinkedHashSet<>(prefixed);
+                } else {
+                    ids.retainAll(new HashSet<>(prefixed));
+                }
+            }
+        }
+        if (ids != null) {
+            if (resolved.getMemberIds() != null) {
+                ids.retainAll(new HashSet<>(resolved.getMemberIds()));
+            }
+            resolved.setMemberIds(ids.isEmpty() ? Collections.singletonList(NO_MATCH) : new ArrayList<>(ids));
+        }
+        return resolved;
+    }
+
+    //prefix로 시작하는 username의 member id, limit보다 많으면 null (색인에 반영된 커밋만 본다)
+    public List<Long> prefix(String prefix, int limit) {
+        return prefix(prefix, limit, Overlay.EMPTY);
+    }
+
+    private List<Long> prefix(String prefix, int limit, Overlay overlay) {
+        if (!loaded) {
+            return null;
+        }
+        String from = prefix.toLowerCase(Locale.ROOT);
+        List<Long> ids = new ArrayList<>();
+        for (Set<Long> matched : usernames.subMap(from, true, from + Character.MAX_VALUE, true).values()) {
+            for (Long id : matched) {
+                if (!overlay.covers(id)) {
+                    ids.add(id);
+                }
+            }
+            if (ids.size() > limit) {
+                return null;
+            }
+        }
+        for (OverlayMember row : overlay.rows.values()) {
+            if (row.username != null && row.username.toLowerCase(Locale.ROOT).startsWith(from)) {
+                ids.add(row.id);
+            }
+        }
+        return ids.size() > limit ? null : ids;
+    }
+
+    //username이나 팀 이름이 query와 비슷한 member id, 비슷한 순서로 최대 limit개 (색인에 반영된 커밋만 본다)
+    public List<Long> similar(String query, int limit) {
+        return similar(query, limit, Overlay.EMPTY);
+    }
+
+    private List<Long> similar(String query, int limit, Overlay overlay) {
+        Set<String> grams = trigrams(query);
+        Map<Long, Double> scores = new HashMap<>();
+        for (Map.Entry<Long, Double> scored : scores(grams, usernameGrams, this::username).entrySet()) {
+            if (!overlay.covers(scored.getKey())) {
+                scores.merge(scored.getKey(), scored.getValue(), Math::max);
+            }
+        }
+        for (Map.Entry<Long, Double> scored : scores(grams, teamGrams, teams::get).entrySet()) {
+            for (Long memberId : teamMembers.getOrDefault(scored.getKey(), Collections.emptySet())) {
+                if (!overlay.covers(memberId)) {
+                    scores.merge(memberId, scored.getValue(), Math::max);
+                }
+            }
+        }
+        for (OverlayMember row : overlay.rows.values()) {
+            for (String name : new String[]{row.username, row.teamName}) {
+                double score = name != null ? score(grams, name) : 0;
+                if (score >= similarity) {
+                    scores.merge(row.id, score, Math::max);
+                }
+            }
+        }
+        List<Map.Entry<Long, Double>> ranked = new ArrayList<>(scores.entrySet());
+        ranked.sort(Map.Entry.<Long, Double>comparingByValue().reversed().thenComparing(Map.Entry.comparingByKey()));
+        List<Long> ids = new ArrayList<>();
+        for (Map.Entry<Long, Double> scored : ranked.subList(0, Math.min(limit, ranked.size()))) {
+            ids.add(scored.getKey());
+        }
+        return ids;
+    }
+
+    //같은 trigram 수 / 전체 trigram 수(합집합)가 similarity 이상인 것
+    private Map<Long, Double> scores(Set<String> grams, Map<String, Set<Long>> postings, Function<Long, String> names) {
+        Map<Long, Integer> shared = new HashMap<>();
+        for (String gram : grams) {
+            for (Long id : postings.getOrDefault(gram, Collections.emptySet())) {
+                shared.merge(id, 1, Integer::sum);
+            }
+        }
+        Map<Long, Double> scores = new HashMap<>();
+        for (Map.Entry<Long, Integer> entry : shared.entrySet()) {
+            String name = names.apply(entry.getKey());
+            if (name == null) { //읽는 중에 지워진 것
+                continue;
+            }
+            int union = grams.size() + trigrams(name).size() - entry.getValue();
+            double score = (double) entry.getValue() / union;
+            if (score >= similarity) {
+                scores.put(entry.getKey(), score);
+            }
+        }
+        return scores;
+    }
+
+    private static double score(Set<String> grams, String name) {
+        Set<String> nameGrams = trigrams(name);
+        int shared = 0;
+        for (String gram : grams) {
+            if (nameGrams.contains(gram)) {
+                shared++;
+            }
+        }
+        return (double) shared / (grams.size() + nameGrams.size() - shared);
+    }
+
+    private String username(Long id) {
+        IndexedMember indexed = members.get(id);
+        return indexed != null ? indexed.username : null;
+    }
+
+    //"  member1 " 처럼 앞에 공백 2개, 뒤에 1개를 붙여서 자른다. 단어 시작이 더 많이 겹치도록
+    static Set<String> trigrams(String value) {
+        String padded = "  " + value.toLowerCase(Locale.ROOT) + " ";
+        Set<String> grams = new HashSet<>();
+        for (int i = 0; i + 3 <= padded.length(); i++) {
+            grams.add(padded.substring(i, i + 3));
+        }
+        return grams;
+    }
+
+    //트랜잭션 안이면 커밋된 다음에만 표시한다. 그 전까지는 그 트랜잭션의 검색이 overlay로 본다.
+    //색인을 만들기 전이라도 표시한다. loadAll이 읽는 중에 커밋된 변경을 놓치지 않으려고
+    @EventListener
+    public void onEntityChanged(EntityChangedEvent event) {
+        if (event.getId() == null) {
+            return;
+        }
+        boolean isMember = event.isOf(Member.class);
+        if (!isMember && !event.isOf(Team.class)) {
+            return;
+        }
+        Long id = (Long) event.getId();
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            (isMember ? staleMembers : staleTeams).add(id);
+            return;
+        }
+        TouchedIds touched = (TouchedIds) TransactionSynchronizationManager.getResource(this);
+        if (touched == null) {
+            TouchedIds registered = new TouchedIds();
+            TransactionSynchronizationManager.bindResource(this, registered);
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    TransactionSynchronizationManager.unbindResourceIfPossible(MemberNameIndex.this);
+                    if (status == STATUS_COMMITTED) {
+                        staleMembers.addAll(registered.members);
+                        staleTeams.addAll(registered.teams);
+                    }
+                }
+            });
+            touched = registered;
+        }
+        (isMember ? touched.members : touched.teams).add(id);
+    }
+
+    //호출한 트랜잭션에서 바꾼 member와 바꾼 팀의 member를 그 트랜잭션에서 읽는다. (flush한 값까지 보인다)
+    private Overlay overlay() {
+        TouchedIds touched = (TouchedIds) TransactionSynchronizationManager.getResource(this);
+        if (touched == null) {
+            return Overlay.EMPTY;
+        }
+        Overlay overlay = new Overlay(touched.members);
+        List<Long> memberIds = new ArrayList<>(touched.members);
+        for (int from = 0; from < memberIds.size(); from += IN_CHUNK_SIZE) {
+            overlay.addAll(queryFactory.named("memberIndex.overlayMembers").select(member.id, member.username, team.name)
+                    .from(member)
+                    .leftJoin(member.team, team)
+                    .where(member.id.in(memberIds.subList(from, Math.min(from + IN_CHUNK_SIZE, memberIds.size()))))
+                    .fetch());
+        }
+        List<Long> teamIds = new ArrayList<>(touched.teams);
+        for (int from = 0; from < teamIds.size(); from += IN_CHUNK_SIZE) {
+            List<Long> chunk = teamIds.subList(from, Math.min(from + IN_CHUNK_SIZE, teamIds.size()));
+            //색인에 남은 예전 팀 이름으로 찾지 않도록 그 팀 member도 덮는다.
+            for (Long teamId : chunk) {
+                overlay.covered.addAll(teamMembers.getOrDefault(teamId, Collections.emptySet()));
+            }
+            overlay.addAll(queryFactory.named("memberIndex.overlayTeams").select(member.id, member.username, team.name)
+                    .from(member)
+                    .join(member.team, team)
+                    .where(team.id.in(chunk))
+                    .fetch());
+        }
+        return overlay;
+    }
+
+    //커밋된 변경을 지금 반영한다. (백그라운드 refresh를 기다리지 않는다) 백그라운드 쓰레드와 한번에 하나씩
+    public synchronized void refreshNow() {
+        if (!loaded) {
+            primaryTx.executeWithoutResult(status -> loadAll());
+            return;
+        }
+        List<Long> teamIds = drain(staleTeams);
+        List<Long> memberIds = drain(staleMembers);
+        if (teamIds.isEmpty() && memberIds.isEmpty()) {
+            return;
+        }
+        try {
+            primaryTx.executeWithoutResult(status -> {
+                refreshTeams(teamIds);
+                refreshMembers(memberIds);
+            });
+        } catch (RuntimeException e) {
+            //다음 refresh에서 다시
+            staleTeams.addAll(teamIds);
+            staleMembers.addAll(memberIds);
+            throw e;
+        }
+    }
+
+    private void refreshQuietly() {
+        try {
+            refreshNow();
+        } catch (RuntimeException e) {
+            log.warn("member name index refresh failed", e);
+        }
+    }
+
+    private void refreshTeams(List<Long> teamIds) {
+        for (int from = 0; from < teamIds.size(); from += IN_CHUNK_SIZE) {
+            List<Long> chunk = teamIds.subList(from, Math.min(from + IN_CHUNK_SIZE, teamIds.size()));
+            Set<Long> missing = new HashSet<>(chunk);
+            for (Tuple row : queryFactory.named("memberIndex.refreshTeams").select(team.id, team.name)
+                    .from(team)
+                    .where(team.id.in(chunk))
+                    .fetch()) {
+                putTeam(row.get(team.id), row.get(team.name));
+                missing.remove(row.get(team.id));
+            }
+            missing.forEach(this::removeTeam);
+        }
+    }
+
+    private void refreshMembers(List<Long> memberIds) {
+        for (int from = 0; from < memberIds.size(); from += IN_CHUNK_SIZE) {
+            List<Long> chunk = memberIds.subList(from, Math.min(from + IN_CHUNK_SIZE, memberIds.size()));
+            Set<Long> missing = new HashSet<>(chunk);
+            for (Tuple row : queryFactory.named("memberIndex.refreshMembers").select(member.id, member.username, team.id)
+                    .from(member)
+                    .leftJoin(member.team, team)
+                    .where(member.id.in(chunk))
+                    .fetch()) {
+                putMember(row.get(member.id), row.get(member.username), row.get(team.id));
+                missing.remove(row.get(member.id));
+            }
+            missing.forEach(this::removeMember);
+        }
+    }
+
+    //SELECT 전에 비운다. 읽는 중에 바뀐 id는 다시 쌓여서 다음 refresh에서 읽는다.
+    private void loadAll() {
+        staleMembers.clear();
+        staleTeams.clear();
+        for (Tuple row : queryFactory.named("memberIndex.loadTeams").select(team.id, team.name).from(team).fetch()) {
+            putTeam(row.get(team.id), row.get(team.name));
+        }
+        for (Tuple row : queryFactory.named("memberIndex.loadMembers").select(member.id, member.username, team.id)
+                .from(member)
+                .leftJoin(member.team, team)
+                .fetch()) {
+            putMember(row.get(member.id), row.get(member.username), row.get(team.id));
+        }
+        loaded = true;
+        log.info("member name index loaded: {} members", members.size());
+    }
+
+    private static List<Long> drain(Set<Long> stale) {
+        List<Long> ids = new ArrayList<>(stale);
+        stale.removeAll(ids);
+        return ids;
+    }
+
+    private void putMember(Long id, String username, Long teamId) {
+        removeMember(id);
+        if (username != null) {
+            add(usernames, username.toLowerCase(Locale.ROOT), id);
+            for (String gram : trigrams(username)) {
+                add(usernameGrams, gram, id);
+            }
+        }
+        if (teamId != null) {
+            add(teamMembers, teamId, id);
+        }
+        members.put(id, new IndexedMember(username, teamId));
+    }
+
+    private void removeMember(Long id) {
+        IndexedMember removed = members.remove(id);
+        if (removed == null) {
+            return;
+        }
+        if (removed.username != null) {
+            remove(usernames, removed.username.toLowerCase(Locale.ROOT), id);
+            for (String gram : trigrams(removed.username)) {
+                remove(usernameGrams, gram, id);
+            }
+        }
+        if (removed.teamId != null) {
+            remove(teamMembers, removed.teamId, id);
+        }
+    }
+
+    private void putTeam(Long id, String name) {
+        removeTeam(id);
+        if (name == null) {
+            return;
+        }
+        for (String gram : trigrams(name)) {
+            add(teamGrams, gram, id);
+        }
+        teams.put(id, name);
+    }
+
+    //팀이 지워져도 teamMembers는 member 쪽 refresh에서 정리된다.
+    private void removeTeam(Long id) {
+        String removed = teams.remove(id);
+        if (removed == null) {
+            return;
+        }
+        for (String gram : trigrams(removed)) {
+            remove(teamGrams, gram, id);
+        }
+    }
+
+    private static <K> void add(Map<K, Set<Long>> postings, K key, Long id) {
+        postings.computeIfAbsent(key, k -> ConcurrentHashMap.newKeySet()).add(id);
+    }
+
+    private static <K> void remove(Map<K, Set<Long>> postings, K key, Long id) {
+        postings.computeIfPresent(key, (k, ids) -> {
+            ids.remove(id);
+            return ids.isEmpty() ? null : ids;
+        });
+    }
+
+    public int size() {
+        return members.size();
+    }
+
+    private static class IndexedMember {
+        private final String username;
+        private final Long teamId;
+
+        private IndexedMember(String username, Long teamId) {
+            this.username = username;
+            this.teamId = teamId;
+        }
+    }
+
+    private static class TouchedIds {
+        private final Set<Long> members = new HashSet<>();
+        private final Set<Long> teams = new HashSet<>();
+    }
+
+    //호출한 트랜잭션에서 다시 읽은 member들, covered에 있는 id는 색인 값을 쓰지 않는다.
+    private static class Overlay {
+        private static final Overlay EMPTY = new Overlay(Collections.emptySet());
+
+        private final Set<Long> covered;
+        private final Map<Long, OverlayMember> rows = new LinkedHashMap<>();
+
+        private Overlay(Set<Long> touchedMembers) {
+            this.covered = new HashSet<>(touchedMembers);
+        }
+
+        private void addAll(List<Tuple> fetched) {
+            for (Tuple row : fetched) {
+                Long id = row.get(member.id);
+                covered.add(id);
+                rows.put(id, new OverlayMember(id, row.get(member.username), row.get(team.name)));
+            }
+        }
+
+        private boolean covers(Long id) {
+            return covered.contains(id);
+        }
+    }
+
+    private static class OverlayMember {
+        private final Long id;
+        private final String username;
+        private final String teamName;
+
+        private OverlayMember(Long id, String username, String teamName) {
+            this.id = id;
+            this.username = username;
+            this.teamName = teamName;
+        }
+    }
+}
@@ -1,6 +1,8 @@
 package study.querydsl.repository;
 
+import study.querydsl.dto.MemberCursor;
 import study.querydsl.dto.MemberSearchCondition;
+import study.querydsl.dto.MemberSlice;
 import study.querydsl.dto.MemberTeamDto;
 
 import org.springframework.data.domain.Page;
@@ -11,5 +13,11 @@ public interface MemberRepositoryCustom {
     List<MemberTeamDto> search(MemberSearchCondition condition);
     Page<MemberTeamDto> searchPageSimple(MemberSearchCondition condition, Pageable pageable);
     Page<MemberTeamDto> searchPageComplex(MemberSearchCondition condition, Pageable pageable);
+    //total count를 구하는 방법을 고를 수 있다. 위의 메서드는 EXACT
+    Page<MemberTeamDto> searchPageComplex(MemberSearchCondition condition, Pageable pageable, MemberCountStrategy countStrategy);
+    //offset 대신 마지막으로 본 키 기준으로 다음 페이지를 가져온다.
+    MemberSlice searchSlice(MemberSearchCondition condition, MemberCursor cursor, int size);
+    //조건 여러 개를 쿼리 하나(100개씩)로 검색한다. 결과는 조건 순서대로
+    List<List<MemberTeamDto>> searchBatch(List<MemberSearchCondition> conditions);
 
 }
@@ -1,34 +1,86 @@
 package study.querydsl.repository;
 
-import com.querydsl.core.QueryResults;
+import com.querydsl.core.types.ExpressionUtils;
+import com.querydsl.core.types.OrderSpecifier;
+import com.querydsl.core.types.Predicate;
 import com.querydsl.core.types.dsl.BooleanExpression;
 import com.querydsl.jpa.impl.JPAQuery;
-import com.querydsl.jpa.impl.JPAQueryFactory;
+import org.hibernate.Session;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.data.domain.PageImpl;
 import org.springframework.data.support.PageableExecutionUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+import study.querydsl.dto.MemberCursor;
 import study.querydsl.dto.MemberSearchCondition;
+import study.querydsl.dto.MemberSlice;
 import study.querydsl.dto.MemberTeamDto;
 import study.querydsl.dto.QMemberTeamDto;
+import study.querydsl.metrics.InstrumentedJPAQueryFactory;
+import study.querydsl.metrics.QueryMetrics;
 
 import javax.persistence.EntityManager;
+import javax.persistence.TypedQuery;
 
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
-import study.querydsl.entity.Member;
 
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
 
-import static org.springframework.util.StringUtils.hasText;
+import static study.querydsl.repository.MemberSearchPredicates.joinTeam;
+import static study.querydsl.repository.MemberSearchPredicates.usernameIn;
 import static study.querydsl.entity.QMember.member;
 import static study.querydsl.entity.QTeam.team;
 
 // 꼭 impl이라는 이름으로 만들어야한다.
+@Transactional(readOnly = true) //전부 조회라 replica로 간다. (ReplicaRoutingDataSource)
 public class MemberRepositoryImpl implements MemberRepositoryCustom{
 
-    private final JPAQueryFactory queryFactory;
+    static final int MAX_BATCH_CONDITIONS = 1000;
+    static final int CONDITIONS_PER_QUERY = 100;
 
-    public MemberRepositoryImpl(EntityManager em) {
-        this.queryFactory = new JPAQueryFactory(em);
+    private final EntityManager em;
+    private final InstrumentedJPAQueryFactory queryFactory;
+    private final QueryMetrics queryMetrics;
+    private final MemberSearchTemplates templates;
+    private final MemberCountCache countCache;
+    private final MemberSearchCache searchCache;
+    private final MemberNameIndex nameIndex;
+    private final MemberSearchViewRepository searchView;
+    private final Executor queryExecutor;
+    private final TransactionTemplate readOnlyTx;
+    private volatile String databaseProductName;
+
+    public MemberRepositoryImpl(EntityManager em,
+                                InstrumentedJPAQueryFactory queryFactory,
+                                QueryMetrics queryMetrics,
+                                MemberSearchTemplates templates,
+                                MemberCountCache countCache,
+                                MemberSearchCache searchCache,
+                                MemberNameIndex nameIndex,
+                                MemberSearchViewRepository searchView,
+                                @Qualifier("repositoryQueryExecutor") Executor queryExecutor,
+                                PlatformTransactionManager transactionManager) {
+        this.em = em;
+        this.queryFactory = queryFactory;
+        this.queryMetrics = queryMetrics;
+        this.templates = templates;
+        this.countCache = countCache;
+        this.searchCache = searchCache;
+        this.nameIndex = nameIndex;
+        this.searchView = searchView;
+        this.queryExecutor = queryExecutor;
+        this.readOnlyTx = new TransactionTemplate(transactionManager);
+        this.readOnlyTx.setReadOnly(true);
     }
 
     @Override
@@ -36,67 +88,154 @@ public class MemberRepositoryImpl implements MemberRepositoryCustom{
         //builder를 쓰면 조건문이 들어가기때문에 눈으로 봐야한다.
         //하지만  where절에 하면 쿼리처럼 볼수있다.
         //재사용이 가능하다.
-        return queryFactory.select(new QMemberTeamDto(
-                member.id.as("memberId")
-                ,member.username
-                ,member.age
-                ,team.id.as("teamId")
-                ,team.name.as("teamName")))
-                .from(member)
-                .leftJoin(member.team,team)
-                .where(
-                        usernameEq(condition.getUsername())
-                        ,teamNameEq(condition.getTeamName())
-                        ,ageGoe(condition.getAgeGoe())
-                        ,ageLoe(condition.getAgeLoe())
-                ).fetch();
+        //-> 조건 4개의 조합은 16가지 뿐이라 미리 만들어둔 JPQL에 파라미터만 바인딩한다. (MemberSearchTemplates)
+        //-> 자주 나오는 검색은 결과 자체를 캐시할 수 있다. (MemberSearchCache, 기본은 꺼져있음)
+        //-> 목록 조건(usernames 등)이 있으면 in 목록 크기마다 쿼리가 달라서 querydsl로 만든다.
+        //-> usernamePrefix, query는 메모리 색인에서 찾은 member id로 바꿔서 같은 projection으로 가져온다.
+        //-> member_search_view를 켜면 조인 없이 거기서 읽는다. (querydsl.search-view.enabled)
+        //-> 목록이 커서 바인딩 파라미터가 너무 많으면 조건을 나눠서 여러번 가져와 합친다. (MemberSearchChunks)
+        return searchCache.get(condition, () -> {
+            MemberSearchCondition resolved = nameIndex.resolve(condition);
+            if (searchView.isEnabled()) {
+                return searchView.search(resolved);
+            }
+            return templates.supports(resolved)
+                    ? queryMetrics.record("member.search", "fetch", templates.contentQuery(em, resolved), TypedQuery::getResultList)
+                    : MemberSearchChunks.concat(MemberSearchChunks.split(resolved),
+                            part -> searchQuery("member.searchIn", part).fetch());
+        });
     }
 
-    //기본적으로 Predicate가 반환타입으로 나와있는데 이것보단 BooleanExpression이 낫다
-    //BooleanExpression은 조합 할 수 있다.
-    private BooleanExpression usernameEq(String username) {
-        return hasText(username) ?  member.username.eq(username):null;
+    @Override
+    public List<List<MemberTeamDto>> searchBatch(List<MemberSearchCondition> conditions) {
+        if (conditions.size() > MAX_BATCH_CONDITIONS) {
+            throw new IllegalArgumentException("한번에 검색할 수 있는 조건은 " + MAX_BATCH_CONDITIONS + "개까지입니다: " + conditions.size());
+        }
+        //목록이 큰 조건은 나눈 조각(서로 겹치지 않는다)마다 따로 넣고 결과는 원래 조건 자리로 모은다.
+        List<MemberSearchCondition> parts = new ArrayList<>();
+        List<Integer> owners = new ArrayList<>();
+        List<List<MemberTeamDto>> results = new ArrayList<>(conditions.size());
+        for (int i = 0; i < conditions.size(); i++) {
+            for (MemberSearchCondition part : MemberSearchChunks.split(nameIndex.resolve(conditions.get(i)).normalized())) {
+                parts.add(part);
+                owners.add(i);
+            }
+            results.add(new ArrayList<>());
+        }
+        //조건 최대 CONDITIONS_PER_QUERY개, 바인딩 파라미터 MAX_BINDS_PER_STATEMENT개까지를 쿼리 하나로 합쳐서 가져오고
+        //row마다 어느 조건에 맞는지 다시 나눈다.
+        int from = 0;
+        while (from < parts.size()) {
+            int to = groupEnd(parts, from);
+            List<MemberSearchCondition> group = parts.subList(from, to);
+            boolean teamRequired = group.stream().allMatch(MemberSearchCondition::hasTeamCriteria);
+            List<MemberTeamDto> rows = searchQuery("member.searchBatch", mergedPredicate(group), teamRequired).fetch();
+            for (MemberTeamDto row : rows) {
+                for (int i = 0; i < group.size(); i++) {
+                    if (group.get(i).matches(row)) {
+                        results.get(owners.get(from + i)).add(row);
+                    }
+                }
+            }
+            from = to;
+        }
+        return results;
     }
 
-    private BooleanExpression teamNameEq(String teamName) {
-        return hasText(teamName) ?  team.name.eq(teamName) :null;
+    //from부터 mergedPredicate 하나에 넣을 수 있는 데까지 (조각 하나는 split에서 이미 한도 안쪽)
+    private static int groupEnd(List<MemberSearchCondition> parts, int from) {
+        Set<String> usernames = new HashSet<>();
+        int otherBinds = 0;
+        int to = from;
+        while (to < parts.size() && to - from < CONDITIONS_PER_QUERY) {
+            MemberSearchCondition part = parts.get(to);
+            int binds;
+            if (isUsernameOnly(part)) {
+                Set<String> merged = new HashSet<>(usernames);
+                addUsernames(merged, part);
+                binds = otherBinds + MemberSearchChunks.inBinds(merged.size());
+                if (to > from && binds + MemberSearchChunks.RESERVED_BINDS > MemberSearchChunks.MAX_BINDS_PER_STATEMENT) {
+                    break;
+                }
+                usernames = merged;
+            } else {
+                binds = otherBinds + MemberSearchChunks.binds(part) + MemberSearchChunks.inBinds(usernames.size());
+                if (to > from && binds + MemberSearchChunks.RESERVED_BINDS > MemberSearchChunks.MAX_BINDS_PER_STATEMENT) {
+                    break;
+                }
+                otherBinds += MemberSearchChunks.binds(part);
+            }
+            to++;
+        }
+        return to;
     }
 
-    private BooleanExpression ageGoe(Integer ageGoe) {
-        return ageGoe!=null ? member.age.goe(ageGoe):null;
+    //username(s)만 있는 조건(가장 흔한 사용)은 모아서 in 하나로, 나머지는 조건별 and를 or로 묶는다.
+    //조건이 하나면 그대로 (합치면 in 목록의 padding이 달라져서 split에서 센 파라미터 수를 넘을 수 있다)
+    private Predicate mergedPredicate(List<MemberSearchCondition> group) {
+        if (group.size() == 1) {
+            return searchPredicate(group.get(0));
+        }
+        Set<String> usernames = new LinkedHashSet<>();
+        List<Predicate> predicates = new ArrayList<>();
+        for (MemberSearchCondition condition : group) {
+            if (isUsernameOnly(condition)) {
+                addUsernames(usernames, condition);
+                continue;
+            }
+            Predicate predicate = searchPredicate(condition);
+            if (predicate == null) {
+                return null; //조건이 없는 검색이 하나라도 있으면 전체를 가져와야 한다.
+            }
+            predicates.add(predicate);
+        }
+        predicates.add(usernameIn(usernames));
+        return ExpressionUtils.anyOf(predicates);
     }
 
-    private BooleanExpression ageLoe(Integer ageLoe) {
-        return ageLoe!=null ? member.age.goe(ageLoe):null;
-
+    private static void addUsernames(Set<String> usernames, MemberSearchCondition condition) {
+        if (condition.getUsername() != null) {
+            usernames.add(condition.getUsername());
+        }
+        if (condition.getUsernames() != null) {
+            usernames.addAll(condition.getUsernames());
+        }
     }
 
-
-    private BooleanExpression ageBetween(int ageLoe, int ageGoe){
-        return ageGoe(ageGoe).and(ageGoe(ageGoe));
-
+    //normalized된 조건
+    private static boolean isUsernameOnly(MemberSearchCondition condition) {
+        return (condition.getUsername() != null || condition.getUsernames() != null)
+                && condition.getTeamName() == null && condition.getAgeGoe() == null && condition.getAgeLoe() == null
+                && condition.getTeamNames() == null && condition.getMemberIds() == null
+                && condition.getUsernamePrefix() == null;
     }
 
-    @Override
-    public Page<MemberTeamDto> searchPageSimple(MemberSearchCondition condition, Pageable pageable) {
-        QueryResults<MemberTeamDto> results = queryFactory.select(new QMemberTeamDto(
+    //teamRequired: 모든 조건에 팀 조건이 있으면 inner join (MemberSearchPredicates.joinTeam)
+    private JPAQuery<MemberTeamDto> searchQuery(String name, Predicate where, boolean teamRequired) {
+        return joinTeam(queryFactory.named(name).select(new QMemberTeamDto(
                 member.id.as("memberId")
                 , member.username
                 , member.age
                 , team.id.as("teamId")
                 , team.name.as("teamName")))
-                .from(member)
-                .leftJoin(member.team, team)
-                .where(
-                        usernameEq(condition.getUsername())
-                        , teamNameEq(condition.getTeamName())
-                        , ageGoe(condition.getAgeGoe())
-                        , ageLoe(condition.getAgeLoe())
-                ).offset(pageable.getOffset()) //몇번부터 시작할거야
-                .limit(pageable.getPageSize())
-                .fetchResults();//content용 쿼리 count용쿼리 2번날림
-        List<MemberTeamDto> content = results.getResults();
-        long total = results.getTotal();
+                .from(member), teamRequired)
+                .where(where);
+    }
+
+    private JPAQuery<MemberTeamDto> searchQuery(String name, MemberSearchCondition condition) {
+        return searchQuery(name, searchPredicate(condition), condition.hasTeamCriteria());
+    }
+
+    //querydsl 검색 조건, 조건이 하나도 없으면 null
+    //MemberSearchViewRepository, MemberSearchRepository(querydsl-sql)와 같은 조건을 쓰도록 MemberSearchPredicates에서 만든다.
+    private Predicate searchPredicate(MemberSearchCondition condition) {
+        return MemberSearchPredicates.searchCondition(condition);
+    }
+
+    @Override
+    public Page<MemberTeamDto> searchPageSimple(MemberSearchCondition condition, Pageable pageable) {
+        List<MemberTeamDto> content = content("member.searchPageSimple", condition, pageable);
+        long total = exactCount(condition);//content용 쿼리 count용쿼리 2번날림
 
         return new PageImpl<>(content,pageable,total);
 
@@ -104,38 +243,191 @@ public class MemberRepositoryImpl implements MemberRepositoryCustom{
 
     @Override
     public Page<MemberTeamDto> searchPageComplex(MemberSearchCondition condition, Pageable pageable) {
+        return searchPageComplex(condition, pageable, MemberCountStrategy.EXACT);
+    }
 
-        List<MemberTeamDto> content = queryFactory.select(new QMemberTeamDto(
-                member.id.as("memberId")
-                , member.username
-                , member.age
-                , team.id.as("teamId")
-                , team.name.as("teamName")))
-                .from(member)
-                .leftJoin(member.team, team)
-                .where(
-                        usernameEq(condition.getUsername())
-                        , teamNameEq(condition.getTeamName())
-                        , ageGoe(condition.getAgeGoe())
-                        , ageLoe(condition.getAgeLoe())
-                ).offset(pageable.getOffset()) //몇번부터 시작할거야
-                .limit(pageable.getPageSize())
-                .fetch();//content용 쿼리 count용쿼리 2번날림
-
-        JPAQuery<Member> countQuery = queryFactory.select(member)
-                .from(member)
-                .leftJoin(member.team, team)
-                .where(
-                        usernameEq(condition.getUsername())
-                        , teamNameEq(condition.getTeamName())
-                        , ageGoe(condition.getAgeGoe())
-                        , ageLoe(condition.getAgeLoe())
-                );
-
-        return PageableExecutionUtils.getPage(content,pageable,()-> countQuery.fetchCount());
+    @Override
+    public Page<MemberTeamDto> searchPageComplex(MemberSearchCondition condition, Pageable pageable, MemberCountStrategy countStrategy) {
+        //DEFERRED면 content 쿼리를 날리기 전에 count를 다른 쓰레드(다른 커넥션)에서 먼저 시작한다.
+        CompletableFuture<Long> deferredCount = countStrategy == MemberCountStrategy.DEFERRED
+                ? startDeferredCount(condition)
+                : null;
+
+        List<MemberTeamDto> content = content("member.searchPageComplex", condition, pageable);
+
+        Page<MemberTeamDto> page = PageableExecutionUtils.getPage(content,pageable,()-> count(condition, countStrategy, deferredCount));
         //이렇게 하면 함수이기때문에 구문이 실행이안되고 getPage에서 conten와 pageable을 보고 페이지의 시작이면서  content사이즈가 page사이즈보다 작거나 마지막 사이즈면 countQuery를 getPage안에서 호출 안한다.
         //return PagableExceutionUtils.get
 
+        //count가 필요 없었으면 아직 시작 안한 deferred count는 취소
+        if (deferredCount != null) {
+            deferredCount.cancel(false);
+        }
+        return page;
         //return new PageImpl<>(content,pageable,total);
     }
+
+    private long count(MemberSearchCondition condition, MemberCountStrategy countStrategy, CompletableFuture<Long> deferredCount) {
+        switch (countStrategy) {
+            case CACHED:
+                return countCache.get(condition, () -> exactCount(condition));
+            case ESTIMATED:
+                return estimatedCount(condition);
+            case DEFERRED:
+                return deferredCount != null ? deferredCount.join() : exactCount(condition);
+            default:
+                return exactCount(condition);
+        }
+    }
+
+    //MemberAsyncRepository에서 content와 count를 따로 돌릴 때 쓴다.
+    List<MemberTeamDto> pageContent(MemberSearchCondition condition, Pageable pageable) {
+        return content("member.pageContent", condition, pageable);
+    }
+
+    private List<MemberTeamDto> content(String name, MemberSearchCondition searchCondition, Pageable pageable) {
+        MemberSearchCondition condition = nameIndex.resolve(searchCondition);
+        if (searchView.isEnabled()) {
+            return searchView.content(condition, pageable);
+        }
+        if (!templates.supports(condition)) {
+            List<MemberSearchCondition> parts = MemberSearchChunks.split(condition);
+            if (parts.size() == 1) {
+                return searchQuery(name, condition)
+                        .offset(pageable.getOffset())
+                        .limit(pageable.getPageSize())
+                        .fetch();
+            }
+            //나눠서 가져오면 조각마다 member id 순서로 앞에서부터 읽어서 합친다.
+            return MemberSearchChunks.page(parts, pageable, Comparator.comparing(MemberTeamDto::getMemberId),
+                    (part, limit) -> searchQuery(name, part)
+                            .orderBy(member.id.asc())
+                            .limit(limit)
+                            .fetch());
+        }
+        return queryMetrics.record(name, "fetch", templates.contentQuery(em, condition)
+                .setFirstResult(Math.toIntExact(pageable.getOffset())) //몇번부터 시작할거야
+                .setMaxResults(pageable.getPageSize()), TypedQuery::getResultList);
+    }
+
+    //entity 전체가 아니라 count(member.id)만 select
+    //팀 조건이 없으면 조인하지 않는다. (left join은 member 수를 바꾸지 않는다) 있으면 inner join
+    long exactCount(MemberSearchCondition searchCondition) {
+        MemberSearchCondition condition = nameIndex.resolve(searchCondition);
+        if (searchView.isEnabled()) {
+            return searchView.count(condition);
+        }
+        if (!templates.supports(condition)) {
+            return MemberSearchChunks.sum(MemberSearchChunks.split(condition), part -> {
+                JPAQuery<Long> count = queryFactory.named("member.countIn").select(member.id.count()).from(member);
+                if (part.hasTeamCriteria()) {
+                    count.join(member.team, team);
+                }
+                return count.where(searchPredicate(part)).fetchOne();
+            });
+        }
+        return queryMetrics.record("member.count", "fetchOne", templates.countQuery(em, condition), TypedQuery::getSingleResult);
+    }
+
+    /**
+     * 조건이 없을 때만 테이블 통계의 row 추정치를 쓴다. 통계 쿼리는 DB마다 다르다. (MemberRowEstimates)
+     * 아래 경우는 추정치를 쓸 수 없어서 조용히 정확한 count로 넘어간다. (결과는 EXACT와 같고 count 쿼리 비용도 같다)
+     * - 조건이 하나라도 있으면 : 테이블 통계로는 조건에 맞는 row 수를 알 수 없다.
+     * - 추정치 쿼리가 없는 DB거나 통계가 아직 없으면 (ex. PostgreSQL ANALYZE 전)
+     */
+    private long estimatedCount(MemberSearchCondition condition) {
+        if (!condition.normalized().equals(new MemberSearchCondition())) {
+            return exactCount(condition);
+        }
+        String sql = MemberRowEstimates.sql(databaseProductName());
+        if (sql == null) {
+            return exactCount(condition);
+        }
+        List<?> estimate = em.createNativeQuery(sql).getResultList();
+        if (estimate.isEmpty() || estimate.get(0) == null || ((Number) estimate.get(0)).longValue() < 0) {
+            return exactCount(condition);
+        }
+        return ((Number) estimate.get(0)).longValue();
+    }
+
+    //지금 트랜잭션의 커넥션에서 한번만 읽어둔다. (primary와 replica는 같은 DB)
+    private String databaseProductName() {
+        String productName = databaseProductName;
+        if (productName == null) {
+            productName = em.unwrap(Session.class).doReturningWork(connection -> connection.getMetaData().getDatabaseProductName());
+            databaseProductName = productName;
+        }
+        return productName;
+    }
+
+    //count는 별도 쓰레드의 읽기 전용 트랜잭션에서 돈다. 그래서 커밋된 데이터만 센다. (replica가 있으면 replica에서)
+    private CompletableFuture<Long> startDeferredCount(MemberSearchCondition condition) {
+        try {
+            return CompletableFuture.supplyAsync(() -> readOnlyTx.execute(status -> exactCount(condition)), queryExecutor);
+        } catch (RejectedExecutionException e) {
+            return null; //풀이 꽉 찼으면 content 다음에 그냥 count
+        }
+    }
+
+    @Override
+    public MemberSlice searchSlice(MemberSearchCondition searchCondition, MemberCursor cursor, int size) {
+        if (size < 1) {
+            throw new IllegalArgumentException("size는 1 이상이어야 합니다: " + size);
+        }
+        MemberSearchCondition condition = nameIndex.resolve(searchCondition);
+        //offset은 앞의 row를 다 읽고 버리기 때문에 뒤 페이지로 갈수록 느려진다.
+        //마지막으로 본 키보다 큰 것부터 읽으면 몇번째 페이지든 인덱스에서 바로 시작한다.
+        //조건을 나눴으면 조각마다 size + 1개씩 읽어서 같은 순서로 합친다.
+        List<MemberTeamDto> content = MemberSearchChunks.concat(MemberSearchChunks.split(condition),
+                part -> joinTeam(queryFactory.named("member.searchSlice").select(new QMemberTeamDto(
+                        member.id.as("memberId")
+                        , member.username
+                        , member.age
+                        , team.id.as("teamId")
+                        , team.name.as("teamName")))
+                        .from(member), part.hasTeamCriteria())
+                        .where(
+                                searchPredicate(part)
+                                , seek(cursor)
+                        ).orderBy(seekOrder(cursor))
+                        .limit(size + 1) //다음 페이지가 있는지 알기 위해 하나 더 가져온다.
+                        .fetch());
+        content.sort(seekComparator(cursor));
+        if (content.size() > size + 1) {
+            content = content.subList(0, size + 1);
+        }
+
+        if (content.size() <= size) {
+            return new MemberSlice(content, null);
+        }
+        List<MemberTeamDto> page = content.subList(0, size);
+        MemberTeamDto last = page.get(size - 1);
+        return new MemberSlice(page, MemberCursor.after(last, cursor.isAgeOrder()).encode());
+    }
+
+    private BooleanExpression seek(MemberCursor cursor) {
+        if (cursor.isFirst()) {
+            return null;
+        }
+        if (!cursor.isAgeOrder()) {
+            return member.id.gt(cursor.getMemberId());
+        }
+        // (age, id) > (:age, :id)
+        return member.age.gt(cursor.getAge())
+                .or(member.age.eq(cursor.getAge()).and(member.id.gt(cursor.getMemberId())));
+    }
+
+    //seekOrder와 같은 순서
+    private static Comparator<MemberTeamDto> seekComparator(MemberCursor cursor) {
+        Comparator<MemberTeamDto> byId = Comparator.comparing(MemberTeamDto::getMemberId);
+        return cursor.isAgeOrder()
+                ? Comparator.comparingInt(MemberTeamDto::getAge).thenComparing(byId)
+                : byId;
+    }
+
+    private OrderSpecifier<?>[] seekOrder(MemberCursor cursor) {
+        return cursor.isAgeOrder()
+                ? new OrderSpecifier<?>[]{member.age.asc(), member.id.asc()}
+                : new OrderSpecifier<?>[]{member.id.asc()};
+    }
 }
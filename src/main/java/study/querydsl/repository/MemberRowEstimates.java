@@ -0,0 +1,35 @@
+package study.querydsl.repository;
+
+import java.util.Locale;
+
+/**
+ * member 테이블 row 수 추정치를 읽는 DB별 통계 쿼리 (MemberCountStrategy.ESTIMATED)
+ * 통계는 DB가 주기적으로 갱신하기 때문에 실제 row 수와 다를 수 있다. 대신 테이블을 읽지 않는다.
+ * - H2 : information_schema.tables.row_count_estimate
+ * - PostgreSQL : pg_class.reltuples (ANALYZE 전이면 -1 -> 모른다)
+ * - MySQL/MariaDB : information_schema.tables.table_rows (InnoDB는 샘플링한 값)
+ * 그 외 DB는 추정치를 모르니 정확한 count를 한다.
+ */
+final class MemberRowEstimates {
+
+    private MemberRowEstimates() {
+    }
+
+    //DatabaseMetaData.getDatabaseProductName()으로 고른다. 모르는 DB면 null
+    static String sql(String databaseProductName) {
+        String product = databaseProductName == null ? "" : databaseProductName.toLowerCase(Locale.ROOT);
+        if (product.startsWith("h2")) {
+            return "select row_count_estimate from information_schema.tables" +
+                    " where table_schema = schema() and table_name = 'MEMBER'";
+        }
+        if (product.startsWith("postgresql")) {
+            return "select cast(reltuples as bigint) from pg_class" +
+                    " where oid = to_regclass('member')";
+        }
+        if (product.startsWith("mysql") || product.startsWith("mariadb")) {
+            return "select table_rows from information_schema.tables" +
+                    " where table_schema = database() and table_name = 'member'";
+        }
+        return null;
+    }
+}
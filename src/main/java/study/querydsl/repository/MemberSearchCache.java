@@ -0,0 +1,86 @@
+package study.querydsl.repository;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import study.querydsl.dto.MemberSearchCondition;
+import study.querydsl.dto.MemberTeamDto;
+import study.querydsl.entity.Member;
+import study.querydsl.entity.Team;
+import study.querydsl.event.EntityChangedEvent;
+
+import java.time.Duration;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.Supplier;
+
+/**
+ * search() 결과 캐시 (querydsl.search-cache.enabled=true 일 때만)
+ * key는 normalized()한 검색조건, 크기 제한(LRU 비슷한 W-TinyLFU)과 TTL로 evict 된다.
+ * hit/miss는 cache.gets{cache=memberSearch} 메트릭으로 나간다.
+ * 캐시된 리스트는 여러 요청이 같이 쓰기 때문에 수정하면 안된다. (unmodifiableList로 돌려준다)
+ */
+@Component
+public class MemberSearchCache {
+
+    static final String CACHE_NAME = "memberSearch";
+
+    private final boolean enabled;
+    private final Cache<MemberSearchCondition, List<MemberTeamDto>> results;
+
+    public MemberSearchCache(@Value("${querydsl.search-cache.enabled:false}") boolean enabled,
+                             @Value("${querydsl.search-cache.ttl:30s}") Duration ttl,
+                             @Value("${querydsl.search-cache.max-entries:1000}") long maxEntries,
+                             MeterRegistry meterRegistry) {
+        this.enabled = enabled;
+        this.results = Caffeine.newBuilder()
+                .maximumSize(maxEntries)
+                .expireAfterWrite(ttl)
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, results, CACHE_NAME);
+    }
+
+    public List<MemberTeamDto> get(MemberSearchCondition condition, Supplier<List<MemberTeamDto>> loader) {
+        if (!enabled) {
+            return loader.get();
+        }
+        return results.get(condition.normalized(), key -> Collections.unmodifiableList(loader.get()));
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void invalidateAll() {
+        results.invalidateAll();
+    }
+
+    //flush 시점에 한번 비우고, 커밋(롤백) 후에 한번 더 비운다.
+    //flush ~ 커밋 사이에 다른 쓰레드가 커밋 전 데이터로 다시 채워넣은 것을 지우기 위해서
+    @EventListener
+    public void onEntityChanged(EntityChangedEvent event) {
+        if (!enabled || !(event.isOf(Member.class) || event.isOf(Team.class))) {
+            return;
+        }
+        invalidateAll();
+        //벌크 insert면 이벤트가 row마다 오기 때문에 트랜잭션당 한번만 등록한다.
+        if (TransactionSynchronizationManager.isSynchronizationActive()
+                && !TransactionSynchronizationManager.hasResource(this)) {
+            TransactionSynchronizationManager.bindResource(this, Boolean.TRUE);
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    TransactionSynchronizationManager.unbindResourceIfPossible(MemberSearchCache.this);
+                    invalidateAll();
+                }
+            });
+        }
+    }
+}
@@ -0,0 +1,137 @@
+package study.querydsl.repository;
+
+import org.springframework.data.domain.Pageable;
+import study.querydsl.dto.MemberSearchCondition;
+import study.querydsl.dto.MemberTeamDto;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+import java.util.function.ToLongFunction;
+
+import static org.springframework.util.StringUtils.hasText;
+
+/**
+ * 목록 조건(usernames, teamNames, memberIds)이 커서 SQL 하나의 바인딩 파라미터가 MAX_BINDS_PER_STATEMENT개를 넘으면
+ * 조건을 여러개로 나눠서 쿼리를 조각마다 보내고 결과는 여기서 합친다. (in을 or로 이어붙여도 statement 하나의 파라미터 수는 그대로라서)
+ * 목록마다 겹치지 않게 나누고 그 조합을 만들기 때문에 나눈 조건들의 결과 row는 서로 겹치지 않는다.
+ * hibernate in_clause_parameter_padding이 in 목록을 2의 거듭제곱 개로 채우기 때문에 조각 크기도 2의 거듭제곱
+ * ex) memberIds 10000개 -> 512개씩 20번
+ */
+final class MemberSearchChunks {
+
+    //oracle in 목록 1000개, sql server 파라미터 2100개
+    static final int MAX_BINDS_PER_STATEMENT = 1000;
+    //조건 말고 같이 붙는 파라미터 (limit/offset, searchSlice의 seek 등)
+    static final int RESERVED_BINDS = 8;
+
+    private MemberSearchChunks() {
+    }
+
+    //바인딩 파라미터가 MAX_BINDS_PER_STATEMENT개 안에 들어가는 조건들, 나눌 필요가 없으면 condition 그대로 하나
+    static List<MemberSearchCondition> split(MemberSearchCondition condition) {
+        if (binds(condition) + RESERVED_BINDS <= MAX_BINDS_PER_STATEMENT) {
+            return Collections.singletonList(condition);
+        }
+        MemberSearchCondition normalized = condition.normalized();
+        int lists = (normalized.getUsernames() != null ? 1 : 0)
+                + (normalized.getTeamNames() != null ? 1 : 0)
+                + (normalized.getMemberIds() != null ? 1 : 0);
+        int chunkSize = Integer.highestOneBit((MAX_BINDS_PER_STATEMENT - RESERVED_BINDS - scalarBinds(normalized)) / lists);
+        List<MemberSearchCondition> parts = Collections.singletonList(normalized);
+        parts = product(parts, normalized.getUsernames(), chunkSize, MemberSearchCondition::setUsernames);
+        parts = product(parts, normalized.getTeamNames(), chunkSize, MemberSearchCondition::setTeamNames);
+        parts = product(parts, normalized.getMemberIds(), chunkSize, MemberSearchCondition::setMemberIds);
+        return parts;
+    }
+
+    //조건 하나가 만드는 바인딩 파라미터 수 (in 목록은 padding 후 크기)
+    static int binds(MemberSearchCondition condition) {
+        return scalarBinds(condition)
+                + inBinds(distinct(condition.getUsernames()))
+                + inBinds(distinct(condition.getTeamNames()))
+                + inBinds(distinct(condition.getMemberIds()));
+    }
+
+    //값 n개짜리 in 목록의 바인딩 파라미터 수, 1개는 eq라 padding이 없다.
+    static int inBinds(int values) {
+        return values <= 1 ? values : Integer.highestOneBit(values - 1) << 1;
+    }
+
+    //나눈 조건마다 가져온 결과를 이어붙인다. 조각끼리 row가 겹치지 않지만 같은 member가 두번 나오지 않도록 한번 더 거른다.
+    static List<MemberTeamDto> concat(List<MemberSearchCondition> parts, Function<MemberSearchCondition, List<MemberTeamDto>> fetch) {
+        if (parts.size() == 1) {
+            return fetch.apply(parts.get(0));
+        }
+        Map<Long, MemberTeamDto> rows = new LinkedHashMap<>();
+        for (MemberSearchCondition part : parts) {
+            for (MemberTeamDto row : fetch.apply(part)) {
+                rows.putIfAbsent(row.getMemberId(), row);
+            }
+        }
+        return new ArrayList<>(rows.values());
+    }
+
+    /**
+     * 나눈 조건들의 한 페이지, fetchFirst(조건, n)는 order 순서로 앞에서 n개를 가져온다.
+     * 조각마다 offset + pageSize개를 가져와서 order로 합친 다음 자른다. (뒤 페이지로 갈수록 조각마다 많이 읽는다)
+     */
+    static List<MemberTeamDto> page(List<MemberSearchCondition> parts, Pageable pageable, Comparator<MemberTeamDto> order,
+                                    PartFetcher fetchFirst) {
+        long offset = pageable.getOffset();
+        long limit = offset + pageable.getPageSize();
+        List<MemberTeamDto> merged = concat(parts, part -> fetchFirst.fetch(part, limit));
+        merged.sort(order);
+        if (offset >= merged.size()) {
+            return new ArrayList<>();
+        }
+        return new ArrayList<>(merged.subList((int) offset, (int) Math.min(limit, merged.size())));
+    }
+
+    static long sum(List<MemberSearchCondition> parts, ToLongFunction<MemberSearchCondition> count) {
+        long total = 0;
+        for (MemberSearchCondition part : parts) {
+            total += count.applyAsLong(part);
+        }
+        return total;
+    }
+
+    @FunctionalInterface
+    interface PartFetcher {
+        List<MemberTeamDto> fetch(MemberSearchCondition part, long limit);
+    }
+
+    private static int scalarBinds(MemberSearchCondition condition) {
+        return (hasText(condition.getUsername()) ? 1 : 0)
+                + (hasText(condition.getTeamName()) ? 1 : 0)
+                + (condition.getAgeGoe() != null ? 1 : 0)
+                + (condition.getAgeLoe() != null ? 1 : 0)
+                + (hasText(condition.getUsernamePrefix()) ? 1 : 0);
+    }
+
+    private static int distinct(List<?> values) {
+        return values == null ? 0 : (int) values.stream().distinct().count();
+    }
+
+    //parts마다 values를 chunkSize개씩 나눈 조각을 하나씩 넣은 복사본
+    private static <T> List<MemberSearchCondition> product(List<MemberSearchCondition> parts, List<T> values, int chunkSize,
+                                                           BiConsumer<MemberSearchCondition, List<T>> setter) {
+        if (values == null || values.size() <= chunkSize) {
+            return parts;
+        }
+        List<MemberSearchCondition> product = new ArrayList<>();
+        for (MemberSearchCondition part : parts) {
+            for (int from = 0; from < values.size(); from += chunkSize) {
+                MemberSearchCondition chunk = part.normalized();
+                setter.accept(chunk, new ArrayList<>(values.subList(from, Math.min(from + chunkSize, values.size()))));
+                product.add(chunk);
+            }
+        }
+        return product;
+    }
+}
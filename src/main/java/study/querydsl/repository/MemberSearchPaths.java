@@ -0,0 +1,39 @@
+package study.querydsl.repository;
+
+import com.querydsl.core.types.dsl.NumberPath;
+import com.querydsl.core.types.dsl.StringPath;
+import study.querydsl.sql.SMember;
+import study.querydsl.sql.STeam;
+
+import static study.querydsl.entity.QMember.member;
+import static study.querydsl.entity.QMemberSearchView.memberSearchView;
+import static study.querydsl.entity.QTeam.team;
+
+/**
+ * MemberSearchCondition 조건이 걸리는 컬럼 5개, 검색하는 곳마다 경로만 다르다. (usernameLower는 usernamePrefix용 DB 계산 컬럼)
+ * MemberSearchPredicates.searchCondition(condition, paths)가 이걸로 where절을 만들어서
+ * JPA(member left join team), member_search_view, querydsl-sql(MemberSearchRepository)이 같은 조건이 된다.
+ */
+final class MemberSearchPaths {
+
+    static final MemberSearchPaths JPA = new MemberSearchPaths(member.id, member.username, member.usernameLower, member.age, team.name);
+    static final MemberSearchPaths VIEW = new MemberSearchPaths(memberSearchView.memberId, memberSearchView.username, memberSearchView.usernameLower,
+            memberSearchView.age, memberSearchView.teamName);
+    static final MemberSearchPaths SQL = new MemberSearchPaths(SMember.member.memberId, SMember.member.username, SMember.member.usernameLower,
+            SMember.member.age, STeam.team.name);
+
+    final NumberPath<Long> memberId;
+    final StringPath username;
+    final StringPath usernameLower;
+    final NumberPath<Integer> age;
+    final StringPath teamName;
+
+    private MemberSearchPaths(NumberPath<Long> memberId, StringPath username, StringPath usernameLower,
+                              NumberPath<Integer> age, StringPath teamName) {
+        this.memberId = memberId;
+        this.username = username;
+        this.usernameLower = usernameLower;
+        this.age = age;
+        this.teamName = teamName;
+    }
+}
@@ -0,0 +1,116 @@
+package study.querydsl.repository;
+
+import com.querydsl.core.types.Expression;
+import com.querydsl.core.types.ExpressionUtils;
+import com.querydsl.core.types.Predicate;
+import com.querydsl.core.types.dsl.BooleanExpression;
+import com.querydsl.core.types.dsl.Expressions;
+import com.querydsl.core.types.dsl.SimpleExpression;
+import com.querydsl.jpa.impl.JPAQuery;
+import com.querydsl.sql.SQLQuery;
+import study.querydsl.dto.MemberSearchCondition;
+import study.querydsl.sql.SMember;
+import study.querydsl.sql.STeam;
+
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.ArrayList;
+
+import static org.springframework.util.StringUtils.hasText;
+import static study.querydsl.entity.QMember.member;
+import static study.querydsl.entity.QTeam.team;
+import static study.querydsl.repository.MemberSearchChunks.MAX_BINDS_PER_STATEMENT;
+
+/**
+ * MemberSearchCondition의 목록 조건(usernames, teamNames, memberIds)을 in 조건으로
+ * DB마다 in 목록 크기 제한(oracle 1000개)과 statement 하나의 바인딩 파라미터 제한이 있어서
+ * in 목록이 MAX_BINDS_PER_STATEMENT개를 넘으면 만들지 않는다. 큰 목록은 MemberSearchChunks.split으로 조건을 먼저 나눠서 쿼리를 여러번 보낸다.
+ * searchCondition은 전체 검색조건, JPA(member left join team)면 MemberRepositoryImpl.searchPredicate와 같다. (MemberSearchPaths)
+ */
+final class MemberSearchPredicates {
+
+    //id로 다시 읽을 때 in 하나에 넣는 개수, padding(2의 거듭제곱) 후에도 MAX_BINDS_PER_STATEMENT 안쪽
+    static final int IN_CHUNK_SIZE = 512;
+
+    private MemberSearchPredicates() {
+    }
+
+    //색인 조건은 MemberNameIndex.resolve 한 조건, 조건이 하나도 없으면 null
+    static Predicate searchCondition(MemberSearchCondition condition) {
+        return searchCondition(condition, MemberSearchPaths.JPA);
+    }
+
+    //같은 조건을 다른 테이블/쿼리 타입의 컬럼에 (member_search_view, querydsl-sql)
+    static Predicate searchCondition(MemberSearchCondition condition, MemberSearchPaths paths) {
+        return ExpressionUtils.allOf(
+                scalarCondition(paths
+                        , hasText(condition.getUsername()) ? Expressions.constant(condition.getUsername()) : null
+                        , hasText(condition.getTeamName()) ? Expressions.constant(condition.getTeamName()) : null
+                        , condition.getAgeGoe() != null ? Expressions.constant(condition.getAgeGoe()) : null
+                        , condition.getAgeLoe() != null ? Expressions.constant(condition.getAgeLoe()) : null)
+                , in(paths.username, condition.getUsernames())
+                , in(paths.teamName, condition.getTeamNames())
+                , in(paths.memberId, condition.getMemberIds())
+                , hasText(condition.getUsernamePrefix()) ? startsWith(paths, condition.getUsernamePrefix()) : null);
+    }
+
+    //값 조건 4개, 값 대신 Param을 넣으면 MemberSearchTemplates가 캐시하는 JPQL이 된다. null인 조건은 빠진다.
+    static Predicate scalarCondition(MemberSearchPaths paths, Expression<String> username, Expression<String> teamName,
+                                     Expression<Integer> ageGoe, Expression<Integer> ageLoe) {
+        return ExpressionUtils.allOf(
+                username != null ? paths.username.eq(username) : null
+                , teamName != null ? paths.teamName.eq(teamName) : null
+                , ageGoe != null ? paths.age.goe(ageGoe) : null
+                , ageLoe != null ? paths.age.loe(ageLoe) : null);
+    }
+
+    //팀 조건(teamName, teamNames)이 있으면 팀 없는 member는 where에서 어차피 빠지니 inner join
+    //-> team.name 인덱스에서 시작해서 idx_member_team_age로 member를 찾을 수 있다. left join이면 member부터 읽는다.
+    //팀 조건이 없으면 팀 없는 member도 나와야 하니 left join
+    static <T> JPAQuery<T> joinTeam(JPAQuery<T> query, boolean teamRequired) {
+        return teamRequired ? query.join(member.team, team) : query.leftJoin(member.team, team);
+    }
+
+    //querydsl-sql(MemberSearchPaths.SQL) 버전
+    static <T> SQLQuery<T> joinTeam(SQLQuery<T> query, boolean teamRequired) {
+        return teamRequired
+                ? query.join(STeam.team).on(STeam.team.id.eq(SMember.member.teamId))
+                : query.leftJoin(STeam.team).on(STeam.team.id.eq(SMember.member.teamId));
+    }
+
+    static BooleanExpression usernameIn(Collection<String> usernames) {
+        return in(member.username, usernames);
+    }
+
+    static BooleanExpression teamNameIn(Collection<String> teamNames) {
+        return in(team.name, teamNames);
+    }
+
+    static BooleanExpression memberIdIn(Collection<Long> memberIds) {
+        return in(member.id, memberIds);
+    }
+
+    //색인에서 찾은 후보를 커밋된 값으로 한번 더 확인한다. (memberIds와 같이 쓰면 PK로 찾은 row만 비교)
+    static BooleanExpression usernameStartsWith(String prefix) {
+        return prefix != null ? startsWith(MemberSearchPaths.JPA, prefix) : null;
+    }
+
+    //대소문자 무시 prefix, lower(username) like ?가 아니라 소문자 컬럼에 username_lower like 'al%' (인덱스 범위 검색)
+    private static BooleanExpression startsWith(MemberSearchPaths paths, String prefix) {
+        return paths.usernameLower.startsWith(prefix.toLowerCase(Locale.ROOT));
+    }
+
+    //padding 후 크기가 MAX_BINDS_PER_STATEMENT를 넘는 목록은 MemberSearchChunks.split을 거치지 않은 것
+    static <T> BooleanExpression in(SimpleExpression<T> path, Collection<T> values) {
+        if (values == null || values.isEmpty()) {
+            return null;
+        }
+        List<T> distinct = new ArrayList<>(new LinkedHashSet<>(values));
+        if (MemberSearchChunks.inBinds(distinct.size()) > MAX_BINDS_PER_STATEMENT) {
+            throw new IllegalArgumentException("in 목록이 너무 큽니다. MemberSearchChunks.split으로 나눠야 합니다: " + distinct.size());
+        }
+        return path.in(distinct);
+    }
+}
@@ -0,0 +1,107 @@
+package study.querydsl.repository;
+
+import com.querydsl.sql.SQLQuery;
+import com.querydsl.sql.SQLQueryFactory;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.support.PageableExecutionUtils;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+import study.querydsl.dto.MemberSearchCondition;
+import study.querydsl.dto.MemberTeamDto;
+import study.querydsl.metrics.QueryMetrics;
+import study.querydsl.projection.ResultSetMapper;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+import static study.querydsl.sql.SMember.member;
+import static study.querydsl.sql.STeam.team;
+
+/**
+ * 자주 쓰는 검색(search, 페이지 content/count)의 querydsl-sql 버전
+ * JPQL -> HQL -> SQL 변환, entity 메타데이터, 결과 변환을 거치지 않고 SQL을 바로 만들어서 JDBC로 실행한다.
+ * row는 ResultSetMapper로 MemberTeamDto 생성자에 바로 넣는다.
+ * where절은 MemberSearchPredicates.searchCondition(MemberSearchPaths.SQL)이라 MemberRepositoryImpl과 같은 조건이다.
+ *
+ * 같은 모양의 조건이면 SQL 문자열이 같아서 DB(H2는 세션마다 QUERY_CACHE_SIZE개)의 prepared statement 캐시를 다시 쓴다.
+ * 결과는 DB에 있는 것만 보인다. 같은 트랜잭션이어도 flush 안한 변경은 안보인다. 메트릭 이름은 memberSql.*
+ */
+@Repository
+@Transactional(readOnly = true)
+public class MemberSearchRepository {
+
+    private final SQLQueryFactory queryFactory;
+    private final MemberNameIndex nameIndex;
+    private final QueryMetrics queryMetrics;
+
+    public MemberSearchRepository(SQLQueryFactory queryFactory, MemberNameIndex nameIndex, QueryMetrics queryMetrics) {
+        this.queryFactory = queryFactory;
+        this.nameIndex = nameIndex;
+        this.queryMetrics = queryMetrics;
+    }
+
+    //목록이 커서 바인딩 파라미터가 너무 많으면 나눠서 가져와 합친다. (MemberSearchChunks)
+    public List<MemberTeamDto> search(MemberSearchCondition condition) {
+        return MemberSearchChunks.concat(MemberSearchChunks.split(nameIndex.resolve(condition)), part -> {
+            SQLQuery<?> query = searchQuery(part);
+            return queryMetrics.record("memberSql.search", "fetch", () -> fetch(query));
+        });
+    }
+
+    public Page<MemberTeamDto> searchPage(MemberSearchCondition searchCondition, Pageable pageable) {
+        MemberSearchCondition condition = nameIndex.resolve(searchCondition);
+        List<MemberSearchCondition> parts = MemberSearchChunks.split(condition);
+        List<MemberTeamDto> content;
+        if (parts.size() == 1) {
+            SQLQuery<?> query = searchQuery(condition)
+                    .offset(pageable.getOffset())
+                    .limit(pageable.getPageSize());
+            content = queryMetrics.record("memberSql.pageContent", "fetch", () -> fetch(query));
+        } else {
+            content = MemberSearchChunks.page(parts, pageable, Comparator.comparing(MemberTeamDto::getMemberId), (part, limit) -> {
+                SQLQuery<?> query = searchQuery(part)
+                        .orderBy(member.memberId.asc())
+                        .limit(limit);
+                return queryMetrics.record("memberSql.pageContent", "fetch", () -> fetch(query));
+            });
+        }
+        return PageableExecutionUtils.getPage(content, pageable, () -> count(condition));
+    }
+
+    public long count(MemberSearchCondition searchCondition) {
+        return MemberSearchChunks.sum(MemberSearchChunks.split(nameIndex.resolve(searchCondition)), condition -> {
+            SQLQuery<Long> count = queryFactory.select(member.memberId.count()).from(member);
+            //left join은 member 수를 바꾸지 않기 때문에 팀 조건이 있을 때만 (inner) 조인한다.
+            if (condition.hasTeamCriteria()) {
+                count.join(team).on(team.id.eq(member.teamId));
+            }
+            count.where(MemberSearchPredicates.searchCondition(condition, MemberSearchPaths.SQL));
+            return queryMetrics.record("memberSql.count", "fetchOne", count::fetchOne);
+        });
+    }
+
+    //select 순서 = MemberTeamDto 생성자 파라미터 순서
+    private SQLQuery<?> searchQuery(MemberSearchCondition condition) {
+        return MemberSearchPredicates.joinTeam(queryFactory.select(member.memberId, member.username, member.age, team.id, team.name)
+                .from(member), condition.hasTeamCriteria())
+                .where(MemberSearchPredicates.searchCondition(condition, MemberSearchPaths.SQL));
+    }
+
+    private List<MemberTeamDto> fetch(SQLQuery<?> query) {
+        ResultSetMapper<MemberTeamDto> mapper = ResultSetMapper.of(MemberTeamDto.class);
+        //getResults()의 ResultSet을 닫으면 statement도 닫힌다.
+        try (ResultSet rs = query.getResults()) {
+            List<MemberTeamDto> rows = new ArrayList<>();
+            while (rs.next()) {
+                rows.add(mapper.map(rs));
+            }
+            return rows;
+        } catch (SQLException e) {
+            throw queryFactory.getConfiguration().translate(e);
+        }
+    }
+}
@@ -0,0 +1,172 @@
+package study.querydsl.repository;
+
+import com.querydsl.core.types.Expression;
+import com.querydsl.core.types.ParamExpression;
+import com.querydsl.core.types.Predicate;
+import com.querydsl.core.types.dsl.Expressions;
+import com.querydsl.core.types.dsl.Param;
+import com.querydsl.jpa.HQLTemplates;
+import com.querydsl.jpa.JPQLSerializer;
+import com.querydsl.jpa.impl.JPAQuery;
+import com.querydsl.jpa.impl.JPAUtil;
+import org.springframework.stereotype.Component;
+import study.querydsl.dto.MemberSearchCondition;
+import study.querydsl.dto.MemberTeamDto;
+
+import javax.persistence.EntityManager;
+import javax.persistence.TypedQuery;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+import static org.springframework.util.StringUtils.hasText;
+import static study.querydsl.entity.QMember.member;
+import static study.querydsl.entity.QTeam.team;
+
+/**
+ * MemberTeamDto 검색 쿼리의 JPQL 캐시
+ * 검색조건 4개가 있냐 없냐로 만들 수 있는 쿼리는 16가지 뿐이라 bitmask를 key로 JPQL을 한번만 만들어두고
+ * 요청마다 파라미터만 바인딩한다. (QMemberTeamDto 생성 + querydsl 직렬화를 매번 안함)
+ * JPQL은 값 대신 Param을 넣고 MemberSearchPredicates(다른 검색 경로와 같은 조건, 같은 조인)로 만들어서 직렬화해둔다.
+ * JPQL 문자열이 항상 같기 때문에 hibernate의 query plan cache도 매번 hit 된다.
+ */
+@Component
+public class MemberSearchTemplates {
+
+    static final int USERNAME = 1;
+    static final int TEAM_NAME = 1 << 1;
+    static final int AGE_GOE = 1 << 2;
+    static final int AGE_LOE = 1 << 3;
+    static final int COMBINATIONS = 1 << 4;
+
+    private static final Param<String> USERNAME_PARAM = new Param<>(String.class, "username");
+    private static final Param<String> TEAM_NAME_PARAM = new Param<>(String.class, "teamName");
+    private static final Param<Integer> AGE_GOE_PARAM = new Param<>(Integer.class, "ageGoe");
+    private static final Param<Integer> AGE_LOE_PARAM = new Param<>(Integer.class, "ageLoe");
+
+    //select new MemberTeamDto(...) 그대로 (QMemberTeamDto는 직렬화하면 인자만 남아서 querydsl이 결과를 만든다)
+    private static final Expression<MemberTeamDto> CONTENT = Expressions.template(MemberTeamDto.class,
+            "new " + MemberTeamDto.class.getName() + "({0}, {1}, {2}, {3}, {4})",
+            member.id, member.username, member.age, team.id, team.name);
+
+    private final AtomicReferenceArray<Template> contentTemplates = new AtomicReferenceArray<>(COMBINATIONS);
+    private final AtomicReferenceArray<Template> countTemplates = new AtomicReferenceArray<>(COMBINATIONS);
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+
+    //목록 조건(in)은 값 개수마다 JPQL이 달라서 템플릿으로 만들지 않는다. 색인 조건도 memberIds(in)로 바뀐다.
+    public boolean supports(MemberSearchCondition condition) {
+        return !condition.hasCollectionCriteria() && !condition.hasIndexCriteria();
+    }
+
+    public TypedQuery<MemberTeamDto> contentQuery(EntityManager em, MemberSearchCondition condition) {
+        int mask = mask(condition);
+        Template template = template(contentTemplates, mask, false);
+        return template.bind(em.createQuery(template.jpql, MemberTeamDto.class), condition);
+    }
+
+    public TypedQuery<Long> countQuery(EntityManager em, MemberSearchCondition condition) {
+        int mask = mask(condition);
+        Template template = template(countTemplates, mask, true);
+        return template.bind(em.createQuery(template.jpql, Long.class), condition);
+    }
+
+    public long getHits() {
+        return hits.get();
+    }
+
+    public long getMisses() {
+        return misses.get();
+    }
+
+    static int mask(MemberSearchCondition condition) {
+        int mask = 0;
+        if (hasText(condition.getUsername())) {
+            mask |= USERNAME;
+        }
+        if (hasText(condition.getTeamName())) {
+            mask |= TEAM_NAME;
+        }
+        if (condition.getAgeGoe() != null) {
+            mask |= AGE_GOE;
+        }
+        if (condition.getAgeLoe() != null) {
+            mask |= AGE_LOE;
+        }
+        return mask;
+    }
+
+    //동시에 처음 만들면 둘 다 만들 수 있지만 결과가 같으니 상관없다.
+    private Template template(AtomicReferenceArray<Template> templates, int mask, boolean count) {
+        Template template = templates.get(mask);
+        if (template != null) {
+            hits.incrementAndGet();
+            return template;
+        }
+        misses.incrementAndGet();
+        template = count ? countTemplate(mask) : contentTemplate(mask);
+        templates.set(mask, template);
+        return template;
+    }
+
+    static String contentJpql(int mask) {
+        return contentTemplate(mask).jpql;
+    }
+
+    static String countJpql(int mask) {
+        return countTemplate(mask).jpql;
+    }
+
+    //t.name = ? 가 있으면 inner join (MemberSearchPredicates.joinTeam)
+    private static Template contentTemplate(int mask) {
+        JPAQuery<MemberTeamDto> query = MemberSearchPredicates.joinTeam(new JPAQuery<Void>().select(CONTENT).from(member), (mask & TEAM_NAME) != 0);
+        return Template.of(query.where(where(mask)));
+    }
+
+    //count는 팀 조건이 있을 때만 (inner) 조인한다.
+    private static Template countTemplate(int mask) {
+        JPAQuery<Long> query = new JPAQuery<Void>().select(member.id.count()).from(member);
+        if ((mask & TEAM_NAME) != 0) {
+            query.join(member.team, team);
+        }
+        return Template.of(query.where(where(mask)));
+    }
+
+    private static Predicate where(int mask) {
+        return MemberSearchPredicates.scalarCondition(MemberSearchPaths.JPA
+                , (mask & USERNAME) != 0 ? USERNAME_PARAM : null
+                , (mask & TEAM_NAME) != 0 ? TEAM_NAME_PARAM : null
+                , (mask & AGE_GOE) != 0 ? AGE_GOE_PARAM : null
+                , (mask & AGE_LOE) != 0 ? AGE_LOE_PARAM : null);
+    }
+
+    //직렬화한 JPQL과 파라미터 자리(?1, ?2.. -> Param)
+    private static final class Template {
+        private final String jpql;
+        private final Map<Object, String> labels;
+
+        private Template(String jpql, Map<Object, String> labels) {
+            this.jpql = jpql;
+            this.labels = labels;
+        }
+
+        private static Template of(JPAQuery<?> query) {
+            JPQLSerializer serializer = new JPQLSerializer(HQLTemplates.DEFAULT);
+            serializer.serialize(query.getMetadata(), false, null);
+            return new Template(serializer.toString(), new LinkedHashMap<>(serializer.getConstantToLabel()));
+        }
+
+        //mask에 있는 Param만 JPQL에 들어있다.
+        private <T> TypedQuery<T> bind(TypedQuery<T> query, MemberSearchCondition condition) {
+            Map<ParamExpression<?>, Object> params = new HashMap<>();
+            params.put(USERNAME_PARAM, condition.getUsername());
+            params.put(TEAM_NAME_PARAM, condition.getTeamName());
+            params.put(AGE_GOE_PARAM, condition.getAgeGoe());
+            params.put(AGE_LOE_PARAM, condition.getAgeLoe());
+            JPAUtil.setConstants(query, labels, params);
+            return query;
+        }
+    }
+}
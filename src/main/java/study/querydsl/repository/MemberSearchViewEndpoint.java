@@ -0,0 +1,36 @@
+package study.querydsl.repository;
+
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.boot.actuate.endpoint.annotation.WriteOperation;
+import org.springframework.boot.actuate.endpoint.jmx.annotation.JmxEndpoint;
+import org.springframework.stereotype.Component;
+import study.querydsl.dto.SearchViewCheckResult;
+
+/**
+ * JMX 전용 (org.springframework.boot:type=Endpoint,name=Searchview), spring.jmx.enabled=true 일 때
+ * check : member_search_view와 원본 비교, rebuild : 다시 만들고 비교
+ * 둘 다 테이블 전체를 읽고 rebuild는 view를 다시 쓰기 때문에 http(/actuator)로는 열지 않는다.
+ */
+@Component
+@JmxEndpoint(id = "searchview")
+public class MemberSearchViewEndpoint {
+
+    private final MemberSearchViewRepository viewRepository;
+    private final MemberSearchViewMaintainer maintainer;
+
+    public MemberSearchViewEndpoint(MemberSearchViewRepository viewRepository, MemberSearchViewMaintainer maintainer) {
+        this.viewRepository = viewRepository;
+        this.maintainer = maintainer;
+    }
+
+    @ReadOperation
+    public SearchViewCheckResult check() {
+        return viewRepository.check();
+    }
+
+    @WriteOperation
+    public SearchViewCheckResult rebuild() {
+        maintainer.rebuild();
+        return viewRepository.check();
+    }
+}
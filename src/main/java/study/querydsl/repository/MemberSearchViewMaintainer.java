@@ -0,0 +1,278 @@
+package study.querydsl.repository;
+
+import lombok.extern.slf4j.Slf4j;
+import org.hibernate.Session;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.event.service.spi.EventListenerRegistry;
+import org.hibernate.event.spi.AutoFlushEvent;
+import org.hibernate.event.spi.AutoFlushEventListener;
+import org.hibernate.event.spi.EventSource;
+import org.hibernate.event.spi.EventType;
+import org.hibernate.event.spi.FlushEvent;
+import org.hibernate.event.spi.FlushEventListener;
+import org.hibernate.event.spi.PostDeleteEvent;
+import org.hibernate.event.spi.PostDeleteEventListener;
+import org.hibernate.event.spi.PostInsertEvent;
+import org.hibernate.event.spi.PostInsertEventListener;
+import org.hibernate.event.spi.PostUpdateEvent;
+import org.hibernate.event.spi.PostUpdateEventListener;
+import org.hibernate.persister.entity.EntityPersister;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+import study.querydsl.entity.Member;
+import study.querydsl.entity.Team;
+
+import javax.annotation.PostConstruct;
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.WeakHashMap;
+
+import static study.querydsl.repository.MemberSearchPredicates.IN_CHUNK_SIZE;
+
+/**
+ * member_search_view(MemberSearchView) 유지 (querydsl.search-view.enabled=true 일 때만)
+ * Hibernate post insert/update/delete 에서는 바뀐 id만 모아두고, 같은 flush가 끝난 뒤(FLUSH, AUTO_FLUSH 리스너) 한번에 반영한다.
+ * post 이벤트 시점에는 jdbc batch가 아직 안나갔을 수 있어서 그때 member/team 테이블을 읽으면 안된다.
+ * - member 변경 : 그 member row를 지우고 member left join team 에서 다시 넣는다. (삭제면 안들어간다)
+ * - team 이름 변경 : 그 팀 member들의 team_name을 fanOutBatchSize개씩(member_id 순서) 나눠서 update
+ * 같은 트랜잭션, 같은 커넥션에서 JDBC로 쓰기 때문에 롤백되면 같이 롤백된다.
+ * 벌크 연산(JPQL update/delete)은 이벤트가 안오니 MemberBulkMutator가 refreshMembers를 직접 부른다.
+ */
+@Slf4j
+@Component
+public class MemberSearchViewMaintainer implements PostInsertEventListener, PostUpdateEventListener, PostDeleteEventListener,
+        FlushEventListener, AutoFlushEventListener {
+
+    static final String INSERT_FROM_SOURCE = "insert into member_search_view (member_id, username, age, team_id, team_name)" +
+            " select m.member_id, m.username, m.age, t.id, t.name from member m left join team t on t.id = m.team_id";
+
+    private final EntityManagerFactory emf;
+    private final EntityManager em;
+    private final boolean enabled;
+    private final int fanOutBatchSize;
+
+    //flush 하나 동안 모은 변경, 세션(쓰레드 하나)마다
+    private final Map<EventSource, PendingChanges> pending = Collections.synchronizedMap(new WeakHashMap<>());
+
+    public MemberSearchViewMaintainer(EntityManagerFactory emf,
+                                      EntityManager em,
+                                      @Value("${querydsl.search-view.enabled:false}") boolean enabled,
+                                      @Value("${querydsl.search-view.fan-out-batch-size:500}") int fanOutBatchSize) {
+        this.emf = emf;
+        this.em = em;
+        this.enabled = enabled;
+        this.fanOutBatchSize = fanOutBatchSize;
+    }
+
+    @PostConstruct
+    public void register() {
+        if (!enabled) {
+            return;
+        }
+        EventListenerRegistry registry = emf.unwrap(SessionFactoryImplementor.class)
+                .getServiceRegistry()
+                .getService(EventListenerRegistry.class);
+        registry.appendListeners(EventType.POST_INSERT, this);
+        registry.appendListeners(EventType.POST_UPDATE, this);
+        registry.appendListeners(EventType.POST_DELETE, this);
+        //기본 flush 리스너 뒤에 붙어서 insert/update가 다 나간 다음에 돈다.
+        registry.appendListeners(EventType.FLUSH, this);
+        registry.appendListeners(EventType.AUTO_FLUSH, this);
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    //ddl-auto가 create가 아니면 테이블에 예전 데이터가 남아있을 수 있으니 시작할 때 한번 다시 만든다.
+    @EventListener(ApplicationReadyEvent.class)
+    @Transactional
+    public void rebuildOnStartup() {
+        if (enabled) {
+            log.info("member_search_view rebuilt: {} rows", rebuild());
+        }
+    }
+
+    //전체를 지우고 member left join team 에서 다시 넣는다.
+    @Transactional
+    public int rebuild() {
+        return em.unwrap(Session.class).doReturningWork(connection -> {
+            try (PreparedStatement delete = connection.prepareStatement("delete from member_search_view");
+                 PreparedStatement insert = connection.prepareStatement(INSERT_FROM_SOURCE)) {
+                delete.executeUpdate();
+                return insert.executeUpdate();
+            }
+        });
+    }
+
+    //벌크 연산 후에 바뀐 member만 다시 읽는다. 트랜잭션 안에서 불러야 한다.
+    public void refreshMembers(Collection<Long> memberIds) {
+        if (!enabled || memberIds.isEmpty()) {
+            return;
+        }
+        em.unwrap(Session.class).doWork(connection -> refreshMembers(connection, new ArrayList<>(memberIds)));
+    }
+
+    @Override
+    public void onPostInsert(PostInsertEvent event) {
+        if (event.getEntity() instanceof Member) {
+            changes(event.getSession()).members.add((Long) event.getId());
+        }
+        //새 팀에는 아직 member가 없다. member insert에서 팀 이름을 같이 읽는다.
+    }
+
+    @Override
+    public void onPostUpdate(PostUpdateEvent event) {
+        if (event.getEntity() instanceof Member) {
+            changes(event.getSession()).members.add((Long) event.getId());
+        } else if (event.getEntity() instanceof Team && isNameChanged(event)) {
+            changes(event.getSession()).renamedTeams.put((Long) event.getId(), ((Team) event.getEntity()).getName());
+        }
+    }
+
+    @Override
+    public void onPostDelete(PostDeleteEvent event) {
+        if (event.getEntity() instanceof Member) {
+            changes(event.getSession()).members.add((Long) event.getId());
+        } else if (event.getEntity() instanceof Team) {
+            changes(event.getSession()).deletedTeams.add((Long) event.getId());
+        }
+    }
+
+    @Override
+    public boolean requiresPostCommitHanding(EntityPersister persister) {
+        return false;
+    }
+
+    @Override
+    public void onFlush(FlushEvent event) {
+        apply(event.getSession());
+    }
+
+    @Override
+    public void onAutoFlush(AutoFlushEvent event) {
+        apply(event.getSession());
+    }
+
+    private PendingChanges changes(EventSource session) {
+        return pending.computeIfAbsent(session, s -> new PendingChanges());
+    }
+
+    //dirtyProperties를 모르면(select-before-update 없이 merge 등) 바뀐 것으로 본다.
+    private static boolean isNameChanged(PostUpdateEvent event) {
+        int[] dirty = event.getDirtyProperties();
+        if (dirty == null) {
+            return true;
+        }
+        int name = event.getPersister().getEntityMetamodel().getPropertyIndex("name");
+        for (int index : dirty) {
+            if (index == name) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void apply(EventSource session) {
+        PendingChanges changes = pending.remove(session);
+        if (changes == null) {
+            return;
+        }
+        session.doWork(connection -> {
+            for (Map.Entry<Long, String> renamed : changes.renamedTeams.entrySet()) {
+                fanOut(connection, renamed.getKey(), renamed.getKey(), renamed.getValue());
+            }
+            for (Long teamId : changes.deletedTeams) {
+                fanOut(connection, teamId, null, null);
+            }
+            refreshMembers(connection, new ArrayList<>(changes.members));
+        });
+    }
+
+    private static void refreshMembers(Connection connection, List<Long> memberIds) throws SQLException {
+        for (int from = 0; from < memberIds.size(); from += IN_CHUNK_SIZE) {
+            List<Long> chunk = memberIds.subList(from, Math.min(from + IN_CHUNK_SIZE, memberIds.size()));
+            String in = placeholders(chunk.size());
+            try (PreparedStatement delete = connection.prepareStatement("delete from member_search_view where member_id in (" + in + ")");
+                 PreparedStatement insert = connection.prepareStatement(INSERT_FROM_SOURCE + " where m.member_id in (" + in + ")")) {
+                bindIds(delete, 1, chunk);
+                delete.executeUpdate();
+                bindIds(insert, 1, chunk);
+                insert.executeUpdate();
+            }
+        }
+    }
+
+    //팀 member가 많아도 update 하나가 너무 커지지 않게 member_id 순서로 fanOutBatchSize개씩 (idx_msv_team_id)
+    private void fanOut(Connection connection, Long teamId, Long newTeamId, String newTeamName) throws SQLException {
+        long after = Long.MIN_VALUE;
+        while (true) {
+            List<Long> ids = new ArrayList<>(fanOutBatchSize);
+            try (PreparedStatement select = connection.prepareStatement(
+                    "select member_id from member_search_view where team_id = ? and member_id > ? order by member_id limit ?")) {
+                select.setLong(1, teamId);
+                select.setLong(2, after);
+                select.setInt(3, fanOutBatchSize);
+                try (ResultSet rs = select.executeQuery()) {
+                    while (rs.next()) {
+                        ids.add(rs.getLong(1));
+                    }
+                }
+            }
+            if (ids.isEmpty()) {
+                return;
+            }
+            try (PreparedStatement update = connection.prepareStatement(
+                    "update member_search_view set team_id = ?, team_name = ? where member_id in (" + placeholders(ids.size()) + ")")) {
+                if (newTeamId != null) {
+                    update.setLong(1, newTeamId);
+                } else {
+                    update.setNull(1, Types.BIGINT);
+                }
+                update.setString(2, newTeamName);
+                bindIds(update, 3, ids);
+                update.executeUpdate();
+            }
+            if (ids.size() < fanOutBatchSize) {
+                return;
+            }
+            after = ids.get(ids.size() - 1);
+        }
+    }
+
+    private static String placeholders(int count) {
+        StringBuilder in = new StringBuilder();
+        for (int i = 0; i < count; i++) {
+            in.append(i == 0 ? "?" : ", ?");
+        }
+        return in.toString();
+    }
+
+    private static void bindIds(PreparedStatement statement, int first, List<Long> ids) throws SQLException {
+        for (int i = 0; i < ids.size(); i++) {
+            statement.setLong(first + i, ids.get(i));
+        }
+    }
+
+    private static class PendingChanges {
+        private final Set<Long> members = new LinkedHashSet<>();
+        private final Map<Long, String> renamedTeams = new HashMap<>();
+        private final Set<Long> deletedTeams = new LinkedHashSet<>();
+    }
+}
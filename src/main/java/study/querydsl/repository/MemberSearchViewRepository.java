@@ -0,0 +1,136 @@
+package study.querydsl.repository;
+
+import com.querydsl.core.types.Predicate;
+import com.querydsl.jpa.impl.JPAQuery;
+import org.springframework.data.domain.Pageable;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+import study.querydsl.dto.MemberSearchCondition;
+import study.querydsl.dto.MemberTeamDto;
+import study.querydsl.dto.QMemberTeamDto;
+import study.querydsl.dto.SearchViewCheckResult;
+import study.querydsl.metrics.InstrumentedJPAQueryFactory;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import static study.querydsl.entity.QMember.member;
+import static study.querydsl.entity.QMemberSearchView.memberSearchView;
+import static study.querydsl.entity.QTeam.team;
+
+/**
+ * member_search_view에서 검색 (조인 없음)
+ * querydsl.search-view.enabled=true 면 MemberRepositoryImpl의 search, 페이징 content/count가 여기로 온다.
+ * check()는 원본(member left join team)과 view를 전부 읽어서 비교한다. 운영중에 자주 돌릴 것은 아니다. (JMX MemberSearchViewEndpoint)
+ */
+@Repository
+@Transactional(readOnly = true)
+public class MemberSearchViewRepository {
+
+    static final int CHECK_SAMPLE_SIZE = 100;
+
+    private final InstrumentedJPAQueryFactory queryFactory;
+    private final MemberSearchViewMaintainer maintainer;
+
+    public MemberSearchViewRepository(InstrumentedJPAQueryFactory queryFactory, MemberSearchViewMaintainer maintainer) {
+        this.queryFactory = queryFactory;
+        this.maintainer = maintainer;
+    }
+
+    public boolean isEnabled() {
+        return maintainer.isEnabled();
+    }
+
+    //색인 조건(usernamePrefix, query)은 MemberNameIndex.resolve 한 조건
+    //목록이 커서 바인딩 파라미터가 너무 많으면 나눠서 가져와 합친다. (MemberSearchChunks)
+    public List<MemberTeamDto> search(MemberSearchCondition condition) {
+        return MemberSearchChunks.concat(MemberSearchChunks.split(condition),
+                part -> query("memberView.search").where(predicate(part)).fetch());
+    }
+
+    public List<MemberTeamDto> content(MemberSearchCondition condition, Pageable pageable) {
+        List<MemberSearchCondition> parts = MemberSearchChunks.split(condition);
+        if (parts.size() == 1) {
+            return query("memberView.content").where(predicate(condition))
+                    .offset(pageable.getOffset())
+                    .limit(pageable.getPageSize())
+                    .fetch();
+        }
+        return MemberSearchChunks.page(parts, pageable, Comparator.comparing(MemberTeamDto::getMemberId),
+                (part, limit) -> query("memberView.content").where(predicate(part))
+                        .orderBy(memberSearchView.memberId.asc())
+                        .limit(limit)
+                        .fetch());
+    }
+
+    public long count(MemberSearchCondition condition) {
+        return MemberSearchChunks.sum(MemberSearchChunks.split(condition),
+                part -> queryFactory.named("memberView.count").select(memberSearchView.memberId.count())
+                        .from(memberSearchView)
+                        .where(predicate(part))
+                        .fetchOne());
+    }
+
+    public SearchViewCheckResult check() {
+        Map<Long, MemberTeamDto> source = byId(queryFactory.named("memberView.checkSource").select(new QMemberTeamDto(
+                member.id
+                , member.username
+                , member.age
+                , team.id
+                , team.name))
+                .from(member)
+                .leftJoin(member.team, team)
+                .fetch());
+        Map<Long, MemberTeamDto> view = byId(query("memberView.checkView").fetch());
+
+        List<Long> missing = new ArrayList<>();
+        List<Long> different = new ArrayList<>();
+        for (Map.Entry<Long, MemberTeamDto> expected : source.entrySet()) {
+            MemberTeamDto actual = view.get(expected.getKey());
+            if (actual == null) {
+                addSample(missing, expected.getKey());
+            } else if (!actual.equals(expected.getValue())) {
+                addSample(different, expected.getKey());
+            }
+        }
+        List<Long> extra = new ArrayList<>();
+        for (Long id : view.keySet()) {
+            if (!source.containsKey(id)) {
+                addSample(extra, id);
+            }
+        }
+        return new SearchViewCheckResult(source.size(), view.size(), missing, extra, different);
+    }
+
+    private JPAQuery<MemberTeamDto> query(String name) {
+        return queryFactory.named(name).select(new QMemberTeamDto(
+                memberSearchView.memberId
+                , memberSearchView.username
+                , memberSearchView.age
+                , memberSearchView.teamId
+                , memberSearchView.teamName))
+                .from(memberSearchView);
+    }
+
+    //MemberRepositoryImpl.searchPredicate와 같은 조건, 컬럼만 view
+    private static Predicate predicate(MemberSearchCondition condition) {
+        return MemberSearchPredicates.searchCondition(condition, MemberSearchPaths.VIEW);
+    }
+
+    private static Map<Long, MemberTeamDto> byId(List<MemberTeamDto> rows) {
+        Map<Long, MemberTeamDto> byId = new TreeMap<>();
+        for (MemberTeamDto row : rows) {
+            byId.put(row.getMemberId(), row);
+        }
+        return byId;
+    }
+
+    private static void addSample(List<Long> ids, Long id) {
+        if (ids.size() < CHECK_SAMPLE_SIZE) {
+            ids.add(id);
+        }
+    }
+}
@@ -0,0 +1,254 @@
+package study.querydsl.repository;
+
+import study.querydsl.dto.MemberSearchCondition;
+import study.querydsl.dto.MemberTeamDto;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.springframework.util.StringUtils.hasText;
+
+/**
+ * member 전체를 컬럼별 배열로 들고 있는 읽기 전용 스냅샷 (MemberSnapshotEngine이 만든다)
+ * row i = ids[i], ages[i], usernames[usernameCodes[i]], teamIds/teamNames[teamCodes[i]] (팀 없으면 -1), id 오름차순
+ * username, 팀은 사전(dictionary)에 한번만 두고 row에는 int 코드만 둔다.
+ * 검색조건은 row마다 BitSet 하나로 걸러낸다. (조건마다 int 배열을 한번씩 훑는다)
+ * 만든 뒤에는 안바뀌어서 여러 쓰레드가 그냥 같이 읽는다. 바뀐 row는 patch로 새 스냅샷을 만든다.
+ */
+public final class MemberSnapshot {
+
+    private static final int NO_TEAM = -1;
+
+    private final long[] ids;
+    private final int[] ages;
+    private final int[] usernameCodes;
+    private final int[] teamCodes;
+
+    private final String[] usernames;
+    private final Map<String, Integer> usernameDictionary;
+    private final long[] teamIds;
+    private final String[] teamNames;
+
+    private final long createdNanos;
+
+    private MemberSnapshot(long[] ids, int[] ages, int[] usernameCodes, int[] teamCodes,
+                           String[] usernames, Map<String, Integer> usernameDictionary,
+                           long[] teamIds, String[] teamNames) {
+        this.ids = ids;
+        this.ages = ages;
+        this.usernameCodes = usernameCodes;
+        this.teamCodes = teamCodes;
+        this.usernames = usernames;
+        this.usernameDictionary = usernameDictionary;
+        this.teamIds = teamIds;
+        this.teamNames = teamNames;
+        this.createdNanos = System.nanoTime();
+    }
+
+    public static MemberSnapshot of(Collection<MemberTeamDto> rows) {
+        List<MemberTeamDto> sorted = new ArrayList<>(rows);
+        sorted.sort(Comparator.comparing(MemberTeamDto::getMemberId));
+
+        int size = sorted.size();
+        long[] ids = new long[size];
+        int[] ages = new int[size];
+        int[] usernameCodes = new int[size];
+        int[] teamCodes = new int[size];
+        Map<String, Integer> usernameDictionary = new HashMap<>();
+        List<String> usernames = new ArrayList<>();
+        Map<Long, Integer> teamDictionary = new LinkedHashMap<>();
+        List<String> teamNames = new ArrayList<>();
+
+        for (int i = 0; i < size; i++) {
+            MemberTeamDto row = sorted.get(i);
+            ids[i] = row.getMemberId();
+            ages[i] = row.getAge();
+            usernameCodes[i] = usernameDictionary.computeIfAbsent(row.getUsername(), name -> {
+                usernames.add(name);
+                return usernames.size() - 1;
+            });
+            teamCodes[i] = row.getTeamId() == null ? NO_TEAM : teamDictionary.computeIfAbsent(row.getTeamId(), id -> {
+                teamNames.add(row.getTeamName());
+                return teamNames.size() - 1;
+            });
+        }
+        long[] teamIds = new long[teamDictionary.size()];
+        int code = 0;
+        for (Long teamId : teamDictionary.keySet()) {
+            teamIds[code++] = teamId;
+        }
+        return new MemberSnapshot(ids, ages, usernameCodes, teamCodes,
+                usernames.toArray(new String[0]), usernameDictionary, teamIds, teamNames.toArray(new String[0]));
+    }
+
+    //staleMemberIds, staleTeamIds 팀의 row는 빼고 freshRows(DB에서 다시 읽은 row, 지워진 member는 없다)를 넣은 새 스냅샷
+    public MemberSnapshot patch(Collection<Long> staleMemberIds, Collection<Long> staleTeamIds, Collection<MemberTeamDto> freshRows) {
+        Set<Long> removed = new HashSet<>(staleMemberIds);
+        Set<Long> removedTeams = new HashSet<>(staleTeamIds);
+        Map<Long, MemberTeamDto> fresh = new LinkedHashMap<>();
+        for (MemberTeamDto row : freshRows) {
+            fresh.put(row.getMemberId(), row);
+        }
+        List<MemberTeamDto> rows = new ArrayList<>(ids.length + fresh.size());
+        for (int i = 0; i < ids.length; i++) {
+            int team = teamCodes[i];
+            if (!removed.contains(ids[i]) && !fresh.containsKey(ids[i])
+                    && (team == NO_TEAM || !removedTeams.contains(teamIds[team]))) {
+                rows.add(row(i));
+            }
+        }
+        rows.addAll(fresh.values());
+        return of(rows);
+    }
+
+    public int size() {
+        return ids.length;
+    }
+
+    public long getCreatedNanos() {
+        return createdNanos;
+    }
+
+    //usernamePrefix는 여기서 보고, query는 MemberNameIndex.resolve로 memberIds가 된 조건이어야 한다.
+    public BitSet filter(MemberSearchCondition condition) {
+        if (hasText(condition.getQuery())) {
+            throw new IllegalArgumentException("query 조건은 MemberNameIndex.resolve 후에 넘겨야 합니다.");
+        }
+        BitSet matched = new BitSet(ids.length);
+        matched.set(0, ids.length);
+
+        if (hasText(condition.getUsername())) {
+            Integer code = usernameDictionary.get(condition.getUsername());
+            if (code == null) {
+                return new BitSet();
+            }
+            retain(matched, usernameCodes, codeSet(code));
+        }
+        if (condition.getUsernames() != null && !condition.getUsernames().isEmpty()) {
+            BitSet codes = new BitSet(usernames.length);
+            for (String username : condition.getUsernames()) {
+                Integer code = usernameDictionary.get(username);
+                if (code != null) {
+                    codes.set(code);
+                }
+            }
+            retain(matched, usernameCodes, codes);
+        }
+        if (hasText(condition.getUsernamePrefix())) {
+            String prefix = condition.getUsernamePrefix();
+            BitSet codes = new BitSet(usernames.length);
+            for (int code = 0; code < usernames.length; code++) {
+                if (usernames[code] != null && usernames[code].regionMatches(true, 0, prefix, 0, prefix.length())) {
+                    codes.set(code);
+                }
+            }
+            retain(matched, usernameCodes, codes);
+        }
+        if (hasText(condition.getTeamName())) {
+            retain(matched, teamCodes, teamCodes(Collections.singleton(condition.getTeamName())));
+        }
+        if (condition.getTeamNames() != null && !condition.getTeamNames().isEmpty()) {
+            retain(matched, teamCodes, teamCodes(new HashSet<>(condition.getTeamNames())));
+        }
+        if (condition.getAgeGoe() != null || condition.getAgeLoe() != null) {
+            int min = condition.getAgeGoe() != null ? condition.getAgeGoe() : Integer.MIN_VALUE;
+            int max = condition.getAgeLoe() != null ? condition.getAgeLoe() : Integer.MAX_VALUE;
+            for (int i = matched.nextSetBit(0); i >= 0; i = matched.nextSetBit(i + 1)) {
+                if (ages[i] < min || ages[i] > max) {
+                    matched.clear(i);
+                }
+            }
+        }
+        if (condition.getMemberIds() != null && !condition.getMemberIds().isEmpty()) {
+            BitSet rows = new BitSet(ids.length);
+            for (Long id : condition.getMemberIds()) {
+                int row = id != null ? Arrays.binarySearch(ids, id) : -1;
+                if (row >= 0) {
+                    rows.set(row);
+                }
+            }
+            matched.and(rows);
+        }
+        return matched;
+    }
+
+    public int count(BitSet matched) {
+        return matched.cardinality();
+    }
+
+    //id 순서로 offset부터 limit개
+    public List<MemberTeamDto> rows(BitSet matched, long offset, int limit) {
+        List<MemberTeamDto> rows = new ArrayList<>(Math.min(limit, matched.cardinality()));
+        long skipped = 0;
+        for (int i = matched.nextSetBit(0); i >= 0 && rows.size() < limit; i = matched.nextSetBit(i + 1)) {
+            if (skipped++ < offset) {
+                continue;
+            }
+            rows.add(row(i));
+        }
+        return rows;
+    }
+
+    public List<MemberTeamDto> rows(BitSet matched) {
+        return rows(matched, 0, Integer.MAX_VALUE);
+    }
+
+    //팀 이름별 member 수 (QuerydslBasicTest.group 같은 대시보드용), 팀 없는 member는 빠진다.
+    public Map<String, Long> countByTeamName(BitSet matched) {
+        int[] counts = new int[teamNames.length];
+        for (int i = matched.nextSetBit(0); i >= 0; i = matched.nextSetBit(i + 1)) {
+            if (teamCodes[i] != NO_TEAM) {
+                counts[teamCodes[i]]++;
+            }
+        }
+        Map<String, Long> byName = new LinkedHashMap<>();
+        for (int code = 0; code < counts.length; code++) {
+            if (counts[code] > 0) {
+                byName.merge(teamNames[code], (long) counts[code], Long::sum);
+            }
+        }
+        return byName;
+    }
+
+    private MemberTeamDto row(int i) {
+        int team = teamCodes[i];
+        return new MemberTeamDto(ids[i], usernames[usernameCodes[i]], ages[i],
+                team == NO_TEAM ? null : teamIds[team], team == NO_TEAM ? null : teamNames[team]);
+    }
+
+    //팀 이름은 팀마다 같을 수 있어서 사전 전체를 본다. (팀은 적다)
+    private BitSet teamCodes(Set<String> names) {
+        BitSet codes = new BitSet(teamNames.length);
+        for (int code = 0; code < teamNames.length; code++) {
+            if (names.contains(teamNames[code])) {
+                codes.set(code);
+            }
+        }
+        return codes;
+    }
+
+    private static BitSet codeSet(int code) {
+        BitSet codes = new BitSet(code + 1);
+        codes.set(code);
+        return codes;
+    }
+
+    //codes에 없는 코드(팀 없음 -1 포함)인 row는 뺀다.
+    private static void retain(BitSet matched, int[] column, BitSet codes) {
+        for (int i = matched.nextSetBit(0); i >= 0; i = matched.nextSetBit(i + 1)) {
+            if (column[i] < 0 || !codes.get(column[i])) {
+                matched.clear(i);
+            }
+        }
+    }
+}
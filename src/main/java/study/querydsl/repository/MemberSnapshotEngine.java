@@ -0,0 +1,251 @@
+package study.querydsl.repository;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import study.querydsl.dto.MemberTeamDto;
+import study.querydsl.dto.QMemberTeamDto;
+import study.querydsl.entity.Member;
+import study.querydsl.entity.Team;
+import study.querydsl.event.EntityChangedEvent;
+import study.querydsl.metrics.InstrumentedJPAQueryFactory;
+
+import javax.annotation.PreDestroy;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static study.querydsl.entity.QMember.member;
+import static study.querydsl.entity.QTeam.team;
+import static study.querydsl.repository.MemberSearchPredicates.IN_CHUNK_SIZE;
+
+/**
+ * MemberSnapshot을 만들고 최신으로 유지한다. (querydsl.snapshot.enabled=true 일 때만)
+ * 시작할 때 member left join team 전체를 한번 읽고, 그 다음부터는 커밋된 EntityChangedEvent의 id만
+ * refresh-interval마다 백그라운드 쓰레드에서 다시 읽어서 새 스냅샷으로 바꾼다.
+ *
+ * 아직 반영 안된 커밋이 staleness-budget보다 오래됐으면 snapshot()이 null -> 호출한 쪽은 DB로 간다.
+ * 호출한 트랜잭션에서 member/team을 바꿨으면(커밋 전) 스냅샷에는 그 변경이 없으니 이때도 null
+ * 벌크 연산은 MemberBulkMutator가 이벤트를 발행해서 같이 따라온다. 네이티브 SQL로 바꾼 것은 모른다.
+ */
+@Slf4j
+@Component
+public class MemberSnapshotEngine {
+
+    private final InstrumentedJPAQueryFactory queryFactory;
+    private final TransactionTemplate primaryTx;
+    private final boolean enabled;
+    private final long stalenessBudgetNanos;
+    private final Duration refreshInterval;
+
+    private volatile MemberSnapshot snapshot;
+    private final Set<Long> staleMembers = ConcurrentHashMap.newKeySet();
+    private final Set<Long> staleTeams = ConcurrentHashMap.newKeySet();
+    //아직 반영 안된 변경 중 가장 오래된 커밋 시각(nanoTime), 없으면 0
+    private final AtomicLong pendingSince = new AtomicLong();
+    private ScheduledExecutorService refresher;
+
+    public MemberSnapshotEngine(InstrumentedJPAQueryFactory queryFactory,
+                                PlatformTransactionManager transactionManager,
+                                @Value("${querydsl.snapshot.enabled:false}") boolean enabled,
+                                @Value("${querydsl.snapshot.staleness-budget:5s}") Duration stalenessBudget,
+                                @Value("${querydsl.snapshot.refresh-interval:1s}") Duration refreshInterval) {
+        this.queryFactory = queryFactory;
+        //replica는 늦을 수 있어서 읽기 전용 트랜잭션으로 하지 않는다. (ReplicaRoutingDataSource)
+        this.primaryTx = new TransactionTemplate(transactionManager);
+        this.enabled = enabled;
+        this.stalenessBudgetNanos = stalenessBudget.toNanos();
+        this.refreshInterval = refreshInterval;
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        if (!enabled) {
+            return;
+        }
+        reload();
+        refresher = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "member-snapshot-refresh");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long interval = refreshInterval.toMillis();
+        refresher.scheduleWithFixedDelay(this::refreshQuietly, interval, interval, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (refresher != null) {
+            refresher.shutdownNow();
+        }
+    }
+
+    //지금 써도 되는 스냅샷, 못쓰면 null
+    public MemberSnapshot snapshot() {
+        MemberSnapshot current = snapshot;
+        if (current == null || hasUncommittedChanges()) {
+            return null;
+        }
+        long since = pendingSince.get();
+        if (since != 0 && System.nanoTime() - since > stalenessBudgetNanos) {
+            return null;
+        }
+        return current;
+    }
+
+    //전체를 다시 읽는다.
+    public synchronized void reload() {
+        staleMembers.clear();
+        staleTeams.clear();
+        pendingSince.set(0);
+        List<MemberTeamDto> rows = primaryTx.execute(status -> queryFactory.named("memberSnapshot.load").select(columns())
+                .from(member)
+                .leftJoin(member.team, team)
+                .fetch());
+        snapshot = MemberSnapshot.of(rows);
+        log.info("member snapshot loaded: {} rows", snapshot.size());
+    }
+
+    //커밋된 변경을 지금 반영한다. (백그라운드 refresh를 기다리지 않는다)
+    public synchronized void refreshNow() {
+        if (snapshot == null) {
+            reload();
+            return;
+        }
+        long since = pendingSince.getAndSet(0);
+        List<Long> memberIds = drain(staleMembers);
+        List<Long> teamIds = drain(staleTeams);
+        if (memberIds.isEmpty() && teamIds.isEmpty()) {
+            return;
+        }
+        try {
+            List<MemberTeamDto> fresh = primaryTx.execute(status -> {
+                List<MemberTeamDto> rows = new ArrayList<>();
+                for (int from = 0; from < memberIds.size(); from += IN_CHUNK_SIZE) {
+                    rows.addAll(queryFactory.named("memberSnapshot.refreshMembers").select(columns())
+                            .from(member)
+                            .leftJoin(member.team, team)
+                            .where(member.id.in(memberIds.subList(from, Math.min(from + IN_CHUNK_SIZE, memberIds.size()))))
+                            .fetch());
+                }
+                for (int from = 0; from < teamIds.size(); from += IN_CHUNK_SIZE) {
+                    rows.addAll(queryFactory.named("memberSnapshot.refreshTeams").select(columns())
+                            .from(member)
+                            .join(member.team, team)
+                            .where(team.id.in(teamIds.subList(from, Math.min(from + IN_CHUNK_SIZE, teamIds.size()))))
+                            .fetch());
+                }
+                return rows;
+            });
+            snapshot = snapshot.patch(memberIds, teamIds, fresh);
+        } catch (RuntimeException e) {
+            //다음 refresh에서 다시
+            staleMembers.addAll(memberIds);
+            staleTeams.addAll(teamIds);
+            pendingSince.accumulateAndGet(since, MemberSnapshotEngine::oldest);
+            throw e;
+        }
+    }
+
+    private void refreshQuietly() {
+        try {
+            refreshNow();
+        } catch (RuntimeException e) {
+            log.warn("member snapshot refresh failed", e);
+        }
+    }
+
+    //트랜잭션 안이면 커밋된 다음에만 표시한다. 커밋 전 값을 읽으면 스냅샷이 롤백된 값을 갖게 된다.
+    @EventListener
+    public void onEntityChanged(EntityChangedEvent event) {
+        if (!enabled || event.getId() == null) {
+            return;
+        }
+        boolean isMember = event.isOf(Member.class);
+        if (!isMember && !event.isOf(Team.class)) {
+            return;
+        }
+        Long id = (Long) event.getId();
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            markStale(isMember ? singleton(id) : new HashSet<>(), isMember ? new HashSet<>() : singleton(id));
+            return;
+        }
+        TouchedIds touched = (TouchedIds) TransactionSynchronizationManager.getResource(this);
+        if (touched == null) {
+            TouchedIds registered = new TouchedIds();
+            TransactionSynchronizationManager.bindResource(this, registered);
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    TransactionSynchronizationManager.unbindResourceIfPossible(MemberSnapshotEngine.this);
+                    if (status == STATUS_COMMITTED) {
+                        markStale(registered.members, registered.teams);
+                    }
+                }
+            });
+            touched = registered;
+        }
+        (isMember ? touched.members : touched.teams).add(id);
+    }
+
+    private boolean hasUncommittedChanges() {
+        return TransactionSynchronizationManager.hasResource(this);
+    }
+
+    private void markStale(Set<Long> memberIds, Set<Long> teamIds) {
+        staleMembers.addAll(memberIds);
+        staleTeams.addAll(teamIds);
+        pendingSince.accumulateAndGet(System.nanoTime(), MemberSnapshotEngine::oldest);
+    }
+
+    //0은 없음
+    private static long oldest(long current, long candidate) {
+        if (current == 0) {
+            return candidate;
+        }
+        return candidate == 0 || current - candidate < 0 ? current : candidate;
+    }
+
+    private static Set<Long> singleton(Long id) {
+        Set<Long> ids = new HashSet<>();
+        ids.add(id);
+        return ids;
+    }
+
+    private static List<Long> drain(Set<Long> stale) {
+        List<Long> ids = new ArrayList<>(stale);
+        stale.removeAll(ids);
+        return ids;
+    }
+
+    private static QMemberTeamDto columns() {
+        return new QMemberTeamDto(
+                member.id
+                , member.username
+                , member.age
+                , team.id
+                , team.name);
+    }
+
+    private static class TouchedIds {
+        private final Set<Long> members = new HashSet<>();
+        private final Set<Long> teams = new HashSet<>();
+    }
+}
@@ -0,0 +1,331 @@
+package study.querydsl.repository;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.querydsl.core.Tuple;
+import com.querydsl.core.types.ExpressionUtils;
+import com.querydsl.core.types.Predicate;
+import com.querydsl.jpa.impl.JPAQuery;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import study.querydsl.dto.AgeHistogram;
+import study.querydsl.dto.AgePercentiles;
+import study.querydsl.dto.AgeSummary;
+import study.querydsl.dto.MemberSearchCondition;
+import study.querydsl.dto.TeamMemberStats;
+import study.querydsl.entity.Member;
+import study.querydsl.entity.Team;
+import study.querydsl.event.EntityChangedEvent;
+import study.querydsl.metrics.InstrumentedJPAQueryFactory;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.function.BinaryOperator;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+import static study.querydsl.entity.QMember.member;
+import static study.querydsl.entity.QTeam.team;
+
+/**
+ * MemberSearchCondition에 맞는 member 통계 (QuerydslBasicTest.aggregation, group을 API로)
+ * 나이 요약/히스토그램/백분위는 나이별 count(group by age) 하나에서 계산한다. 팀별 통계는 group by team
+ *
+ * member id 범위가 partition-size보다 넓으면 id 구간(최대 max-partitions개)으로 나눠서
+ * repositoryQueryExecutor 쓰레드마다 자기 읽기 전용 트랜잭션(다른 커넥션, replica가 있으면 replica)으로 동시에 돌리고 합친다.
+ * 나눠서 돌릴 때는 커밋된 데이터만 보인다. 풀이 꽉 차면 그 구간은 호출한 쓰레드에서 돈다.
+ *
+ * 결과는 검색조건별로 캐시(querydsl.stats.cache-ttl)하고 member/team이 바뀌면 전부 비운다. (MemberSearchCache와 같은 방식)
+ * hit/miss는 cache.gets{cache=memberStats} 메트릭
+ */
+@Repository
+public class MemberStatsRepository {
+
+    static final String CACHE_NAME = "memberStats";
+
+    private final InstrumentedJPAQueryFactory queryFactory;
+    private final MemberNameIndex nameIndex;
+    private final Executor queryExecutor;
+    private final TransactionTemplate readOnlyTx;
+    private final long partitionSize;
+    private final int maxPartitions;
+    private final Cache<List<Object>, Object> results;
+
+    public MemberStatsRepository(InstrumentedJPAQueryFactory queryFactory,
+                                 MemberNameIndex nameIndex,
+                                 @Qualifier("repositoryQueryExecutor") Executor queryExecutor,
+                                 PlatformTransactionManager transactionManager,
+                                 MeterRegistry meterRegistry,
+                                 @Value("${querydsl.stats.partition-size:100000}") long partitionSize,
+                                 @Value("${querydsl.stats.max-partitions:4}") int maxPartitions,
+                                 @Value("${querydsl.stats.cache-ttl:60s}") Duration cacheTtl,
+                                 @Value("${querydsl.stats.cache-max-entries:1000}") long cacheMaxEntries) {
+        this.queryFactory = queryFactory;
+        this.nameIndex = nameIndex;
+        this.queryExecutor = queryExecutor;
+        this.readOnlyTx = new TransactionTemplate(transactionManager);
+        this.readOnlyTx.setReadOnly(true);
+        this.partitionSize = partitionSize;
+        this.maxPartitions = maxPartitions;
+        this.results = Caffeine.newBuilder()
+                .maximumSize(cacheMaxEntries)
+                .expireAfterWrite(cacheTtl)
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, results, CACHE_NAME);
+    }
+
+    public AgeSummary ageSummary(MemberSearchCondition condition) {
+        NavigableMap<Integer, Long> ages = ageCounts(condition);
+        long count = 0;
+        long sum = 0;
+        for (Map.Entry<Integer, Long> age : ages.entrySet()) {
+            count += age.getValue();
+            sum += (long) age.getKey() * age.getValue();
+        }
+        return ages.isEmpty()
+                ? new AgeSummary(0, 0, null, null)
+                : new AgeSummary(count, sum, ages.firstKey(), ages.lastKey());
+    }
+
+    public AgeHistogram ageHistogram(MemberSearchCondition condition, int bucketWidth) {
+        if (bucketWidth < 1) {
+            throw new IllegalArgumentException("bucketWidth는 1 이상이어야 합니다: " + bucketWidth);
+        }
+        Map<Integer, Long> buckets = new TreeMap<>();
+        for (Map.Entry<Integer, Long> age : ageCounts(condition).entrySet()) {
+            buckets.merge(Math.floorDiv(age.getKey(), bucketWidth) * bucketWidth, age.getValue(), Long::sum);
+        }
+        List<AgeHistogram.Bucket> histogram = new ArrayList<>(buckets.size());
+        for (Map.Entry<Integer, Long> bucket : buckets.entrySet()) {
+            histogram.add(new AgeHistogram.Bucket(bucket.getKey(), bucket.getKey() + bucketWidth - 1, bucket.getValue()));
+        }
+        return new AgeHistogram(bucketWidth, histogram);
+    }
+
+    //percentile은 0~100, 나이별 count를 누적해서 nearest-rank로 찾는다. (근사가 아니라 정확한 값)
+    public AgePercentiles agePercentiles(MemberSearchCondition condition, double... percentiles) {
+        for (double percentile : percentiles) {
+            if (percentile < 0 || percentile > 100) {
+                throw new IllegalArgumentException("percentile은 0~100 이어야 합니다: " + percentile);
+            }
+        }
+        NavigableMap<Integer, Long> ages = ageCounts(condition);
+        long count = ages.values().stream().mapToLong(Long::longValue).sum();
+        Map<Double, Integer> values = new LinkedHashMap<>();
+        if (count == 0) {
+            return new AgePercentiles(0, values);
+        }
+        for (double percentile : percentiles) {
+            long rank = Math.max(1, (long) Math.ceil(percentile / 100 * count));
+            long seen = 0;
+            for (Map.Entry<Integer, Long> age : ages.entrySet()) {
+                seen += age.getValue();
+                if (seen >= rank) {
+                    values.put(percentile, age.getKey());
+                    break;
+                }
+            }
+        }
+        return new AgePercentiles(count, values);
+    }
+
+    //팀 이름 순서
+    @SuppressWarnings("unchecked")
+    public List<TeamMemberStats> teamStats(MemberSearchCondition condition) {
+        MemberSearchCondition key = condition.normalized();
+        return (List<TeamMemberStats>) results.get(Arrays.asList("teams", key), k -> {
+            Map<Long, TeamMemberStats> byTeam = partitioned(key, true, this::teamStatsIn, (left, right) -> {
+                Map<Long, TeamMemberStats> merged = new LinkedHashMap<>(left);
+                right.forEach((teamId, stats) -> merged.merge(teamId, stats, (a, b) ->
+                        new TeamMemberStats(teamId, a.getTeamName(), a.getMemberCount() + b.getMemberCount(), a.getAgeSum() + b.getAgeSum())));
+                return merged;
+            });
+            List<TeamMemberStats> teams = new ArrayList<>(byTeam.values());
+            teams.sort(Comparator.comparing(TeamMemberStats::getTeamName, Comparator.nullsLast(Comparator.naturalOrder())));
+            return Collections.unmodifiableList(teams);
+        });
+    }
+
+    public void invalidateAll() {
+        results.invalidateAll();
+    }
+
+    //flush 시점에 한번 비우고, 커밋(롤백) 후에 한번 더 비운다.
+    @EventListener
+    public void onEntityChanged(EntityChangedEvent event) {
+        if (!(event.isOf(Member.class) || event.isOf(Team.class))) {
+            return;
+        }
+        invalidateAll();
+        if (TransactionSynchronizationManager.isSynchronizationActive()
+                && !TransactionSynchronizationManager.hasResource(this)) {
+            TransactionSynchronizationManager.bindResource(this, Boolean.TRUE);
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    TransactionSynchronizationManager.unbindResourceIfPossible(MemberStatsRepository.this);
+                    invalidateAll();
+                }
+            });
+        }
+    }
+
+    //나이 -> member 수, 캐시된 map은 같이 쓰니 수정하면 안된다.
+    @SuppressWarnings("unchecked")
+    private NavigableMap<Integer, Long> ageCounts(MemberSearchCondition condition) {
+        MemberSearchCondition key = condition.normalized();
+        return (NavigableMap<Integer, Long>) results.get(Arrays.asList("ages", key), k ->
+                Collections.unmodifiableNavigableMap(partitioned(key, false, this::ageCountsIn, (left, right) -> {
+                    NavigableMap<Integer, Long> merged = new TreeMap<>(left);
+                    right.forEach((age, count) -> merged.merge(age, count, Long::sum));
+                    return merged;
+                })));
+    }
+
+    private NavigableMap<Integer, Long> ageCountsIn(Partition partition) {
+        NavigableMap<Integer, Long> ages = new TreeMap<>();
+        for (Tuple row : from(queryFactory.named("memberStats.ageCounts").select(member.age, member.count()), partition)
+                .groupBy(member.age)
+                .fetch()) {
+            ages.put(row.get(member.age), row.get(member.count()));
+        }
+        return ages;
+    }
+
+    private Map<Long, TeamMemberStats> teamStatsIn(Partition partition) {
+        Map<Long, TeamMemberStats> teams = new LinkedHashMap<>();
+        for (Tuple row : queryFactory.named("memberStats.teams").select(team.id, team.name, member.count(), member.age.sum())
+                .from(member)
+                .join(member.team, team)
+                .where(partition.predicate())
+                .groupBy(team.id, team.name)
+                .fetch()) {
+            //sum(int)은 hibernate가 Long으로 돌려준다.
+            Long teamId = row.get(team.id);
+            teams.put(teamId, new TeamMemberStats(teamId, row.get(team.name), row.get(member.count()), row.get(3, Number.class).longValue()));
+        }
+        return teams;
+    }
+
+    //팀 조건이 있을 때만 (inner) 조인한다. (left join은 member 수를 바꾸지 않는다)
+    private <T> JPAQuery<T> from(JPAQuery<T> query, Partition partition) {
+        query.from(member);
+        if (partition.condition.hasTeamCriteria()) {
+            query.join(member.team, team);
+        }
+        return query.where(partition.predicate());
+    }
+
+    /**
+     * 조건에 맞는 member id 범위를 partition-size 단위(최대 max-partitions개)로 나눠서 query를 돌리고 merge로 합친다.
+     * 나눌 필요가 없으면 호출한 쓰레드(트랜잭션)에서 한번에
+     */
+    private <T> T partitioned(MemberSearchCondition searchCondition, boolean teamJoin,
+                              Function<Partition, T> query, BinaryOperator<T> merge) {
+        MemberSearchCondition condition = nameIndex.resolve(searchCondition);
+        //목록이 커서 조건을 나누면(MemberSearchChunks) 조각마다 구간을 나눈다. 조각끼리 row가 겹치지 않아서 같은 merge로 합칠 수 있다.
+        List<Partition> partitions = readOnlyTx.execute(status -> {
+            List<Partition> all = new ArrayList<>();
+            for (MemberSearchCondition part : MemberSearchChunks.split(condition)) {
+                all.addAll(partitions(part, teamJoin));
+            }
+            return all;
+        });
+        if (partitions.size() == 1) {
+            return readOnlyTx.execute(status -> query.apply(partitions.get(0)));
+        }
+        List<CompletableFuture<T>> futures = new ArrayList<>(partitions.size());
+        for (Partition partition : partitions) {
+            futures.add(submit(() -> readOnlyTx.execute(status -> query.apply(partition))));
+        }
+        T merged = null;
+        for (CompletableFuture<T> future : futures) {
+            T result = join(future);
+            merged = merged == null ? result : merge.apply(merged, result);
+        }
+        return merged;
+    }
+
+    private List<Partition> partitions(MemberSearchCondition condition, boolean teamJoin) {
+        JPAQuery<Tuple> range = queryFactory.named("memberStats.idRange").select(member.id.min(), member.id.max()).from(member);
+        if (teamJoin || condition.hasTeamCriteria()) {
+            range.join(member.team, team);
+        }
+        Tuple bounds = range.where(MemberSearchPredicates.searchCondition(condition)).fetchOne();
+        Long min = bounds != null ? bounds.get(member.id.min()) : null;
+        Long max = bounds != null ? bounds.get(member.id.max()) : null;
+        if (min == null || max == null) {
+            return Collections.singletonList(new Partition(condition, null, null));
+        }
+        long span = max - min + 1;
+        int count = (int) Math.min(maxPartitions, (span + partitionSize - 1) / partitionSize);
+        if (count <= 1) {
+            return Collections.singletonList(new Partition(condition, null, null));
+        }
+        long step = (span + count - 1) / count;
+        List<Partition> partitions = new ArrayList<>(count);
+        for (long from = min; from <= max; from += step) {
+            partitions.add(new Partition(condition, from, Math.min(from + step - 1, max)));
+        }
+        return partitions;
+    }
+
+    private <T> CompletableFuture<T> submit(Supplier<T> task) {
+        try {
+            return CompletableFuture.supplyAsync(task, queryExecutor);
+        } catch (RejectedExecutionException e) {
+            return CompletableFuture.completedFuture(task.get()); //풀이 꽉 찼으면 직접
+        }
+    }
+
+    private static <T> T join(CompletableFuture<T> future) {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw e;
+        }
+    }
+
+    //검색조건 + member id 구간(fromId~toId 포함, null이면 전체)
+    private static class Partition {
+        private final MemberSearchCondition condition;
+        private final Long fromId;
+        private final Long toId;
+
+        private Partition(MemberSearchCondition condition, Long fromId, Long toId) {
+            this.condition = condition;
+            this.fromId = fromId;
+            this.toId = toId;
+        }
+
+        private Predicate predicate() {
+            return ExpressionUtils.allOf(
+                    MemberSearchPredicates.searchCondition(condition),
+                    fromId != null ? member.id.between(fromId, toId) : null);
+        }
+    }
+}
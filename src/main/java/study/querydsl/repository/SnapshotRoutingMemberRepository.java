@@ -0,0 +1,118 @@
+package study.querydsl.repository;
+
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.support.PageableExecutionUtils;
+import org.springframework.stereotype.Repository;
+import study.querydsl.dto.MemberCursor;
+import study.querydsl.dto.MemberSearchCondition;
+import study.querydsl.dto.MemberSlice;
+import study.querydsl.dto.MemberTeamDto;
+import study.querydsl.metrics.QueryMetrics;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * MemberRepositoryCustom 앞에 붙이는 라우팅 decorator
+ * MemberSnapshotEngine.snapshot()을 쓸 수 있으면(staleness-budget 안) 메모리 스냅샷에서 답하고, 아니면 MemberRepository로 간다.
+ * 스냅샷 결과는 member id 순서다. (DB 검색은 순서를 정하지 않는다)
+ * searchSlice(키셋 페이징), 정렬이 있는 Pageable은 항상 DB
+ * 스냅샷에서 답한 것은 memberSnapshot.* 메트릭으로 나간다.
+ */
+@Repository
+public class SnapshotRoutingMemberRepository implements MemberRepositoryCustom {
+
+    private final MemberRepository delegate;
+    private final MemberSnapshotEngine engine;
+    private final MemberNameIndex nameIndex;
+    private final QueryMetrics queryMetrics;
+
+    public SnapshotRoutingMemberRepository(MemberRepository delegate,
+                                           MemberSnapshotEngine engine,
+                                           MemberNameIndex nameIndex,
+                                           QueryMetrics queryMetrics) {
+        this.delegate = delegate;
+        this.engine = engine;
+        this.nameIndex = nameIndex;
+        this.queryMetrics = queryMetrics;
+    }
+
+    @Override
+    public List<MemberTeamDto> search(MemberSearchCondition condition) {
+        MemberSnapshot snapshot = engine.snapshot();
+        if (snapshot == null) {
+            return delegate.search(condition);
+        }
+        return queryMetrics.record("memberSnapshot.search", "fetch", () -> snapshot.rows(snapshot.filter(resolve(condition))));
+    }
+
+    @Override
+    public Page<MemberTeamDto> searchPageSimple(MemberSearchCondition condition, Pageable pageable) {
+        MemberSnapshot snapshot = pageSnapshot(pageable);
+        return snapshot != null ? page(snapshot, condition, pageable) : delegate.searchPageSimple(condition, pageable);
+    }
+
+    @Override
+    public Page<MemberTeamDto> searchPageComplex(MemberSearchCondition condition, Pageable pageable) {
+        MemberSnapshot snapshot = pageSnapshot(pageable);
+        return snapshot != null ? page(snapshot, condition, pageable) : delegate.searchPageComplex(condition, pageable);
+    }
+
+    //스냅샷에서는 count도 정확하고 싸니 countStrategy와 상관없이 정확한 count
+    @Override
+    public Page<MemberTeamDto> searchPageComplex(MemberSearchCondition condition, Pageable pageable, MemberCountStrategy countStrategy) {
+        MemberSnapshot snapshot = pageSnapshot(pageable);
+        return snapshot != null ? page(snapshot, condition, pageable) : delegate.searchPageComplex(condition, pageable, countStrategy);
+    }
+
+    @Override
+    public MemberSlice searchSlice(MemberSearchCondition condition, MemberCursor cursor, int size) {
+        return delegate.searchSlice(condition, cursor, size);
+    }
+
+    @Override
+    public List<List<MemberTeamDto>> searchBatch(List<MemberSearchCondition> conditions) {
+        MemberSnapshot snapshot = engine.snapshot();
+        if (snapshot == null) {
+            return delegate.searchBatch(conditions);
+        }
+        if (conditions.size() > MemberRepositoryImpl.MAX_BATCH_CONDITIONS) {
+            throw new IllegalArgumentException("한번에 검색할 수 있는 조건은 " + MemberRepositoryImpl.MAX_BATCH_CONDITIONS + "개까지입니다: " + conditions.size());
+        }
+        return queryMetrics.record("memberSnapshot.searchBatch", "fetch", () -> {
+            List<List<MemberTeamDto>> results = new ArrayList<>(conditions.size());
+            for (MemberSearchCondition condition : conditions) {
+                results.add(snapshot.rows(snapshot.filter(resolve(condition))));
+            }
+            return results;
+        });
+    }
+
+    //팀 이름별 member 수, 스냅샷을 못쓰면 null (호출한 쪽에서 DB group by)
+    public Map<String, Long> countByTeamName(MemberSearchCondition condition) {
+        MemberSnapshot snapshot = engine.snapshot();
+        if (snapshot == null) {
+            return null;
+        }
+        return queryMetrics.record("memberSnapshot.countByTeamName", "fetch", () -> snapshot.countByTeamName(snapshot.filter(resolve(condition))));
+    }
+
+    private MemberSnapshot pageSnapshot(Pageable pageable) {
+        return pageable.getSort().isSorted() ? null : engine.snapshot();
+    }
+
+    private Page<MemberTeamDto> page(MemberSnapshot snapshot, MemberSearchCondition condition, Pageable pageable) {
+        BitSet matched = snapshot.filter(resolve(condition));
+        List<MemberTeamDto> content = queryMetrics.record("memberSnapshot.pageContent", "fetch",
+                () -> snapshot.rows(matched, pageable.getOffset(), pageable.getPageSize()));
+        return PageableExecutionUtils.getPage(content, pageable, () -> snapshot.count(matched));
+    }
+
+    //query는 색인에서 memberIds로 바꾼다. usernamePrefix는 스냅샷이 직접 본다.
+    private MemberSearchCondition resolve(MemberSearchCondition condition) {
+        return condition.getQuery() != null ? nameIndex.resolve(condition) : condition;
+    }
+}
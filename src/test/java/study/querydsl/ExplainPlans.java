@@ -0,0 +1,58 @@
+package study.querydsl;
+
+import org.hibernate.Session;
+
+import javax.persistence.EntityManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.util.List;
+
+/**
+ * 테스트용 H2 EXPLAIN
+ * hibernate가 만든 SQL(QueryStatementInspector.lastSql())에 바인딩 값을 순서대로 넣고 실행 계획을 받는다.
+ * H2 1.4 계획에서 테이블을 처음부터 끝까지 읽으면 인덱스 이름 대신 PUBLIC.MEMBER.tableScan 처럼 나온다.
+ */
+public class ExplainPlans {
+
+    public static final String TABLE_SCAN = ".tableScan";
+
+    public static String explain(EntityManager em, String sql, List<?> binds) {
+        return em.unwrap(Session.class).doReturningWork(connection -> {
+            try (PreparedStatement statement = connection.prepareStatement("explain " + sql)) {
+                for (int i = 0; i < binds.size(); i++) {
+                    statement.setObject(i + 1, binds.get(i));
+                }
+                try (ResultSet rs = statement.executeQuery()) {
+                    StringBuilder plan = new StringBuilder();
+                    while (rs.next()) {
+                        plan.append(rs.getString(1)).append('\n');
+                    }
+                    return plan.toString();
+                }
+            }
+        });
+    }
+
+    //바인딩 값 없이 계획만, 파라미터는 전부 null로 둔다. (H2는 prepare 할 때 계획을 만들어서 값과 상관없다)
+    public static String explain(EntityManager em, String sql) {
+        return em.unwrap(Session.class).doReturningWork(connection -> {
+            try (PreparedStatement statement = connection.prepareStatement("explain " + sql)) {
+                int parameters = statement.getParameterMetaData().getParameterCount();
+                for (int i = 1; i <= parameters; i++) {
+                    statement.setObject(i, null);
+                }
+                try (ResultSet rs = statement.executeQuery()) {
+                    StringBuilder plan = new StringBuilder();
+                    while (rs.next()) {
+                        plan.append(rs.getString(1)).append('\n');
+                    }
+                    return plan.toString();
+                }
+            }
+        });
+    }
+
+    public static boolean hasTableScan(String plan) {
+        return plan.contains(TABLE_SCAN);
+    }
+}
@@ -0,0 +1,108 @@
+package study.querydsl;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.List;
+import java.util.regex.Pattern;
+
+/**
+ * 테스트용 쿼리 계획 golden file
+ * src/test/resources/plans/{name}.txt 에 SQL과 EXPLAIN 결과를 저장해두고 매번 비교한다.
+ * baseline이 없거나 다르면 실패한다. 새 쿼리이거나 의도한 변경이면 -Dplans.update=true 로 돌려서 파일을 쓰고 diff를 같이 커밋한다.
+ * ex) ./gradlew planTest -Dplans.update=true
+ */
+public class PlanBaselines {
+
+    public static final Path DIRECTORY = Paths.get("src", "test", "resources", "plans");
+    public static final boolean UPDATE = Boolean.getBoolean("plans.update");
+
+    //H2가 만든 제약조건 이름은 테이블 만든 순서에 따라 번호가 바뀐다.
+    private static final Pattern GENERATED_NAME = Pattern.compile("\\b(PRIMARY_KEY|CONSTRAINT|CONSTRAINT_INDEX)_[0-9A-F]+\\b");
+    //id, 건수같은 큰 숫자는 데이터에 따라 바뀐다. (hibernate alias member0_, col_0_0_ 는 그대로 둔다)
+    private static final Pattern NUMBER = Pattern.compile("\\b\\d{3,}\\b");
+
+    public enum Result {MATCHED, RECORDED}
+
+    public static String normalize(String text) {
+        String normalized = GENERATED_NAME.matcher(text).replaceAll("$1");
+        normalized = NUMBER.matcher(normalized).replaceAll("N");
+        StringBuilder result = new StringBuilder();
+        for (String line : normalized.split("\\r?\\n")) {
+            String trimmed = trimTrailing(line);
+            if (!trimmed.isEmpty()) {
+                result.append(trimmed).append('\n');
+            }
+        }
+        return result.toString();
+    }
+
+    //-Dplans.update=true 면 파일을 쓰고 RECORDED, 아니면 비교해서 다르면 diff와 함께 실패
+    //baseline이 없어도 실패한다. (CI에서 조용히 새 파일을 만들고 통과하면 회귀를 못잡는다) 소스 트리에는 update일 때만 쓴다.
+    public static Result verify(String name, String captured) {
+        Path file = DIRECTORY.resolve(name + ".txt");
+        String actual = normalize(captured);
+        try {
+            if (UPDATE) {
+                Files.createDirectories(DIRECTORY);
+                Files.write(file, actual.getBytes(StandardCharsets.UTF_8));
+                return Result.RECORDED;
+            }
+            if (!Files.exists(file)) {
+                throw new AssertionError("쿼리 계획 baseline " + file + " 이 없습니다. -Dplans.update=true 로 만들고 같이 커밋하세요.\n" + actual);
+            }
+            String expected = new String(Files.readAllBytes(file), StandardCharsets.UTF_8);
+            if (!normalize(expected).equals(actual)) {
+                throw new AssertionError("쿼리 계획이 " + file + " 와 다릅니다. 의도한 변경이면 -Dplans.update=true\n"
+                        + diff(normalize(expected), actual));
+            }
+            return Result.MATCHED;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    //앞뒤로 같은 줄은 빼고 바뀐 구간만 -(baseline) +(지금) 으로 보여준다.
+    static String diff(String expected, String actual) {
+        List<String> before = Arrays.asList(expected.split("\n"));
+        List<String> after = Arrays.asList(actual.split("\n"));
+
+        int prefix = 0;
+        while (prefix < before.size() && prefix < after.size() && before.get(prefix).equals(after.get(prefix))) {
+            prefix++;
+        }
+        int suffix = 0;
+        while (suffix < before.size() - prefix && suffix < after.size() - prefix
+                && before.get(before.size() - 1 - suffix).equals(after.get(after.size() - 1 - suffix))) {
+            suffix++;
+        }
+
+        StringBuilder diff = new StringBuilder();
+        diff.append("@@ line ").append(prefix + 1).append(" @@\n");
+        if (prefix > 0) {
+            diff.append("  ").append(before.get(prefix - 1)).append('\n');
+        }
+        for (String line : before.subList(prefix, before.size() - suffix)) {
+            diff.append("- ").append(line).append('\n');
+        }
+        for (String line : after.subList(prefix, after.size() - suffix)) {
+            diff.append("+ ").append(line).append('\n');
+        }
+        if (suffix > 0) {
+            diff.append("  ").append(before.get(before.size() - suffix)).append('\n');
+        }
+        return diff.toString();
+    }
+
+    private static String trimTrailing(String line) {
+        int end = line.length();
+        while (end > 0 && Character.isWhitespace(line.charAt(end - 1))) {
+            end--;
+        }
+        return line.substring(0, end);
+    }
+}
@@ -0,0 +1,40 @@
+package study.querydsl;
+
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+
+import javax.persistence.EntityManagerFactory;
+import java.util.function.Supplier;
+
+/**
+ * 테스트용 N+1 감지기
+ * hibernate 통계(generate_statistics)의 prepareStatementCount로 블록 안에서 나간 쿼리 수를 세고
+ * 기준보다 많으면 실패시킨다. 통계는 SessionFactory 전체 값이라 테스트가 병렬로 돌면 안된다.
+ */
+public class StatementCounter {
+
+    private final Statistics statistics;
+
+    public StatementCounter(EntityManagerFactory emf) {
+        this.statistics = emf.unwrap(SessionFactory.class).getStatistics();
+        if (!statistics.isStatisticsEnabled()) {
+            throw new IllegalStateException("hibernate.generate_statistics=true 가 필요합니다.");
+        }
+    }
+
+    public long count(Runnable block) {
+        long before = statistics.getPrepareStatementCount();
+        block.run();
+        return statistics.getPrepareStatementCount() - before;
+    }
+
+    public <T> T assertAtMost(long maxStatements, Supplier<T> block) {
+        long before = statistics.getPrepareStatementCount();
+        T result = block.get();
+        long executed = statistics.getPrepareStatementCount() - before;
+        if (executed > maxStatements) {
+            throw new AssertionError("쿼리가 " + maxStatements + "번 이하로 나가야 하는데 " + executed + "번 나갔습니다. (N+1 확인)");
+        }
+        return result;
+    }
+}
@@ -0,0 +1,97 @@
+package study.querydsl.config;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+//H2 메모리 DB 두 개를 primary, replica로 두고 어느 쪽에서 읽었는지 본다.
+class ReplicaRoutingDataSourceTest {
+
+    DataSource primary = h2("primary");
+    DataSource replica = h2("replica");
+    AtomicReference<Duration> lag = new AtomicReference<>(Duration.ZERO);
+
+    @BeforeEach
+    public void before(){
+        lag.set(Duration.ZERO);
+    }
+
+    @Test
+    public void readOnlyGoesToReplica(){
+        Router router = new Router(Duration.ZERO);
+
+        assertThat(router.read()).isEqualTo("replica");
+        assertThat(router.write()).isEqualTo("primary");
+        assertThat(router.noTransaction()).isEqualTo("primary");
+    }
+
+    @Test
+    public void stickyAfterWrite(){
+        Router router = new Router(Duration.ofMinutes(1));
+
+        assertThat(router.read()).isEqualTo("replica");
+        router.write();
+        assertThat(router.read()).isEqualTo("primary");
+    }
+
+    @Test
+    public void laggingReplica(){
+        Router router = new Router(Duration.ZERO);
+
+        lag.set(Duration.ofSeconds(10));
+        assertThat(router.read()).isEqualTo("primary");
+        lag.set(Duration.ofSeconds(1));
+        assertThat(router.read()).isEqualTo("replica");
+    }
+
+    private class Router {
+        private final JdbcTemplate jdbc;
+        private final TransactionTemplate readOnlyTx;
+        private final TransactionTemplate tx;
+
+        private Router(Duration stickyWindow) {
+            DataSource routing = new LazyConnectionDataSourceProxy(
+                    new ReplicaRoutingDataSource(primary, replica, stickyWindow, Duration.ofSeconds(5), lag::get));
+            DataSourceTransactionManager transactionManager = new DataSourceTransactionManager(routing);
+            this.jdbc = new JdbcTemplate(routing);
+            this.tx = new TransactionTemplate(transactionManager);
+            this.readOnlyTx = new TransactionTemplate(transactionManager);
+            this.readOnlyTx.setReadOnly(true);
+        }
+
+        private String read() {
+            return readOnlyTx.execute(status -> server());
+        }
+
+        private String write() {
+            return tx.execute(status -> server());
+        }
+
+        private String noTransaction() {
+            return server();
+        }
+
+        private String server() {
+            return jdbc.queryForObject("select name from server", String.class);
+        }
+    }
+
+    private static DataSource h2(String name) {
+        DriverManagerDataSource dataSource = new DriverManagerDataSource("jdbc:h2:mem:" + name + ";DB_CLOSE_DELAY=-1", "sa", "");
+        JdbcTemplate jdbc = new JdbcTemplate(dataSource);
+        jdbc.execute("create table if not exists server (name varchar(20))");
+        jdbc.update("delete from server");
+        jdbc.update("insert into server values (?)", name);
+        return dataSource;
+    }
+}
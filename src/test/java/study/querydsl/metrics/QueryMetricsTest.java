@@ -0,0 +1,91 @@
+package study.querydsl.metrics;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.annotation.Transactional;
+import study.querydsl.dto.MemberSearchCondition;
+import study.querydsl.entity.Member;
+import study.querydsl.entity.Team;
+import study.querydsl.repository.MemberJpaRepository;
+import study.querydsl.repository.MemberRepository;
+
+import javax.persistence.EntityManager;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static study.querydsl.entity.QMember.member;
+
+@SpringBootTest
+@Transactional
+class QueryMetricsTest {
+
+    @Autowired
+    EntityManager em;
+
+    @Autowired
+    MeterRegistry meterRegistry;
+
+    @Autowired
+    InstrumentedJPAQueryFactory queryFactory;
+
+    @Autowired
+    MemberJpaRepository memberJpaRepository;
+
+    @Autowired
+    MemberRepository memberRepository;
+
+    @BeforeEach
+    public void before(){
+        Team teamA = new Team("teamA");
+        em.persist(teamA);
+        em.persist(new Member("member1",10,teamA));
+        em.persist(new Member("member2",20,teamA));
+        em.persist(new Member("member3",30));
+        em.flush();
+        em.clear();
+    }
+
+    @Test
+    public void namedQuery(){
+        long before = timer("test.members", "fetch").count();
+
+        queryFactory.named("test.members").selectFrom(member).where(member.age.goe(20)).fetch();
+
+        assertThat(timer("test.members", "fetch").count()).isEqualTo(before + 1);
+        assertThat(summary("querydsl.query.rows", "test.members", "fetch").max()).isEqualTo(2);
+        assertThat(summary("querydsl.query.statements", "test.members", "fetch").max()).isEqualTo(1);
+        //트랜잭션 안이라 영속성 컨텍스트에 member 2개가 올라가 있다.
+        assertThat(summary("querydsl.query.persistence-context", "test.members", "fetch").max()).isEqualTo(2);
+    }
+
+    @Test
+    public void unnamedAndCount(){
+        long count = queryFactory.selectFrom(member).fetchCount();
+
+        assertThat(count).isEqualTo(3);
+        assertThat(timer(InstrumentedJPAQueryFactory.UNNAMED, "fetchCount").count()).isGreaterThanOrEqualTo(1);
+    }
+
+    @Test
+    public void repositoryQueries(){
+        long before = timer("member.search", "fetch").count();
+
+        memberJpaRepository.findAll_Querydsl();
+        memberRepository.search(new MemberSearchCondition());
+
+        assertThat(timer("memberJpa.findAll", "fetch").count()).isGreaterThanOrEqualTo(1);
+        assertThat(timer("member.search", "fetch").count()).isEqualTo(before + 1);
+    }
+
+    private Timer timer(String query, String op) {
+        return meterRegistry.timer("querydsl.query", "query", query, "op", op);
+    }
+
+    private DistributionSummary summary(String name, String query, String op) {
+        return meterRegistry.summary(name, "query", query, "op", op);
+    }
+}
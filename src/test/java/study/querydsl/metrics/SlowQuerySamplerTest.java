@@ -0,0 +1,100 @@
+package study.querydsl.metrics;
+
+import com.querydsl.core.types.dsl.BooleanExpression;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.annotation.Transactional;
+import study.querydsl.dto.MemberSearchCondition;
+import study.querydsl.entity.Member;
+import study.querydsl.repository.MemberJpaRepository;
+import study.querydsl.repository.MemberRepository;
+
+import javax.persistence.EntityManager;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static study.querydsl.entity.QMember.member;
+
+//threshold를 0으로 두면 모든 쿼리가 느린 쿼리다.
+@SpringBootTest(properties = "querydsl.slow-query.threshold=0ms")
+@Transactional
+class SlowQuerySamplerTest {
+
+    @Autowired
+    EntityManager em;
+
+    @Autowired
+    SlowQuerySampler sampler;
+
+    @Autowired
+    MemberRepository memberRepository;
+
+    @Autowired
+    MemberJpaRepository memberJpaRepository;
+
+    @Autowired
+    InstrumentedJPAQueryFactory queryFactory;
+
+    @BeforeEach
+    public void before(){
+        em.persist(new Member("member1",10));
+        em.flush();
+        sampler.clear();
+    }
+
+    @Test
+    public void templateQuery(){
+        MemberSearchCondition condition = new MemberSearchCondition();
+        condition.setUsername("member1");
+        memberRepository.search(condition);
+
+        SlowQuerySample sample = sampler.samples().get(0);
+        assertThat(sample.getQuery()).isEqualTo("member.search");
+        assertThat(sample.getCaller()).isEqualTo("MemberRepositoryImpl.search");
+        assertThat(sample.getJpql()).contains("m.username = :username");
+        assertThat(sample.getSql()).containsIgnoringCase("select");
+        assertThat(sample.getBinds()).containsEntry("username", "****"); //기본은 값을 가린다.
+    }
+
+    @Test
+    public void querydslQuery(){
+        memberJpaRepository.findByUsername_Querydsl("member1");
+
+        SlowQuerySample sample = sampler.samples().get(0);
+        assertThat(sample.getQuery()).isEqualTo("memberJpa.findByUsername");
+        assertThat(sample.getCaller()).isEqualTo("MemberJpaRepository.findByUsername_Querydsl");
+        assertThat(sample.getJpql()).contains("member1.username = ?1");
+        assertThat(sample.getBinds()).containsOnlyKeys("?1");
+    }
+
+    //상수가 10개 이상이어도 ?1, ?2, ... ?12 순서
+    @Test
+    public void bindsInPlaceholderOrder(){
+        BooleanExpression ages = null;
+        for (int age = 1; age <= 12; age++) {
+            ages = ages == null ? member.age.eq(age) : ages.or(member.age.eq(age));
+        }
+        queryFactory.named("manyBinds").selectFrom(member).where(ages).fetch();
+
+        List<String> expected = new ArrayList<>();
+        for (int label = 1; label <= 12; label++) {
+            expected.add("?" + label);
+        }
+        assertThat(sampler.samples().get(0).getBinds().keySet()).containsExactlyElementsOf(expected);
+    }
+
+    @Test
+    public void ringBufferKeepsLatest(){
+        SlowQuerySampler small = new SlowQuerySampler(Duration.ZERO, 2, false, "study.querydsl");
+        small.sample("q1", "fetch", 1, null);
+        small.sample("q2", "fetch", 1, null);
+        small.sample("q3", "fetch", 1, null);
+
+        List<SlowQuerySample> samples = small.samples();
+        assertThat(samples).extracting("query").containsExactly("q3", "q2");
+    }
+}
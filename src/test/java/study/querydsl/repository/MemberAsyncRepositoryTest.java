@@ -0,0 +1,105 @@
+package study.querydsl.repository;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import study.querydsl.dto.MemberSearchCondition;
+import study.querydsl.dto.MemberTeamDto;
+import study.querydsl.entity.Member;
+import study.querydsl.entity.Team;
+
+import javax.persistence.EntityManager;
+import javax.sql.DataSource;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.RejectedExecutionException;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+//비동기 쿼리는 다른 쓰레드의 다른 트랜잭션이라 테스트 트랜잭션(@Transactional) 안의 데이터는 안보인다.
+//데이터를 커밋하고 끝나면 지운다.
+@SpringBootTest
+class MemberAsyncRepositoryTest {
+
+    @Autowired
+    EntityManager em;
+
+    @Autowired
+    PlatformTransactionManager transactionManager;
+
+    @Autowired
+    DataSource dataSource;
+
+    @Autowired
+    MemberRepositoryImpl memberRepositoryImpl;
+
+    @Autowired
+    MemberAsyncRepository memberAsyncRepository;
+
+    TransactionTemplate tx;
+    String teamName;
+
+    @BeforeEach
+    public void before(){
+        tx = new TransactionTemplate(transactionManager);
+        teamName = "asyncTeam" + System.nanoTime();
+        tx.executeWithoutResult(status -> {
+            Team team = new Team(teamName);
+            em.persist(team);
+            for (int i = 0; i < 5; i++) {
+                em.persist(new Member("member" + i, i, team));
+            }
+        });
+    }
+
+    @AfterEach
+    public void after(){
+        tx.executeWithoutResult(status -> {
+            em.createQuery("delete from Member m where m.team.id in (select t.id from Team t where t.name = :name)")
+                    .setParameter("name", teamName).executeUpdate();
+            em.createQuery("delete from Team t where t.name = :name").setParameter("name", teamName).executeUpdate();
+        });
+    }
+
+    @Test
+    public void searchPage(){
+        MemberSearchCondition condition = new MemberSearchCondition();
+        condition.setTeamName(teamName);
+
+        Page<MemberTeamDto> page = memberAsyncRepository.searchPage(condition, PageRequest.of(0, 2)).join();
+
+        assertThat(page.getContent()).hasSize(2);
+        assertThat(page.getTotalElements()).isEqualTo(5);
+    }
+
+    @Test
+    public void search(){
+        MemberSearchCondition condition = new MemberSearchCondition();
+        condition.setTeamName(teamName);
+        condition.setAgeGoe(3);
+
+        assertThat(memberAsyncRepository.search(condition).join()).extracting("username")
+                .containsExactlyInAnyOrder("member3", "member4");
+    }
+
+    //풀이 꽉 차서 거절되면 기다리지 않고 바로 실패한 future
+    @Test
+    public void rejectedWhenExecutorIsFull(){
+        MemberAsyncRepository full = new MemberAsyncRepository(memberRepositoryImpl,
+                command -> { throw new RejectedExecutionException("full"); },
+                transactionManager, dataSource);
+
+        CompletableFuture<?> future = full.search(new MemberSearchCondition());
+
+        assertThat(future).isCompletedExceptionally();
+        assertThatThrownBy(future::join).isInstanceOf(CompletionException.class)
+                .hasCauseInstanceOf(RejectedExecutionException.class);
+    }
+}
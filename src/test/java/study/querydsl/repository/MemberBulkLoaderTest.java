@@ -0,0 +1,48 @@
+package study.querydsl.repository;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.annotation.Transactional;
+import study.querydsl.dto.BulkLoadResult;
+import study.querydsl.dto.MemberSearchCondition;
+import study.querydsl.entity.Member;
+import study.querydsl.entity.Team;
+
+import javax.persistence.EntityManager;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest
+@Transactional
+class MemberBulkLoaderTest {
+
+    @Autowired
+    EntityManager em;
+
+    @Autowired
+    MemberBulkLoader memberBulkLoader;
+
+    @Autowired
+    MemberRepository memberRepository;
+
+    @Test
+    public void load(){
+        Team teamA = new Team("teamA");
+        em.persist(teamA);
+
+        BulkLoadResult result = memberBulkLoader.load(IntStream.range(0, 1000)
+                .mapToObj(i -> new Member("bulk" + i, i % 100, teamA)));
+
+        assertThat(result.getRows()).isEqualTo(1000);
+        //flush/detach 하면서 team.members도 비워서 저장한 member를 들고 있지 않는다.
+        assertThat(teamA.getMembers()).isEmpty();
+        //저장한 member만 detach 하고 호출한 쪽이 저장한 team은 그대로 영속 상태
+        assertThat(em.contains(teamA)).isTrue();
+
+        MemberSearchCondition condition = new MemberSearchCondition();
+        condition.setTeamName("teamA");
+        assertThat(memberRepository.search(condition)).hasSize(1000);
+    }
+}
@@ -0,0 +1,81 @@
+package study.querydsl.repository;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.annotation.Transactional;
+import study.querydsl.dto.BulkMutationResult;
+import study.querydsl.entity.Member;
+import study.querydsl.entity.Team;
+
+import javax.persistence.EntityManager;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static study.querydsl.entity.QMember.member;
+import static study.querydsl.entity.QTeam.team;
+
+@SpringBootTest
+@Transactional
+class MemberBulkMutatorTest {
+
+    @Autowired
+    EntityManager em;
+
+    @Autowired
+    MemberBulkMutator memberBulkMutator;
+
+    @Autowired
+    MemberJpaRepository memberJpaRepository;
+
+    Member member1;
+    Member member3;
+
+    @BeforeEach
+    public void before(){
+        Team teamA = new Team("teamA");
+        Team teamB = new Team("teamB");
+        em.persist(teamA);
+        em.persist(teamB);
+
+        member1 = new Member("member1",10,teamA);
+        em.persist(member1);
+        em.persist(new Member("member2",20,teamA));
+        member3 = new Member("member3",30,teamB);
+        em.persist(member3);
+        em.persist(new Member("member4",40,teamB));
+    }
+
+    //QuerydslBasicTest.bulkUpdate 와 같은데 em.flush(); em.clear(); 없이도 바뀐 값이 조회된다.
+    @Test
+    public void bulkUpdate(){
+        BulkMutationResult result = memberBulkMutator.update(member.age.lt(28),
+                clause -> clause.set(member.username, "비회원"));
+
+        assertThat(result.getTotalCount()).isEqualTo(2);
+        assertThat(memberJpaRepository.findById(member1.getId()).get().getUsername()).isEqualTo("비회원");
+        //바뀌지 않은 member는 영속성 컨텍스트에 그대로 남아있다.
+        assertThat(em.contains(member3)).isTrue();
+        assertThat(em.contains(member1)).isFalse();
+    }
+
+    @Test
+    public void bulkUpdateByChunk(){
+        BulkMutationResult result = memberBulkMutator.update(team.name.eq("teamB"),
+                clause -> clause.set(member.age, member.age.add(1)), 1);
+
+        assertThat(result.getTotalCount()).isEqualTo(2);
+        assertThat(result.getChunkCounts()).containsExactly(1L, 1L); //키셋이라 빈 chunk가 없다.
+        List<Member> members = memberJpaRepository.findByUsername_Querydsl("member3");
+        assertThat(members).extracting("age").containsExactly(31);
+    }
+
+    @Test
+    public void bulkDelete(){
+        BulkMutationResult result = memberBulkMutator.delete(member.age.gt(18));
+
+        assertThat(result.getTotalCount()).isEqualTo(3);
+        assertThat(memberJpaRepository.findAll_Querydsl()).containsExactly(member1);
+    }
+}
@@ -0,0 +1,127 @@
+package study.querydsl.repository;
+
+import com.querydsl.jpa.impl.JPAQueryFactory;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.annotation.Transactional;
+import study.querydsl.dto.MemberSearchCondition;
+import study.querydsl.entity.Member;
+import study.querydsl.entity.Team;
+import study.querydsl.metrics.QueryStatementInspector;
+
+import javax.persistence.EntityManager;
+import java.util.Locale;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static study.querydsl.entity.QMember.member;
+import static study.querydsl.entity.QTeam.team;
+
+@SpringBootTest
+@Transactional
+class MemberCountQueryTest {
+
+    private static final int TIMED_RUNS = 5;
+
+    @Autowired
+    EntityManager em;
+
+    @Autowired
+    MemberRepositoryImpl memberRepositoryImpl;
+
+    @Test
+    public void countQueryWithoutTeamCondition(){
+        MemberSearchCondition condition = new MemberSearchCondition();
+        condition.setAgeGoe(20);
+
+        String jpql = MemberSearchTemplates.countJpql(MemberSearchTemplates.mask(condition));
+
+        //팀 조건이 없으면 조인 없이 count(id)만
+        assertThat(jpql).contains("count(member1.id)");
+        assertThat(jpql).doesNotContain("join");
+
+        //hibernate가 실제로 보낸 SQL도 조인 없이 count(member_id)
+        memberRepositoryImpl.exactCount(condition);
+        String sql = QueryStatementInspector.lastSql().toLowerCase(Locale.ROOT);
+        assertThat(sql).containsPattern("count\\(\\w+\\.member_id\\)");
+        assertThat(sql).doesNotContain("join");
+    }
+
+    @Test
+    public void countQueryWithTeamCondition(){
+        Team teamA = new Team("teamA");
+        Team teamB = new Team("teamB");
+        em.persist(teamA);
+        em.persist(teamB);
+        em.persist(new Member("member1", 10, teamA));
+        em.persist(new Member("member2", 20, teamA));
+        em.persist(new Member("member3", 30, teamB));
+        em.persist(new Member("member4", 40));
+
+        MemberSearchCondition condition = new MemberSearchCondition();
+        condition.setTeamName("teamA");
+
+        //팀 조건이 있으면 inner join (팀 없는 member는 어차피 조건에서 빠진다)
+        assertThat(MemberSearchTemplates.countJpql(MemberSearchTemplates.mask(condition))).contains("inner join member1.team as team");
+        assertThat(memberRepositoryImpl.exactCount(condition)).isEqualTo(legacyCount(condition));
+        //팀이 없는 member도 조인 없는 count에서 빠지지 않는다.
+        assertThat(memberRepositoryImpl.exactCount(new MemberSearchCondition()))
+                .isEqualTo(legacyCount(new MemberSearchCondition()));
+    }
+
+    /**
+     * 100만건에서 기존 count(select member + left join)와 비교
+     * 오래 걸리기 때문에 ./gradlew perfTest 로만 돈다.
+     */
+    @Test
+    @Tag("perf")
+    public void countQueryOneMillionRows(){
+        Team teamA = new Team("teamA");
+        em.persist(teamA);
+        em.flush();
+        em.createNativeQuery("insert into member (member_id, username, age, team_id)" +
+                " select x + 100000000, concat('bulk', x), mod(x, 100), ?1 from system_range(1, 1000000)")
+                .setParameter(1, teamA.getId())
+                .executeUpdate();
+
+        MemberSearchCondition condition = new MemberSearchCondition();
+        condition.setAgeGoe(20);
+
+        //워밍업
+        legacyCount(condition);
+        memberRepositoryImpl.exactCount(condition);
+
+        //GC 등으로 한번씩 튀는 걸 빼려고 여러번 돌려서 가장 빠른 시간끼리 비교한다.
+        long legacy = 0;
+        long count = 0;
+        long legacyMillis = Long.MAX_VALUE;
+        long millis = Long.MAX_VALUE;
+        for (int i = 0; i < TIMED_RUNS; i++) {
+            long legacyStart = System.nanoTime();
+            legacy = legacyCount(condition);
+            legacyMillis = Math.min(legacyMillis, (System.nanoTime() - legacyStart) / 1_000_000);
+
+            long start = System.nanoTime();
+            count = memberRepositoryImpl.exactCount(condition);
+            millis = Math.min(millis, (System.nanoTime() - start) / 1_000_000);
+        }
+
+        System.out.println("legacy count = " + legacy + " (best of " + TIMED_RUNS + ": " + legacyMillis + "ms)");
+        System.out.println("count(member.id) = " + count + " (best of " + TIMED_RUNS + ": " + millis + "ms)");
+        assertThat(count).isEqualTo(legacy);
+        //조인이 빠진 count가 기존 count보다 느리면 안된다.
+        assertThat(millis).isLessThanOrEqualTo(legacyMillis);
+    }
+
+    //변경 전 count 쿼리
+    private long legacyCount(MemberSearchCondition condition) {
+        return new JPAQueryFactory(em).select(member)
+                .from(member)
+                .leftJoin(member.team, team)
+                .where(
+                        condition.getTeamName() != null ? team.name.eq(condition.getTeamName()) : null,
+                        condition.getAgeGoe() != null ? member.age.goe(condition.getAgeGoe()) : null
+                ).fetchCount();
+    }
+}
@@ -0,0 +1,194 @@
+package study.querydsl.repository;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import study.querydsl.dto.MemberSearchCondition;
+import study.querydsl.dto.MemberTeamDto;
+import study.querydsl.entity.Member;
+import study.querydsl.entity.Team;
+import study.querydsl.metrics.InstrumentedJPAQueryFactory;
+import study.querydsl.metrics.QueryMetrics;
+import study.querydsl.metrics.QueryStatementInspector;
+
+import javax.persistence.EntityManager;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+//DEFERRED count는 다른 쓰레드의 다른 트랜잭션이라 테스트 트랜잭션(@Transactional) 안의 데이터는 안보인다.
+//데이터를 커밋하고 끝나면 지운다. (MemberAsyncRepositoryTest와 같은 방식)
+@SpringBootTest
+class MemberCountStrategyTest {
+
+    @Autowired
+    EntityManager em;
+
+    @Autowired
+    PlatformTransactionManager transactionManager;
+
+    @Autowired
+    InstrumentedJPAQueryFactory queryFactory;
+
+    @Autowired
+    QueryMetrics queryMetrics;
+
+    @Autowired
+    MemberSearchTemplates templates;
+
+    @Autowired
+    MemberCountCache countCache;
+
+    @Autowired
+    MemberSearchCache searchCache;
+
+    @Autowired
+    MemberNameIndex nameIndex;
+
+    @Autowired
+    MemberSearchViewRepository searchView;
+
+    @Autowired
+    @Qualifier("repositoryQueryExecutor")
+    Executor queryExecutor;
+
+    @Autowired
+    MemberRepositoryImpl memberRepositoryImpl;
+
+    TransactionTemplate tx;
+    String teamName;
+
+    @BeforeEach
+    public void before(){
+        tx = new TransactionTemplate(transactionManager);
+        teamName = "countTeam" + System.nanoTime();
+        tx.executeWithoutResult(status -> {
+            Team team = new Team(teamName);
+            em.persist(team);
+            for (int i = 0; i < 5; i++) {
+                em.persist(new Member("member" + i, i, team));
+            }
+        });
+    }
+
+    @AfterEach
+    public void after(){
+        tx.executeWithoutResult(status -> {
+            em.createQuery("delete from Member m where m.team.id in (select t.id from Team t where t.name = :name)")
+                    .setParameter("name", teamName).executeUpdate();
+            em.createQuery("delete from Team t where t.name = :name").setParameter("name", teamName).executeUpdate();
+        });
+    }
+
+    //count는 풀의 쓰레드에서 돈다. 요청 쓰레드에는 content 쿼리만 남는다.
+    @Test
+    public void deferredCountRunsOnExecutor(){
+        AtomicInteger submitted = new AtomicInteger();
+        MemberRepositoryImpl repository = repository(command -> {
+            submitted.incrementAndGet();
+            queryExecutor.execute(command);
+        });
+
+        QueryStatementInspector.startRecording();
+        List<String> statements;
+        Page<MemberTeamDto> page;
+        try {
+            page = readOnly(() -> repository.searchPageComplex(teamCondition(), PageRequest.of(0, 2), MemberCountStrategy.DEFERRED));
+        } finally {
+            statements = QueryStatementInspector.stopRecording();
+        }
+
+        assertThat(page.getContent()).hasSize(2);
+        assertThat(page.getTotalElements()).isEqualTo(5);
+        assertThat(submitted).hasValue(1);
+        assertThat(statements).noneMatch(sql -> sql.contains("count("));
+    }
+
+    //풀이 꽉 차서 거절되면 실패하지 않고 content 다음에 요청 쓰레드에서 count
+    @Test
+    public void deferredCountFallsBackWhenExecutorRejects(){
+        AtomicInteger rejected = new AtomicInteger();
+        MemberRepositoryImpl repository = repository(command -> {
+            rejected.incrementAndGet();
+            throw new RejectedExecutionException("full");
+        });
+
+        QueryStatementInspector.startRecording();
+        List<String> statements;
+        Page<MemberTeamDto> page;
+        try {
+            page = readOnly(() -> repository.searchPageComplex(teamCondition(), PageRequest.of(0, 2), MemberCountStrategy.DEFERRED));
+        } finally {
+            statements = QueryStatementInspector.stopRecording();
+        }
+
+        assertThat(page.getContent()).hasSize(2);
+        assertThat(page.getTotalElements()).isEqualTo(5);
+        assertThat(rejected).hasValue(1);
+        assertThat(statements).anyMatch(sql -> sql.contains("count("));
+    }
+
+    //조건이 있으면 통계로 알 수 없으니 정확한 count
+    @Test
+    public void estimatedCountWithConditionIsExact(){
+        Page<MemberTeamDto> page = memberRepositoryImpl.searchPageComplex(teamCondition(), PageRequest.of(0, 2), MemberCountStrategy.ESTIMATED);
+
+        assertThat(page.getTotalElements()).isEqualTo(5);
+    }
+
+    //조건이 없으면 count 쿼리 없이 테이블 통계(H2 row_count_estimate)
+    @Test
+    public void estimatedCountWithoutConditionReadsStatistics(){
+        QueryStatementInspector.startRecording();
+        List<String> statements;
+        Page<MemberTeamDto> page;
+        try {
+            page = memberRepositoryImpl.searchPageComplex(new MemberSearchCondition(), PageRequest.of(0, 2), MemberCountStrategy.ESTIMATED);
+        } finally {
+            statements = QueryStatementInspector.stopRecording();
+        }
+
+        assertThat(page.getTotalElements()).isGreaterThanOrEqualTo(5);
+        assertThat(statements).anyMatch(sql -> sql.contains("row_count_estimate"));
+        assertThat(statements).noneMatch(sql -> sql.contains("count("));
+    }
+
+    @Test
+    public void estimateQueryPerDatabase(){
+        assertThat(MemberRowEstimates.sql("H2")).contains("row_count_estimate");
+        assertThat(MemberRowEstimates.sql("PostgreSQL")).contains("pg_class");
+        assertThat(MemberRowEstimates.sql("MySQL")).contains("table_rows");
+        assertThat(MemberRowEstimates.sql("MariaDB")).contains("table_rows");
+        //모르는 DB는 정확한 count로 넘어간다.
+        assertThat(MemberRowEstimates.sql("Oracle")).isNull();
+    }
+
+    private MemberRepositoryImpl repository(Executor executor) {
+        return new MemberRepositoryImpl(em, queryFactory, queryMetrics, templates, countCache, searchCache,
+                nameIndex, searchView, executor, transactionManager);
+    }
+
+    //직접 만든 MemberRepositoryImpl은 @Transactional 프록시가 없어서
+    private <T> T readOnly(Supplier<T> work) {
+        TransactionTemplate readOnlyTx = new TransactionTemplate(transactionManager);
+        readOnlyTx.setReadOnly(true);
+        return readOnlyTx.execute(status -> work.get());
+    }
+
+    private MemberSearchCondition teamCondition() {
+        MemberSearchCondition condition = new MemberSearchCondition();
+        condition.setTeamName(teamName);
+        return condition;
+    }
+}
@@ -0,0 +1,100 @@
+package study.querydsl.repository;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.annotation.Transactional;
+import study.querydsl.dto.MemberSearchCondition;
+import study.querydsl.dto.MemberTeamDto;
+import study.querydsl.dto.UserDto;
+import study.querydsl.entity.Member;
+import study.querydsl.entity.Team;
+import study.querydsl.projection.MemberTeamRowView;
+import study.querydsl.projection.ResultSetMapper;
+
+import javax.persistence.EntityManager;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+@SpringBootTest
+@Transactional
+class MemberExportRepositoryTest {
+
+    @Autowired
+    EntityManager em;
+
+    @Autowired
+    MemberRepository memberRepository;
+
+    @Autowired
+    MemberExportRepository exportRepository;
+
+    @BeforeEach
+    public void before(){
+        Team teamA = new Team("teamA");
+        Team teamB = new Team("teamB");
+        em.persist(teamA);
+        em.persist(teamB);
+        em.persist(new Member("member1", 10, teamA));
+        em.persist(new Member("member2", 20, teamA));
+        em.persist(new Member("Member3", 30, teamB));
+        em.persist(new Member("member4", 40));
+        em.flush(); //JDBC로 바로 읽기 때문에 flush 해야 보인다.
+    }
+
+    @Test
+    public void sameRowsAsSearch(){
+        MemberSearchCondition byTeam = new MemberSearchCondition();
+        byTeam.setTeamNames(Arrays.asList("teamA", "teamB"));
+        byTeam.setAgeGoe(20);
+
+        MemberSearchCondition byPrefix = new MemberSearchCondition();
+        byPrefix.setUsernamePrefix("MEMBER");
+        byPrefix.setAgeLoe(40);
+
+        for (MemberSearchCondition condition : Arrays.asList(byTeam, byPrefix)) {
+            List<MemberTeamDto> expected = new ArrayList<>(memberRepository.search(condition));
+            expected.sort(Comparator.comparing(MemberTeamDto::getMemberId));
+
+            List<MemberTeamDto> mapped = new ArrayList<>();
+            exportRepository.export(condition, 2, mapped::add);
+            List<MemberTeamDto> viewed = new ArrayList<>();
+            exportRepository.exportRows(condition, 2, row -> viewed.add(row.toDto()));
+
+            assertThat(mapped).isEqualTo(expected);
+            assertThat(viewed).isEqualTo(expected);
+        }
+    }
+
+    @Test
+    public void rowViewIsReused(){
+        MemberSearchCondition condition = new MemberSearchCondition();
+        condition.setUsernamePrefix("member");
+        List<MemberTeamRowView> views = new ArrayList<>();
+        List<Long> teamIds = new ArrayList<>();
+        exportRepository.exportRows(condition, 100, row -> {
+            views.add(row);
+            teamIds.add(row.hasTeam() ? row.getTeamId() : null);
+        });
+
+        assertThat(views).hasSize(4);
+        assertThat(views.stream().distinct().collect(Collectors.toList())).hasSize(1);
+        //팀 없는 member4
+        assertThat(teamIds.get(3)).isNull();
+    }
+
+    @Test
+    public void mapperNeedsSingleConstructor(){
+        //UserDto는 기본 생성자만 있다.
+        assertThatThrownBy(() -> ResultSetMapper.of(UserDto.class)).isInstanceOf(IllegalArgumentException.class);
+        assertThat(ResultSetMapper.of(MemberTeamDto.class)).isSameAs(ResultSetMapper.of(MemberTeamDto.class));
+        assertThat(ResultSetMapper.of(MemberTeamDto.class).getColumnCount()).isEqualTo(5);
+    }
+}
@@ -1,17 +1,24 @@
 package study.querydsl.repository;
 
+import org.hibernate.Session;
+import org.hibernate.annotations.QueryHints;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.transaction.annotation.Transactional;
+import study.querydsl.StatementCounter;
 import study.querydsl.dto.MemberSearchCondition;
 import study.querydsl.dto.MemberTeamDto;
 import study.querydsl.entity.Member;
 import study.querydsl.entity.Team;
 
 import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
 
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
+import java.util.stream.Collectors;
 
 import static org.assertj.core.api.Assertions.*;
 
@@ -22,6 +29,9 @@ class MemberJpaRepositoryTest {
     @Autowired
     EntityManager em;
 
+    @Autowired
+    EntityManagerFactory emf;
+
     @Autowired
     MemberJpaRepository memberJpaRepository;
 
@@ -75,6 +85,96 @@ class MemberJpaRepositoryTest {
         //username이 정확하게 member4인가.
     }
 
+    @Test
+    public void streamSearch(){
+        persistMembersWithTeams(3);
+        MemberSearchCondition condition = new MemberSearchCondition();
+        condition.setAgeGoe(2);
+        condition.setTeamNames(Arrays.asList("team1", "team2"));
+
+        //fetchSize보다 row가 많아도 search와 같은 row가 전부 나온다.
+        List<MemberTeamDto> streamed = new ArrayList<>();
+        memberJpaRepository.streamSearch(condition, 2, streamed::add);
+        assertThat(streamed).hasSize(4).containsExactlyInAnyOrderElementsOf(memberJpaRepository.search(condition));
+
+        //fetchSize가 hibernate 힌트로 들어간다.
+        assertThat(memberJpaRepository.streamQuery(condition, 2).createQuery().getHints())
+                .containsEntry(QueryHints.FETCH_SIZE, 2);
+    }
+
+    //팀 5개에 member 10명, team 이름까지 읽는다.
+    @Test
+    public void lazyTeamIsNPlusOne(){
+        persistMembersWithTeams(5);
+        StatementCounter counter = new StatementCounter(emf);
+
+        assertThatThrownBy(() -> counter.assertAtMost(2, () -> teamNames(memberJpaRepository.findAll_Querydsl())))
+                .isInstanceOf(AssertionError.class);
+    }
+
+    @Test
+    public void fetchPlans(){
+        persistMembersWithTeams(5);
+        StatementCounter counter = new StatementCounter(emf);
+
+        assertThat(counter.assertAtMost(1, () -> teamNames(memberJpaRepository.findAll_Querydsl(MemberFetchPlan.fetchJoinTeam()))))
+                .hasSize(10);
+        em.clear();
+        assertThat(counter.assertAtMost(1, () -> teamNames(memberJpaRepository.findAll_Querydsl(MemberFetchPlan.teamGraph()))))
+                .hasSize(10);
+        em.clear();
+        //member 1번 + team 5개를 2개씩 3번
+        assertThat(counter.assertAtMost(4, () -> teamNames(memberJpaRepository.findAll_Querydsl(MemberFetchPlan.batchTeam(2)))))
+                .hasSize(10);
+        em.clear();
+        assertThat(counter.assertAtMost(1, () -> teamNames(memberJpaRepository.findByUsername_Querydsl("member3", MemberFetchPlan.fetchJoinTeam()))))
+                .containsExactly("team1");
+    }
+
+    @Test
+    public void readOnlyFetchPlan(){
+        persistMembersWithTeams(2);
+        Session session = em.unwrap(Session.class);
+
+        List<Member> members = memberJpaRepository.findAll_Querydsl(MemberFetchPlan.fetchJoinTeam().readOnly());
+        assertThat(members).hasSize(4).allMatch(session::isReadOnly);
+        assertThat(members).allMatch(m -> session.isReadOnly(m.getTeam()));
+
+        //쓰기 트랜잭션 안이어도 read-only로 읽은 entity는 바꿔도 update가 안나간다.
+        members.get(0).setUsername("changed");
+        em.flush();
+        em.clear();
+        assertThat(memberJpaRepository.findByUsername_Querydsl("changed")).isEmpty();
+    }
+
+    @Test
+    public void statelessFetchPlan(){
+        persistMembersWithTeams(2);
+
+        List<Member> members = memberJpaRepository.findAll_Querydsl(MemberFetchPlan.fetchJoinTeam().stateless());
+
+        //영속성 컨텍스트에 안올라간다.
+        assertThat(members).hasSize(4).noneMatch(em::contains);
+        assertThat(teamNames(members)).containsOnly("team0", "team1");
+        assertThatThrownBy(() -> MemberFetchPlan.batchTeam(10).stateless())
+                .isInstanceOf(IllegalStateException.class);
+    }
+
+    private void persistMembersWithTeams(int teamCount){
+        for (int i = 0; i < teamCount; i++) {
+            Team team = new Team("team" + i);
+            em.persist(team);
+            em.persist(new Member("member" + (i * 2), i * 2, team));
+            em.persist(new Member("member" + (i * 2 + 1), i * 2 + 1, team));
+        }
+        em.flush();
+        em.clear();
+    }
+
+    private List<String> teamNames(List<Member> members){
+        return members.stream().map(m -> m.getTeam().getName()).collect(Collectors.toList());
+    }
+
 
 
 }
\ No newline at end of file
@@ -0,0 +1,109 @@
+package study.querydsl.repository;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.transaction.annotation.Transactional;
+import study.querydsl.dto.MemberSearchCondition;
+import study.querydsl.dto.MemberTeamDto;
+import study.querydsl.entity.Member;
+import study.querydsl.entity.Team;
+
+import javax.persistence.EntityManager;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest
+@Transactional
+class MemberNameIndexTest {
+
+    @Autowired
+    EntityManager em;
+
+    @Autowired
+    MemberRepository memberRepository;
+
+    private Member alice;
+
+    @BeforeEach
+    public void before(){
+        Team engineering = new Team("engineering");
+        Team marketing = new Team("marketing");
+        em.persist(engineering);
+        em.persist(marketing);
+        alice = new Member("Alice", 10, engineering);
+        em.persist(alice);
+        em.persist(new Member("alfred", 20, engineering));
+        em.persist(new Member("bob", 30, marketing));
+        em.persist(new Member("albert", 40));
+        em.flush();
+    }
+
+    @Test
+    public void usernamePrefix(){
+        MemberSearchCondition condition = new MemberSearchCondition();
+        condition.setUsernamePrefix("AL");
+
+        //대소문자 무시
+        assertThat(usernames(memberRepository.search(condition))).containsExactlyInAnyOrder("Alice", "alfred", "albert");
+
+        condition.setAgeGoe(20);
+        assertThat(usernames(memberRepository.search(condition))).containsExactlyInAnyOrder("alfred", "albert");
+        assertThat(memberRepository.searchPageComplex(condition, PageRequest.of(0, 1)).getTotalElements()).isEqualTo(2);
+    }
+
+    @Test
+    public void fuzzyQuery(){
+        MemberSearchCondition condition = new MemberSearchCondition();
+        condition.setQuery("alfrde");
+        assertThat(usernames(memberRepository.search(condition))).contains("alfred").doesNotContain("bob");
+
+        //팀 이름이 비슷하면 그 팀의 member
+        condition.setQuery("marketting");
+        assertThat(usernames(memberRepository.search(condition))).containsExactly("bob");
+
+        condition.setQuery("zzzzzz");
+        assertThat(memberRepository.search(condition)).isEmpty();
+    }
+
+    @Test
+    public void followsEntityChanges(){
+        MemberSearchCondition condition = new MemberSearchCondition();
+        condition.setUsernamePrefix("ali");
+        assertThat(usernames(memberRepository.search(condition))).containsExactly("Alice");
+
+        //flush 때 이벤트가 오고 다음 검색에서 바뀐 id만 다시 읽는다.
+        alice.setUsername("carol");
+        em.flush();
+        assertThat(memberRepository.search(condition)).isEmpty();
+
+        condition.setUsernamePrefix("car");
+        assertThat(usernames(memberRepository.search(condition))).containsExactly("carol");
+
+        em.remove(alice);
+        em.flush();
+        assertThat(memberRepository.search(condition)).isEmpty();
+    }
+
+    @Test
+    public void searchBatchWithIndexCriteria(){
+        MemberSearchCondition prefix = new MemberSearchCondition();
+        prefix.setUsernamePrefix("al");
+        MemberSearchCondition query = new MemberSearchCondition();
+        query.setQuery("bobb");
+
+        List<List<MemberTeamDto>> results = memberRepository.searchBatch(Arrays.asList(prefix, query));
+
+        assertThat(usernames(results.get(0))).containsExactlyInAnyOrder("Alice", "alfred", "albert");
+        assertThat(usernames(results.get(1))).containsExactly("bob");
+    }
+
+    private static List<String> usernames(List<MemberTeamDto> rows) {
+        return rows.stream().map(MemberTeamDto::getUsername).collect(Collectors.toList());
+    }
+}
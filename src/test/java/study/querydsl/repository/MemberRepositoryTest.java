@@ -6,12 +6,17 @@ import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.transaction.annotation.Transactional;
+import study.querydsl.dto.MemberCursor;
 import study.querydsl.dto.MemberSearchCondition;
+import study.querydsl.dto.MemberSlice;
 import study.querydsl.dto.MemberTeamDto;
 import study.querydsl.entity.Member;
 import study.querydsl.entity.Team;
 
 import javax.persistence.EntityManager;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
 
 import static org.assertj.core.api.Assertions.assertThat;
@@ -105,5 +110,124 @@ public class MemberRepositoryTest {
         assertThat(result.getContent()).extracting("username").containsExactly("member1");
     }
 
+    @Test
+    public void searchSlice(){
+        Team teamA = new Team("teamA");
+        Team teamB = new Team("teamB");
+        em.persist(teamA);
+        em.persist(teamB);
+
+        em.persist(new Member("member1",40,teamA));
+        em.persist(new Member("member2",20,teamA));
+        em.persist(new Member("member3",20,teamB));
+        em.persist(new Member("member4",10,teamB));
+
+        MemberSearchCondition condition= new MemberSearchCondition();
+
+        //(age, memberId) 순서로 2개씩
+        MemberSlice first = memberRepository.searchSlice(condition, MemberCursor.firstByAge(), 2);
+        assertThat(first.getContent()).extracting("username").containsExactly("member4", "member2");
+        assertThat(first.isHasNext()).isTrue();
+
+        MemberSlice second = memberRepository.searchSlice(condition, MemberCursor.decode(first.getNextCursor()), 2);
+        assertThat(second.getContent()).extracting("username").containsExactly("member3", "member1");
+        assertThat(second.isHasNext()).isFalse();
+        assertThat(second.getNextCursor()).isNull();
+
+        //memberId 순서 + 다른 조건과 같이 사용
+        condition.setTeamName("teamA");
+        MemberSlice byId = memberRepository.searchSlice(condition, MemberCursor.first(), 1);
+        assertThat(byId.getContent()).extracting("username").containsExactly("member1");
+
+        MemberSlice byIdNext = memberRepository.searchSlice(condition, MemberCursor.decode(byId.getNextCursor()), 1);
+        assertThat(byIdNext.getContent()).extracting("username").containsExactly("member2");
+    }
+
+    @Test
+    public void searchPageComplexCachedCount(){
+        Team teamA = new Team("teamA");
+        em.persist(teamA);
+        for (int i = 0; i < 4; i++) {
+            em.persist(new Member("member" + i, 10 + i, teamA));
+        }
+
+        MemberSearchCondition condition = new MemberSearchCondition();
+        condition.setTeamName("teamA");
+        PageRequest pageRequest = PageRequest.of(0, 2);
+
+        Page<MemberTeamDto> first = memberRepository.searchPageComplex(condition, pageRequest, MemberCountStrategy.CACHED);
+        assertThat(first.getTotalElements()).isEqualTo(4);
 
+        //member가 insert되면(flush) 캐시가 비워져서 다시 센다.
+        em.persist(new Member("member4", 14, teamA));
+        em.flush();
+
+        Page<MemberTeamDto> second = memberRepository.searchPageComplex(condition, pageRequest, MemberCountStrategy.CACHED);
+        assertThat(second.getTotalElements()).isEqualTo(5);
+    }
+
+    @Test
+    public void searchWithCollectionCriteria(){
+        Team teamA = new Team("teamA");
+        Team teamB = new Team("teamB");
+        em.persist(teamA);
+        em.persist(teamB);
+        Member member1 = new Member("member1",10,teamA);
+        em.persist(member1);
+        em.persist(new Member("member2",20,teamA));
+        em.persist(new Member("member3",30,teamB));
+        em.persist(new Member("member4",40,teamB));
+
+        MemberSearchCondition condition = new MemberSearchCondition();
+        condition.setUsernames(Arrays.asList("member1", "member3", "member4", "member9"));
+        condition.setTeamNames(Collections.singletonList("teamB"));
+        assertThat(memberRepository.search(condition)).extracting("username").containsExactlyInAnyOrder("member3", "member4");
+
+        //in 목록이 바인딩 파라미터 한도보다 커도 (조건을 나눠서 여러번 가져와 합쳐서) 같은 결과
+        List<Long> ids = new ArrayList<>();
+        for (long id = -MemberSearchChunks.MAX_BINDS_PER_STATEMENT * 2; id < 0; id++) {
+            ids.add(id);
+        }
+        ids.add(member1.getId());
+        MemberSearchCondition byIds = new MemberSearchCondition();
+        byIds.setMemberIds(ids);
+        assertThat(memberRepository.search(byIds)).extracting("username").containsExactly("member1");
+
+        Page<MemberTeamDto> page = memberRepository.searchPageSimple(condition, PageRequest.of(0, 1));
+        assertThat(page.getContent()).hasSize(1);
+        assertThat(page.getTotalElements()).isEqualTo(2);
+    }
+
+    @Test
+    public void searchBatch(){
+        Team teamA = new Team("teamA");
+        Team teamB = new Team("teamB");
+        em.persist(teamA);
+        em.persist(teamB);
+        em.persist(new Member("member1",10,teamA));
+        em.persist(new Member("member2",20,teamA));
+        em.persist(new Member("member3",30,teamB));
+        em.persist(new Member("member4",40,teamB));
+
+        MemberSearchCondition byName1 = new MemberSearchCondition();
+        byName1.setUsername("member1");
+        MemberSearchCondition byName4 = new MemberSearchCondition();
+        byName4.setUsername("member4");
+        MemberSearchCondition teamBOver35 = new MemberSearchCondition();
+        teamBOver35.setTeamName("teamB");
+        teamBOver35.setAgeGoe(35);
+        MemberSearchCondition nobody = new MemberSearchCondition();
+        nobody.setUsername("nobody");
+
+        List<List<MemberTeamDto>> result = memberRepository.searchBatch(Arrays.asList(byName1, byName4, teamBOver35, nobody));
+
+        assertThat(result).hasSize(4);
+        assertThat(result.get(0)).extracting("username").containsExactly("member1");
+        assertThat(result.get(1)).extracting("username").containsExactly("member4");
+        assertThat(result.get(2)).extracting("username").containsExactly("member4");
+        assertThat(result.get(3)).isEmpty();
+        //조건마다 따로 검색한 것과 같다.
+        assertThat(result.get(2)).usingFieldByFieldElementComparator()
+                .containsExactlyElementsOf(memberRepository.search(teamBOver35));
+    }
 }
@@ -0,0 +1,107 @@
+package study.querydsl.repository;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.annotation.Transactional;
+import study.querydsl.dto.MemberSearchCondition;
+import study.querydsl.dto.MemberTeamDto;
+import study.querydsl.entity.Member;
+import study.querydsl.entity.Team;
+
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest(properties = "querydsl.search-cache.enabled=true")
+@Transactional
+class MemberSearchCacheTest {
+
+    @Autowired
+    EntityManager em;
+
+    @Autowired
+    EntityManagerFactory emf;
+
+    @Autowired
+    MemberRepository memberRepository;
+
+    @Autowired
+    MemberSearchTemplates templates;
+
+    @Autowired
+    MemberSearchCache searchCache;
+
+    @Autowired
+    MeterRegistry meterRegistry;
+
+    Team teamA;
+
+    @BeforeEach
+    public void before(){
+        searchCache.invalidateAll();
+        teamA = new Team("teamA");
+        Team teamB = new Team("teamB");
+        em.persist(teamA);
+        em.persist(teamB);
+
+        em.persist(new Member("member1",10,teamA));
+        em.persist(new Member("member2",20,teamA));
+        em.persist(new Member("member3",30,teamB));
+        em.persist(new Member("member4",40,teamB));
+        em.flush();
+    }
+
+    @Test
+    public void sameConditionHitsCache(){
+        MemberSearchCondition condition = new MemberSearchCondition();
+        condition.setTeamName("teamB");
+        List<MemberTeamDto> first = memberRepository.search(condition);
+        long lookups = templates.getMisses() + templates.getHits();
+
+        //빈 문자열 username은 없는 조건이랑 같은 key
+        MemberSearchCondition same = new MemberSearchCondition();
+        same.setTeamName("teamB");
+        same.setUsername("");
+        List<MemberTeamDto> second = memberRepository.search(same);
+
+        assertThat(second).isSameAs(first);
+        assertThat(templates.getMisses() + templates.getHits()).isEqualTo(lookups); //쿼리를 안만들었다.
+        assertThat(meterRegistry.get("cache.gets").tag("cache", MemberSearchCache.CACHE_NAME)
+                .tag("result", "hit").functionCounter().count()).isGreaterThanOrEqualTo(1);
+    }
+
+    @Test
+    public void invalidatedWhenMemberChanges(){
+        MemberSearchCondition condition = new MemberSearchCondition();
+        condition.setTeamName("teamA");
+        assertThat(memberRepository.search(condition)).hasSize(2);
+
+        em.persist(new Member("member5",50,teamA));
+        em.flush(); //insert 이벤트로 캐시가 비워진다.
+
+        assertThat(memberRepository.search(condition)).extracting("username")
+                .containsExactlyInAnyOrder("member1", "member2", "member5");
+    }
+
+    //team은 2차 캐시, 영속성 컨텍스트를 비워도 DB에 안간다.
+    @Test
+    public void teamSecondLevelCache(){
+        Statistics statistics = emf.unwrap(SessionFactory.class).getStatistics();
+        em.clear();
+        em.find(Team.class, teamA.getId()); //DB에서 읽고 2차 캐시에 넣는다.
+        em.clear();
+        long hits = statistics.getSecondLevelCacheHitCount();
+
+        Team team = em.find(Team.class, teamA.getId());
+
+        assertThat(team.getName()).isEqualTo("teamA");
+        assertThat(statistics.getSecondLevelCacheHitCount()).isEqualTo(hits + 1);
+    }
+}
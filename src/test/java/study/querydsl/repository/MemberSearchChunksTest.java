@@ -0,0 +1,181 @@
+package study.querydsl.repository;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.transaction.annotation.Transactional;
+import study.querydsl.dto.MemberCursor;
+import study.querydsl.dto.MemberSearchCondition;
+import study.querydsl.dto.MemberSlice;
+import study.querydsl.dto.MemberTeamDto;
+import study.querydsl.entity.Member;
+import study.querydsl.entity.Team;
+import study.querydsl.metrics.QueryStatementInspector;
+
+import javax.persistence.EntityManager;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static study.querydsl.repository.MemberSearchChunks.MAX_BINDS_PER_STATEMENT;
+
+@SpringBootTest
+@Transactional
+class MemberSearchChunksTest {
+
+    @Autowired
+    EntityManager em;
+
+    @Autowired
+    MemberRepository memberRepository;
+
+    @Autowired
+    MemberJpaRepository memberJpaRepository;
+
+    @Autowired
+    MemberSearchRepository memberSearchRepository;
+
+    @Autowired
+    MemberExportRepository exportRepository;
+
+    private List<Long> memberIds;
+
+    @BeforeEach
+    public void before(){
+        Team teamA = new Team("teamA");
+        Team teamB = new Team("teamB");
+        em.persist(teamA);
+        em.persist(teamB);
+        List<Member> members = Arrays.asList(
+                new Member("member1", 10, teamA),
+                new Member("member2", 20, teamA),
+                new Member("member3", 30, teamB),
+                new Member("member4", 40, teamB));
+        members.forEach(em::persist);
+        em.flush(); //querydsl-sql은 JDBC로 바로 읽기 때문에 flush 해야 보인다.
+        memberIds = members.stream().map(Member::getId).collect(Collectors.toList());
+    }
+
+    @Test
+    public void splitIsDisjointAndUnderCap(){
+        MemberSearchCondition condition = manyIds();
+        condition.setUsernames(names("nobody", 1500, "member1", "member3", "member4"));
+
+        List<MemberSearchCondition> parts = MemberSearchChunks.split(condition);
+
+        assertThat(parts).hasSizeGreaterThan(1);
+        List<Long> ids = new ArrayList<>();
+        for (MemberSearchCondition part : parts) {
+            assertThat(MemberSearchChunks.binds(part) + MemberSearchChunks.RESERVED_BINDS).isLessThanOrEqualTo(MAX_BINDS_PER_STATEMENT);
+            ids.addAll(part.getMemberIds());
+        }
+        //memberIds 조각을 usernames 조각 수만큼 반복한다. 조각 조합은 겹치지 않는다.
+        assertThat(parts.stream().map(part -> Arrays.asList(part.getMemberIds(), part.getUsernames())).distinct()).hasSize(parts.size());
+        assertThat(ids).containsAll(condition.getMemberIds());
+    }
+
+    @Test
+    public void inRefusesOversizedList(){
+        assertThatThrownBy(() -> MemberSearchPredicates.searchCondition(manyIds()))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    public void jpaStatementsStayUnderBindCap(){
+        MemberSearchCondition byIds = manyIds();
+        MemberSearchCondition byLists = new MemberSearchCondition();
+        byLists.setUsernames(names("nobody", 1500, "member1", "member3"));
+        byLists.setTeamNames(names("noteam", 1200, "teamA", "teamB"));
+
+        QueryStatementInspector.startRecording();
+        List<String> statements;
+        try {
+            assertThat(usernames(memberRepository.search(byIds))).containsExactlyInAnyOrder("member1", "member2", "member3", "member4");
+            assertThat(usernames(memberRepository.search(byLists))).containsExactlyInAnyOrder("member1", "member3");
+
+            //조각마다 member id 순서로 읽어서 합친 두번째 페이지
+            Page<MemberTeamDto> page = memberRepository.searchPageSimple(byIds, PageRequest.of(1, 2));
+            assertThat(usernames(page.getContent())).containsExactly("member3", "member4");
+            assertThat(page.getTotalElements()).isEqualTo(4);
+
+            MemberSlice slice = memberRepository.searchSlice(byIds, MemberCursor.first(), 3);
+            assertThat(usernames(slice.getContent())).containsExactly("member1", "member2", "member3");
+            assertThat(slice.isHasNext()).isTrue();
+
+            List<List<MemberTeamDto>> batch = memberRepository.searchBatch(Arrays.asList(byIds, byLists));
+            assertThat(usernames(batch.get(0))).containsExactlyInAnyOrder("member1", "member2", "member3", "member4");
+            assertThat(usernames(batch.get(1))).containsExactlyInAnyOrder("member1", "member3");
+
+            assertThat(usernames(memberJpaRepository.search(byLists))).containsExactlyInAnyOrder("member1", "member3");
+            List<MemberTeamDto> streamed = new ArrayList<>();
+            memberJpaRepository.streamSearch(byIds, 100, streamed::add);
+            assertThat(usernames(streamed)).containsExactlyInAnyOrder("member1", "member2", "member3", "member4");
+        } finally {
+            statements = QueryStatementInspector.stopRecording();
+        }
+
+        assertUnderCap(statements);
+    }
+
+    @Test
+    public void sqlStatementsStayUnderBindCap(){
+        MemberSearchCondition byIds = manyIds();
+
+        //querydsl-sql SQL도 QueryStatementInspector에 남는다. (QuerydslSqlConfig)
+        QueryStatementInspector.startRecording();
+        List<String> statements;
+        try {
+            assertThat(usernames(memberSearchRepository.search(byIds))).containsExactlyInAnyOrder("member1", "member2", "member3", "member4");
+            assertThat(memberSearchRepository.count(byIds)).isEqualTo(4);
+            assertThat(usernames(memberSearchRepository.searchPage(byIds, PageRequest.of(0, 3)).getContent()))
+                    .containsExactly("member1", "member2", "member3");
+            List<MemberTeamDto> exported = new ArrayList<>();
+            exportRepository.export(byIds, 100, exported::add);
+            //memberIds만 나눴으면 전체가 member id 순서
+            assertThat(usernames(exported)).containsExactly("member1", "member2", "member3", "member4");
+        } finally {
+            statements = QueryStatementInspector.stopRecording();
+        }
+
+        assertUnderCap(statements);
+    }
+
+    private static void assertUnderCap(List<String> statements) {
+        assertThat(statements).hasSizeGreaterThan(1);
+        for (String sql : statements) {
+            long binds = sql.chars().filter(c -> c == '?').count();
+            assertThat(binds).as(sql).isLessThanOrEqualTo(MAX_BINDS_PER_STATEMENT);
+        }
+    }
+
+    //없는 id 2500개 + 있는 id
+    private MemberSearchCondition manyIds() {
+        List<Long> ids = new ArrayList<>();
+        for (long id = -2500; id < 0; id++) {
+            ids.add(id);
+        }
+        ids.addAll(memberIds);
+        MemberSearchCondition condition = new MemberSearchCondition();
+        condition.setMemberIds(ids);
+        return condition;
+    }
+
+    private static List<String> names(String prefix, int count, String... existing) {
+        List<String> names = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            names.add(prefix + i);
+        }
+        names.addAll(Arrays.asList(existing));
+        return names;
+    }
+
+    private static List<String> usernames(List<MemberTeamDto> rows) {
+        return rows.stream().map(MemberTeamDto::getUsername).collect(Collectors.toList());
+    }
+}
@@ -0,0 +1,176 @@
+package study.querydsl.repository;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.transaction.annotation.Transactional;
+import study.querydsl.ExplainPlans;
+import study.querydsl.dto.MemberCursor;
+import study.querydsl.dto.MemberSearchCondition;
+import study.querydsl.entity.Member;
+import study.querydsl.entity.Team;
+import study.querydsl.metrics.InstrumentedJPAQueryFactory;
+import study.querydsl.metrics.QueryStatementInspector;
+
+import javax.persistence.EntityManager;
+import javax.persistence.TypedQuery;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static study.querydsl.entity.QMember.member;
+
+//검색 조건 조합(조건 없는 mask 0 빼고 15가지)마다 content, count 쿼리가 인덱스를 타는지 H2 EXPLAIN으로 확인한다. (usernamePrefix, 팀 조건이 있는 다른 검색 경로도)
+@SpringBootTest
+@Transactional
+class MemberSearchIndexTest {
+
+    @Autowired
+    EntityManager em;
+
+    @Autowired
+    MemberSearchTemplates templates;
+
+    @Autowired
+    InstrumentedJPAQueryFactory queryFactory;
+
+    @Autowired
+    MemberRepository memberRepository;
+
+    @Autowired
+    MemberJpaRepository memberJpaRepository;
+
+    @Autowired
+    MemberSearchRepository memberSearchRepository;
+
+    @Autowired
+    MemberExportRepository exportRepository;
+
+    @BeforeEach
+    public void before(){
+        for (int t = 0; t < 10; t++) {
+            Team team = new Team("team" + t);
+            em.persist(team);
+            for (int i = 0; i < 20; i++) {
+                em.persist(new Member("member" + (t * 20 + i), i * 5, team));
+            }
+        }
+        em.flush();
+    }
+
+    @Test
+    public void everyConditionUsesIndex(){
+        List<String> scans = new ArrayList<>();
+        for (int mask = 1; mask < MemberSearchTemplates.COMBINATIONS; mask++) {
+            MemberSearchCondition condition = condition(mask);
+
+            String contentPlan = plan(templates.contentQuery(em, condition), mask);
+            String countPlan = plan(templates.countQuery(em, condition), mask);
+
+            if (ExplainPlans.hasTableScan(contentPlan)) {
+                scans.add("mask " + mask + " content\n" + contentPlan);
+            }
+            if (ExplainPlans.hasTableScan(countPlan)) {
+                scans.add("mask " + mask + " count\n" + countPlan);
+            }
+        }
+        assertThat(scans).as("table scan").isEmpty();
+    }
+
+    //팀 조건이 있으면 어느 경로든 inner join이라 team 쪽 인덱스에서 시작한다. (left join이면 member를 다 읽는다)
+    @Test
+    public void teamConditionUsesInnerJoinOnEveryPath(){
+        MemberSearchCondition byTeam = new MemberSearchCondition();
+        byTeam.setTeamName("team1");
+        byTeam.setAgeGoe(20);
+        MemberSearchCondition byTeams = new MemberSearchCondition();
+        byTeams.setTeamNames(Arrays.asList("team1", "team2"));
+
+        Map<String, Runnable> paths = new LinkedHashMap<>();
+        paths.put("memberJpa.search", () -> memberJpaRepository.search(byTeam));
+        paths.put("memberJpa.streamSearch", () -> memberJpaRepository.streamSearch(byTeams, 100, row -> { }));
+        paths.put("member.searchIn", () -> memberRepository.search(byTeams));
+        paths.put("member.countIn", () -> memberRepository.searchPageSimple(byTeams, PageRequest.of(0, 1))); //마지막 SQL이 count
+        paths.put("member.searchSlice", () -> memberRepository.searchSlice(byTeam, MemberCursor.first(), 2));
+        paths.put("memberSql.search", () -> memberSearchRepository.search(byTeam));
+        paths.put("memberSql.count", () -> memberSearchRepository.count(byTeams));
+        paths.put("memberExport", () -> exportRepository.export(byTeams, 100, row -> { }));
+
+        List<String> problems = new ArrayList<>();
+        paths.forEach((name, path) -> {
+            path.run();
+            String sql = QueryStatementInspector.lastSql();
+            String plan = ExplainPlans.explain(em, sql);
+            if (sql.toLowerCase(Locale.ROOT).contains("left")) {
+                problems.add(name + " left join\n" + sql);
+            }
+            if (ExplainPlans.hasTableScan(plan)) {
+                problems.add(name + " table scan\n" + plan);
+            }
+        });
+        assertThat(problems).isEmpty();
+    }
+
+    //색인에 후보가 너무 많으면 usernamePrefix는 SQL로만 찾는다. lower(username)가 아니라 소문자 컬럼 인덱스 범위 검색
+    @Test
+    public void usernamePrefixUsesLowerIndex(){
+        List<Long> ids = queryFactory.select(member.id).from(member)
+                .where(MemberSearchPredicates.usernameStartsWith("MEMBER1"))
+                .fetch();
+        assertThat(ids).hasSize(111); //member1, member10~19, member100~199
+
+        String plan = ExplainPlans.explain(em, QueryStatementInspector.lastSql(), Collections.singletonList("member1%"));
+        assertThat(plan).containsIgnoringCase("idx_member_username_lower");
+        assertThat(ExplainPlans.hasTableScan(plan)).as(plan).isFalse();
+    }
+
+    //쿼리를 한번 실행해서 hibernate가 만든 SQL을 얻고 같은 값으로 EXPLAIN
+    private String plan(TypedQuery<?> query, int mask) {
+        query.getResultList();
+        return ExplainPlans.explain(em, QueryStatementInspector.lastSql(), binds(mask));
+    }
+
+    //MemberSearchPredicates.scalarCondition의 파라미터 순서 (템플릿 JPQL의 ?1, ?2..)
+    private static List<Object> binds(int mask) {
+        List<Object> binds = new ArrayList<>();
+        if ((mask & MemberSearchTemplates.USERNAME) != 0) {
+            binds.add("member25");
+        }
+        if ((mask & MemberSearchTemplates.TEAM_NAME) != 0) {
+            binds.add("team1");
+        }
+        if ((mask & MemberSearchTemplates.AGE_GOE) != 0) {
+            binds.add(20);
+        }
+        if ((mask & MemberSearchTemplates.AGE_LOE) != 0) {
+            binds.add(40);
+        }
+        return binds;
+    }
+
+    private static MemberSearchCondition condition(int mask) {
+        List<Object> binds = binds(mask);
+        MemberSearchCondition condition = new MemberSearchCondition();
+        int i = 0;
+        if ((mask & MemberSearchTemplates.USERNAME) != 0) {
+            condition.setUsername((String) binds.get(i++));
+        }
+        if ((mask & MemberSearchTemplates.TEAM_NAME) != 0) {
+            condition.setTeamName((String) binds.get(i++));
+        }
+        if ((mask & MemberSearchTemplates.AGE_GOE) != 0) {
+            condition.setAgeGoe((Integer) binds.get(i++));
+        }
+        if ((mask & MemberSearchTemplates.AGE_LOE) != 0) {
+            condition.setAgeLoe((Integer) binds.get(i));
+        }
+        return condition;
+    }
+}
@@ -0,0 +1,90 @@
+package study.querydsl.repository;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.transaction.annotation.Transactional;
+import study.querydsl.dto.MemberSearchCondition;
+import study.querydsl.dto.MemberTeamDto;
+import study.querydsl.entity.Member;
+import study.querydsl.entity.Team;
+
+import javax.persistence.EntityManager;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest
+@Transactional
+class MemberSearchRepositoryTest {
+
+    @Autowired
+    EntityManager em;
+
+    @Autowired
+    MemberRepository memberRepository;
+
+    @Autowired
+    MemberSearchRepository memberSearchRepository;
+
+    @BeforeEach
+    public void before(){
+        Team teamA = new Team("teamA");
+        Team teamB = new Team("teamB");
+        em.persist(teamA);
+        em.persist(teamB);
+        em.persist(new Member("member1", 10, teamA));
+        em.persist(new Member("member2", 20, teamA));
+        em.persist(new Member("Member3", 30, teamB));
+        em.persist(new Member("member4", 40, teamB));
+        em.persist(new Member("member5", 50));
+        em.flush(); //querydsl-sql은 JDBC로 바로 읽기 때문에 flush 해야 보인다.
+    }
+
+    //JPA 검색(MemberRepositoryImpl)과 같은 결과
+    @Test
+    public void sameResultsAsJpa(){
+        MemberSearchCondition byTeamAndAge = new MemberSearchCondition();
+        byTeamAndAge.setTeamName("teamB");
+        byTeamAndAge.setAgeGoe(35);
+
+        MemberSearchCondition byLists = new MemberSearchCondition();
+        byLists.setUsernames(Arrays.asList("member1", "Member3", "member5"));
+        byLists.setAgeLoe(40);
+
+        MemberSearchCondition byPrefix = new MemberSearchCondition();
+        byPrefix.setUsernamePrefix("MEM");
+        byPrefix.setTeamNames(Collections.singletonList("teamA"));
+
+        MemberSearchCondition byQuery = new MemberSearchCondition();
+        byQuery.setQuery("membr4");
+
+        for (MemberSearchCondition condition : Arrays.asList(new MemberSearchCondition(), byTeamAndAge, byLists, byPrefix, byQuery)) {
+            List<MemberTeamDto> expected = memberRepository.search(condition);
+            assertThat(memberSearchRepository.search(condition)).as(condition.toString()).containsExactlyInAnyOrderElementsOf(expected);
+            assertThat(memberSearchRepository.count(condition)).as(condition.toString()).isEqualTo(expected.size());
+        }
+    }
+
+    @Test
+    public void searchPage(){
+        MemberSearchCondition condition = new MemberSearchCondition();
+        condition.setTeamNames(Arrays.asList("teamA", "teamB"));
+
+        Page<MemberTeamDto> page = memberSearchRepository.searchPage(condition, PageRequest.of(0, 3));
+
+        assertThat(page.getContent()).hasSize(3);
+        assertThat(page.getTotalElements()).isEqualTo(4);
+        //팀 없는 member도 null로 나온다.
+        condition = new MemberSearchCondition();
+        condition.setUsername("member5");
+        MemberTeamDto noTeam = memberSearchRepository.search(condition).get(0);
+        assertThat(noTeam.getTeamId()).isNull();
+        assertThat(noTeam.getTeamName()).isNull();
+    }
+}
@@ -0,0 +1,94 @@
+package study.querydsl.repository;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.annotation.Transactional;
+import study.querydsl.dto.MemberSearchCondition;
+import study.querydsl.dto.MemberTeamDto;
+import study.querydsl.entity.Member;
+import study.querydsl.entity.Team;
+
+import javax.persistence.EntityManager;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest
+@Transactional
+class MemberSearchTemplatesTest {
+
+    @Autowired
+    EntityManager em;
+
+    @Autowired
+    MemberRepository memberRepository;
+
+    @Autowired
+    MemberJpaRepository memberJpaRepository;
+
+    @Autowired
+    MemberSearchTemplates templates;
+
+    @BeforeEach
+    public void before(){
+        Team teamA = new Team("teamA");
+        Team teamB = new Team("teamB");
+        em.persist(teamA);
+        em.persist(teamB);
+
+        em.persist(new Member("member1",10,teamA));
+        em.persist(new Member("member2",20,teamA));
+        em.persist(new Member("member3",30,teamB));
+        em.persist(new Member("member4",40,teamB));
+        em.persist(new Member("member5",50));
+    }
+
+    //16가지 조합 모두 querydsl로 만든 쿼리와 결과가 같아야 한다.
+    @Test
+    public void sameResultAsQuerydsl(){
+        for (int mask = 0; mask < MemberSearchTemplates.COMBINATIONS; mask++) {
+            MemberSearchCondition condition = condition(mask);
+
+            List<MemberTeamDto> result = memberRepository.search(condition);
+
+            assertThat(result).as("mask %d", mask)
+                    .usingFieldByFieldElementComparator()
+                    .containsExactlyInAnyOrderElementsOf(memberJpaRepository.search(condition));
+        }
+    }
+
+    @Test
+    public void templateIsBuiltOncePerMask(){
+        for (int mask = 0; mask < MemberSearchTemplates.COMBINATIONS; mask++) {
+            memberRepository.search(condition(mask));
+        }
+        long misses = templates.getMisses();
+        long hits = templates.getHits();
+
+        for (int mask = 0; mask < MemberSearchTemplates.COMBINATIONS; mask++) {
+            memberRepository.search(condition(mask));
+        }
+
+        assertThat(templates.getMisses()).isEqualTo(misses);
+        assertThat(templates.getHits()).isEqualTo(hits + MemberSearchTemplates.COMBINATIONS);
+    }
+
+    private MemberSearchCondition condition(int mask) {
+        MemberSearchCondition condition = new MemberSearchCondition();
+        if ((mask & MemberSearchTemplates.USERNAME) != 0) {
+            condition.setUsername("member3");
+        }
+        if ((mask & MemberSearchTemplates.TEAM_NAME) != 0) {
+            condition.setTeamName("teamB");
+        }
+        if ((mask & MemberSearchTemplates.AGE_GOE) != 0) {
+            condition.setAgeGoe(20);
+        }
+        if ((mask & MemberSearchTemplates.AGE_LOE) != 0) {
+            condition.setAgeLoe(40);
+        }
+        return condition;
+    }
+}
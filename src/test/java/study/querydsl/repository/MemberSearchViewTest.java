@@ -0,0 +1,122 @@
+package study.querydsl.repository;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.transaction.annotation.Transactional;
+import study.querydsl.dto.MemberSearchCondition;
+import study.querydsl.dto.MemberTeamDto;
+import study.querydsl.dto.SearchViewCheckResult;
+import study.querydsl.entity.Member;
+import study.querydsl.entity.Team;
+
+import javax.persistence.EntityManager;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static study.querydsl.entity.QMember.member;
+
+@SpringBootTest(properties = {
+        "querydsl.search-view.enabled=true",
+        "querydsl.search-view.fan-out-batch-size=2"
+})
+@Transactional
+class MemberSearchViewTest {
+
+    @Autowired
+    EntityManager em;
+
+    @Autowired
+    MemberRepository memberRepository;
+
+    @Autowired
+    MemberSearchViewRepository viewRepository;
+
+    @Autowired
+    MemberSearchViewMaintainer maintainer;
+
+    @Autowired
+    MemberBulkMutator bulkMutator;
+
+    private Team teamA;
+    private Member member1;
+
+    @BeforeEach
+    public void before(){
+        teamA = new Team("teamA");
+        Team teamB = new Team("teamB");
+        em.persist(teamA);
+        em.persist(teamB);
+        member1 = new Member("member1", 10, teamA);
+        em.persist(member1);
+        em.persist(new Member("member2", 20, teamA));
+        em.persist(new Member("member3", 30, teamA));
+        em.persist(new Member("member4", 40, teamB));
+        em.persist(new Member("member5", 50));
+        em.flush();
+    }
+
+    @Test
+    public void searchFromView(){
+        MemberSearchCondition condition = new MemberSearchCondition();
+        condition.setTeamName("teamA");
+        condition.setAgeGoe(20);
+
+        assertThat(usernames(memberRepository.search(condition))).containsExactlyInAnyOrder("member2", "member3");
+        assertThat(memberRepository.searchPageComplex(condition, PageRequest.of(0, 1)).getTotalElements()).isEqualTo(2);
+        assertThat(viewRepository.check().isConsistent()).isTrue();
+    }
+
+    @Test
+    public void teamRenameFansOut(){
+        //fan-out-batch-size=2 라서 teamA의 member 3명이 2번에 나눠서 바뀐다.
+        teamA.setName("teamC");
+        em.flush();
+
+        MemberSearchCondition condition = new MemberSearchCondition();
+        condition.setTeamName("teamC");
+        assertThat(usernames(memberRepository.search(condition))).containsExactlyInAnyOrder("member1", "member2", "member3");
+        assertThat(viewRepository.check().isConsistent()).isTrue();
+    }
+
+    @Test
+    public void memberChanges(){
+        member1.setUsername("renamed");
+        em.persist(new Member("member6", 60, teamA));
+        em.flush();
+        assertThat(viewRepository.check().isConsistent()).isTrue();
+
+        em.remove(member1);
+        em.flush();
+        assertThat(viewRepository.check().isConsistent()).isTrue();
+
+        //벌크 연산은 Hibernate 이벤트가 없어서 MemberBulkMutator가 직접 반영한다.
+        bulkMutator.update(member.age.goe(40), clause -> clause.set(member.age, 99));
+        SearchViewCheckResult result = viewRepository.check();
+        assertThat(result.isConsistent()).isTrue();
+        assertThat(result.getViewRows()).isEqualTo(result.getSourceRows());
+    }
+
+    @Test
+    public void checkFindsDriftAndRebuildFixesIt(){
+        em.createNativeQuery("update member_search_view set team_name = 'wrong' where member_id = ?1")
+                .setParameter(1, member1.getId())
+                .executeUpdate();
+        em.createNativeQuery("delete from member_search_view where username = 'member2'").executeUpdate();
+
+        SearchViewCheckResult drift = viewRepository.check();
+        assertThat(drift.isConsistent()).isFalse();
+        assertThat(drift.getDifferent()).containsExactly(member1.getId());
+        assertThat(drift.getMissing()).hasSize(1);
+
+        maintainer.rebuild();
+        assertThat(viewRepository.check().isConsistent()).isTrue();
+    }
+
+    private static List<String> usernames(List<MemberTeamDto> rows) {
+        return rows.stream().map(MemberTeamDto::getUsername).collect(Collectors.toList());
+    }
+}
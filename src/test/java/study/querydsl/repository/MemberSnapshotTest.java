@@ -0,0 +1,103 @@
+package study.querydsl.repository;
+
+import org.junit.jupiter.api.Test;
+import study.querydsl.dto.MemberSearchCondition;
+import study.querydsl.dto.MemberTeamDto;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+//스프링 없이 스냅샷만, 결과는 MemberSearchCondition.matches(where절과 같은 의미)와 같아야 한다.
+class MemberSnapshotTest {
+
+    private final List<MemberTeamDto> rows = Arrays.asList(
+            new MemberTeamDto(4L, "member4", 40, 2L, "teamB"),
+            new MemberTeamDto(1L, "member1", 10, 1L, "teamA"),
+            new MemberTeamDto(2L, "Member2", 20, 1L, "teamA"),
+            new MemberTeamDto(3L, "member3", 30, 2L, "teamB"),
+            new MemberTeamDto(5L, "member5", 50, null, null),
+            new MemberTeamDto(6L, "member1", 60, 3L, "teamA")); //이름이 같은 다른 팀
+
+    private final MemberSnapshot snapshot = MemberSnapshot.of(rows);
+
+    @Test
+    public void filterMatchesWhereClause(){
+        MemberSearchCondition byTeamAndAge = new MemberSearchCondition();
+        byTeamAndAge.setTeamName("teamA");
+        byTeamAndAge.setAgeGoe(15);
+
+        MemberSearchCondition byUsernames = new MemberSearchCondition();
+        byUsernames.setUsernames(Arrays.asList("member1", "member4", "nobody"));
+        byUsernames.setAgeLoe(40);
+
+        MemberSearchCondition byPrefix = new MemberSearchCondition();
+        byPrefix.setUsernamePrefix("MEMBER");
+        byPrefix.setTeamNames(Arrays.asList("teamB", "teamA"));
+
+        MemberSearchCondition byIds = new MemberSearchCondition();
+        byIds.setMemberIds(Arrays.asList(5L, 3L, 99L));
+
+        MemberSearchCondition unknownUsername = new MemberSearchCondition();
+        unknownUsername.setUsername("nobody");
+
+        for (MemberSearchCondition condition : Arrays.asList(new MemberSearchCondition(), byTeamAndAge, byUsernames, byPrefix, byIds, unknownUsername)) {
+            List<Long> expected = rows.stream().filter(condition::matches).map(MemberTeamDto::getMemberId).sorted().collect(Collectors.toList());
+            assertThat(ids(snapshot.rows(snapshot.filter(condition)))).as(condition.toString()).isEqualTo(expected);
+        }
+    }
+
+    @Test
+    public void pageAndCount(){
+        MemberSearchCondition condition = new MemberSearchCondition();
+        condition.setAgeGoe(20);
+
+        assertThat(ids(snapshot.rows(snapshot.filter(condition), 1, 2))).containsExactly(3L, 4L);
+        assertThat(snapshot.count(snapshot.filter(condition))).isEqualTo(5);
+    }
+
+    @Test
+    public void countByTeamName(){
+        //teamA라는 이름의 팀이 둘이라 합쳐서 센다. 팀 없는 member5는 빠진다.
+        assertThat(snapshot.countByTeamName(snapshot.filter(new MemberSearchCondition())))
+                .containsEntry("teamA", 3L)
+                .containsEntry("teamB", 2L)
+                .hasSize(2);
+    }
+
+    @Test
+    public void patch(){
+        //member1 이름 변경, member5 삭제, teamB 이름 변경(fresh row로 옴), member7 추가
+        MemberSnapshot patched = snapshot.patch(Arrays.asList(1L, 5L, 7L), Collections.singletonList(2L), Arrays.asList(
+                new MemberTeamDto(1L, "renamed", 10, 1L, "teamA"),
+                new MemberTeamDto(3L, "member3", 30, 2L, "teamC"),
+                new MemberTeamDto(4L, "member4", 40, 2L, "teamC"),
+                new MemberTeamDto(7L, "member7", 70, 2L, "teamC")));
+
+        assertThat(patched.size()).isEqualTo(6);
+        MemberSearchCondition condition = new MemberSearchCondition();
+        condition.setTeamName("teamC");
+        assertThat(ids(patched.rows(patched.filter(condition)))).containsExactly(3L, 4L, 7L);
+        condition = new MemberSearchCondition();
+        condition.setUsername("renamed");
+        assertThat(ids(patched.rows(patched.filter(condition)))).containsExactly(1L);
+        //원래 스냅샷은 그대로
+        assertThat(snapshot.size()).isEqualTo(6);
+        assertThat(snapshot.count(snapshot.filter(condition))).isZero();
+    }
+
+    @Test
+    public void queryMustBeResolved(){
+        MemberSearchCondition condition = new MemberSearchCondition();
+        condition.setQuery("membr1");
+        assertThatThrownBy(() -> snapshot.filter(condition)).isInstanceOf(IllegalArgumentException.class);
+    }
+
+    private static List<Long> ids(List<MemberTeamDto> rows) {
+        return rows.stream().map(MemberTeamDto::getMemberId).collect(Collectors.toList());
+    }
+}
@@ -0,0 +1,120 @@
+package study.querydsl.repository;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import study.querydsl.dto.AgeHistogram;
+import study.querydsl.dto.AgePercentiles;
+import study.querydsl.dto.AgeSummary;
+import study.querydsl.dto.MemberSearchCondition;
+import study.querydsl.dto.TeamMemberStats;
+import study.querydsl.entity.Member;
+import study.querydsl.entity.Team;
+
+import javax.persistence.EntityManager;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+//partition-size=2 라서 id 구간을 나눠 다른 쓰레드(다른 트랜잭션)에서 돈다. 데이터를 커밋하고 끝나면 지운다.
+@SpringBootTest(properties = {
+        "querydsl.stats.partition-size=2",
+        "querydsl.stats.max-partitions=3"
+})
+class MemberStatsRepositoryTest {
+
+    @Autowired
+    EntityManager em;
+
+    @Autowired
+    PlatformTransactionManager transactionManager;
+
+    @Autowired
+    MemberStatsRepository statsRepository;
+
+    TransactionTemplate tx;
+    String teamA;
+    String teamB;
+    Long member1Id;
+
+    @BeforeEach
+    public void before(){
+        tx = new TransactionTemplate(transactionManager);
+        teamA = "statsTeamA" + System.nanoTime();
+        teamB = "statsTeamB" + System.nanoTime();
+        member1Id = tx.execute(status -> {
+            Team a = new Team(teamA);
+            Team b = new Team(teamB);
+            em.persist(a);
+            em.persist(b);
+            Member member1 = new Member("member1", 10, a);
+            em.persist(member1);
+            em.persist(new Member("member2", 20, a));
+            em.persist(new Member("member3", 30, b));
+            em.persist(new Member("member4", 40, b));
+            em.persist(new Member("member5", 40, b));
+            return member1.getId();
+        });
+    }
+
+    @AfterEach
+    public void after(){
+        tx.executeWithoutResult(status -> {
+            em.createQuery("delete from Member m where m.team.id in (select t.id from Team t where t.name in :names)")
+                    .setParameter("names", Arrays.asList(teamA, teamB)).executeUpdate();
+            em.createQuery("delete from Team t where t.name in :names").setParameter("names", Arrays.asList(teamA, teamB)).executeUpdate();
+        });
+        statsRepository.invalidateAll();
+    }
+
+    @Test
+    public void ageStats(){
+        MemberSearchCondition condition = teams();
+
+        AgeSummary summary = statsRepository.ageSummary(condition);
+        assertThat(summary.getCount()).isEqualTo(5);
+        assertThat(summary.getSum()).isEqualTo(140);
+        assertThat(summary.getMin()).isEqualTo(10);
+        assertThat(summary.getMax()).isEqualTo(40);
+        assertThat(summary.getAvg()).isEqualTo(28.0);
+
+        AgeHistogram histogram = statsRepository.ageHistogram(condition, 20);
+        assertThat(histogram.getBuckets()).extracting(AgeHistogram.Bucket::getFrom).containsExactly(0, 20, 40);
+        assertThat(histogram.getBuckets()).extracting(AgeHistogram.Bucket::getCount).containsExactly(1L, 2L, 2L);
+
+        AgePercentiles percentiles = statsRepository.agePercentiles(condition, 0, 50, 90);
+        assertThat(percentiles.get(0)).isEqualTo(10);
+        assertThat(percentiles.get(50)).isEqualTo(30);
+        assertThat(percentiles.get(90)).isEqualTo(40);
+    }
+
+    @Test
+    public void teamStats(){
+        List<TeamMemberStats> teams = statsRepository.teamStats(teams());
+
+        assertThat(teams).extracting(TeamMemberStats::getTeamName).containsExactly(teamA, teamB);
+        assertThat(teams).extracting(TeamMemberStats::getMemberCount).containsExactly(2L, 3L);
+        assertThat(teams).extracting(TeamMemberStats::getAvgAge).containsExactly(15.0, 110.0 / 3);
+    }
+
+    @Test
+    public void cachedUntilMembersChange(){
+        MemberSearchCondition condition = teams();
+        assertThat(statsRepository.ageSummary(condition).getMax()).isEqualTo(40);
+
+        tx.executeWithoutResult(status -> em.find(Member.class, member1Id).setAge(99));
+
+        assertThat(statsRepository.ageSummary(condition).getMax()).isEqualTo(99);
+    }
+
+    private MemberSearchCondition teams() {
+        MemberSearchCondition condition = new MemberSearchCondition();
+        condition.setTeamNames(Arrays.asList(teamA, teamB));
+        return condition;
+    }
+}
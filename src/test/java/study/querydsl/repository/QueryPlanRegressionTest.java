@@ -0,0 +1,164 @@
+package study.querydsl.repository;
+
+import org.hibernate.engine.jdbc.internal.FormatStyle;
+import org.junit.jupiter.api.DynamicTest;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.TestFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import study.querydsl.ExplainPlans;
+import study.querydsl.PlanBaselines;
+import study.querydsl.dto.MemberCursor;
+import study.querydsl.dto.MemberSearchCondition;
+import study.querydsl.entity.Member;
+import study.querydsl.entity.Team;
+import study.querydsl.metrics.QueryStatementInspector;
+
+import javax.persistence.EntityManager;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * MemberJpaRepository, MemberRepositoryCustom의 public 메서드마다 hibernate가 만든 SQL과 H2 EXPLAIN을
+ * src/test/resources/plans/ 의 baseline과 비교한다. (where 빠짐, join 추가, 인덱스 못탐 같은 변화를 잡는다)
+ * baseline이 없는 메서드는 실패한다. 메서드를 추가했거나 쿼리를 일부러 바꿨으면 -Dplans.update=true 로 만들고 커밋한다.
+ * baseline(src/test/resources/plans/)이 아직 없어서 ./gradlew test 에서는 빠져있다. ./gradlew planTest 로 돌린다.
+ */
+@Tag("plans")
+@SpringBootTest
+class QueryPlanRegressionTest {
+
+    @Autowired
+    EntityManager em;
+
+    @Autowired
+    MemberJpaRepository memberJpaRepository;
+
+    @Autowired
+    MemberRepository memberRepository;
+
+    @Autowired
+    PlatformTransactionManager transactionManager;
+
+    private Team teamA;
+    private Member member1;
+
+    //dynamic test는 @Transactional이 안 걸려서 케이스마다 트랜잭션을 열고 롤백한다.
+    @TestFactory
+    Stream<DynamicTest> queryPlans(){
+        TransactionTemplate tx = new TransactionTemplate(transactionManager);
+        return cases().entrySet().stream()
+                .map(c -> DynamicTest.dynamicTest(c.getKey(), () -> tx.executeWithoutResult(status -> {
+                    status.setRollbackOnly();
+                    before();
+                    List<String> statements = capture(c.getValue());
+                    assertThat(statements).as(c.getKey() + " SQL").isNotEmpty();
+                    PlanBaselines.verify(c.getKey(), plans(statements));
+                })));
+    }
+
+    private Map<String, Runnable> cases() {
+        MemberSearchCondition full = new MemberSearchCondition();
+        full.setUsername("member3");
+        full.setTeamName("teamB");
+        full.setAgeGoe(20);
+        full.setAgeLoe(40);
+
+        MemberSearchCondition teamAndAge = new MemberSearchCondition();
+        teamAndAge.setTeamName("teamB");
+        teamAndAge.setAgeGoe(20);
+
+        MemberSearchCondition collections = new MemberSearchCondition();
+        collections.setUsernames(Arrays.asList("member1", "member3"));
+        collections.setTeamNames(Arrays.asList("teamA", "teamB"));
+
+        MemberSearchCondition usernameOnly = new MemberSearchCondition();
+        usernameOnly.setUsername("member1");
+
+        MemberSearchCondition usernamePrefix = new MemberSearchCondition();
+        usernamePrefix.setUsernamePrefix("member");
+
+        Map<String, Runnable> cases = new LinkedHashMap<>();
+        cases.put("memberJpa.save", () -> {
+            memberJpaRepository.save(new Member("member5", 50, teamA));
+            em.flush();
+        });
+        cases.put("memberJpa.findById", () -> memberJpaRepository.findById(member1.getId()));
+        cases.put("memberJpa.findAll", () -> memberJpaRepository.findAll());
+        cases.put("memberJpa.findAll_Querydsl", () -> memberJpaRepository.findAll_Querydsl());
+        cases.put("memberJpa.findAll_Querydsl.fetchJoin", () -> memberJpaRepository.findAll_Querydsl(MemberFetchPlan.fetchJoinTeam()));
+        cases.put("memberJpa.findAll_Querydsl.entityGraph", () -> memberJpaRepository.findAll_Querydsl(MemberFetchPlan.teamGraph()));
+        cases.put("memberJpa.findAll_Querydsl.batch", () -> memberJpaRepository.findAll_Querydsl(MemberFetchPlan.batchTeam(100)));
+        cases.put("memberJpa.findByUsername", () -> memberJpaRepository.findByUsername("member1"));
+        cases.put("memberJpa.findByUsername_Querydsl", () -> memberJpaRepository.findByUsername_Querydsl("member1"));
+        cases.put("memberJpa.searchByBuilder", () -> memberJpaRepository.searchByBuilder(teamAndAge));
+        cases.put("memberJpa.search", () -> memberJpaRepository.search(full));
+        cases.put("memberJpa.search.collections", () -> memberJpaRepository.search(collections));
+        cases.put("memberJpa.streamSearch", () -> memberJpaRepository.streamSearch(teamAndAge, 100, row -> { }));
+        cases.put("member.search", () -> memberRepository.search(full));
+        cases.put("member.search.collections", () -> memberRepository.search(collections));
+        cases.put("member.search.usernamePrefix", () -> memberRepository.search(usernamePrefix));
+        cases.put("member.searchPageSimple", () -> memberRepository.searchPageSimple(new MemberSearchCondition(), PageRequest.of(0, 2)));
+        cases.put("member.searchPageComplex", () -> memberRepository.searchPageComplex(teamAndAge, PageRequest.of(0, 1)));
+        cases.put("member.searchPageComplex.estimated", () -> memberRepository.searchPageComplex(
+                new MemberSearchCondition(), PageRequest.of(0, 2), MemberCountStrategy.ESTIMATED));
+        cases.put("member.searchSlice", () -> memberRepository.searchSlice(teamAndAge, MemberCursor.first(), 2));
+        cases.put("member.searchSlice.age", () -> memberRepository.searchSlice(teamAndAge, MemberCursor.firstByAge(), 2));
+        cases.put("member.searchBatch", () -> memberRepository.searchBatch(Arrays.asList(usernameOnly, teamAndAge)));
+        return cases;
+    }
+
+    private void before() {
+        teamA = new Team("teamA");
+        Team teamB = new Team("teamB");
+        em.persist(teamA);
+        em.persist(teamB);
+
+        member1 = new Member("member1", 10, teamA);
+        em.persist(member1);
+        em.persist(new Member("member2", 20, teamA));
+        em.persist(new Member("member3", 30, teamB));
+        em.persist(new Member("member4", 40, teamB));
+        em.flush();
+        em.clear();
+        //clear 후 teamA는 준영속이지만 save 케이스에서 FK 값으로만 쓴다.
+        //이 트랜잭션에서 넣은 member는 이름 색인에 없어서 색인 조건 케이스에는 overlay 쿼리(memberIndex.overlay*)가 같이 잡힌다.
+    }
+
+    //시퀀스 호출은 pooled optimizer 상태에 따라 나갈때도 안나갈때도 있어서 뺀다.
+    private static List<String> capture(Runnable block) {
+        QueryStatementInspector.startRecording();
+        List<String> recorded;
+        try {
+            block.run();
+        } finally {
+            recorded = QueryStatementInspector.stopRecording();
+        }
+        List<String> statements = new ArrayList<>();
+        for (String sql : recorded) {
+            if (!sql.toLowerCase(Locale.ROOT).contains("next value for")) {
+                statements.add(sql);
+            }
+        }
+        return statements;
+    }
+
+    private String plans(List<String> statements) {
+        StringBuilder plans = new StringBuilder();
+        for (String sql : statements) {
+            plans.append("-- sql").append(FormatStyle.BASIC.getFormatter().format(sql)).append('\n');
+            plans.append("-- plan\n").append(ExplainPlans.explain(em, sql)).append('\n');
+        }
+        return plans.toString();
+    }
+}
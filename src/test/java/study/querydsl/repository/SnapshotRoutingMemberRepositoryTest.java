@@ -0,0 +1,119 @@
+package study.querydsl.repository;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import study.querydsl.dto.MemberSearchCondition;
+import study.querydsl.dto.MemberTeamDto;
+import study.querydsl.entity.Member;
+import study.querydsl.entity.Team;
+
+import javax.persistence.EntityManager;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+//스냅샷은 커밋된 변경만 반영하니 데이터를 커밋하고 끝나면 지운다.
+//staleness-budget=0 이라 반영 안된 커밋이 하나라도 있으면 DB로 간다. refresh는 테스트에서 직접(refreshNow)
+@SpringBootTest(properties = {
+        "querydsl.snapshot.enabled=true",
+        "querydsl.snapshot.staleness-budget=0s",
+        "querydsl.snapshot.refresh-interval=1h"
+})
+class SnapshotRoutingMemberRepositoryTest {
+
+    @Autowired
+    EntityManager em;
+
+    @Autowired
+    PlatformTransactionManager transactionManager;
+
+    @Autowired
+    MemberSnapshotEngine engine;
+
+    @Autowired
+    SnapshotRoutingMemberRepository routingRepository;
+
+    TransactionTemplate tx;
+    String teamName;
+    Long member1Id;
+
+    @BeforeEach
+    public void before(){
+        tx = new TransactionTemplate(transactionManager);
+        teamName = "snapshotTeam" + System.nanoTime();
+        member1Id = tx.execute(status -> {
+            Team team = new Team(teamName);
+            em.persist(team);
+            for (int i = 1; i < 5; i++) {
+                em.persist(new Member("member" + i, i * 10, team));
+            }
+            Member member = new Member("member5", 50, team);
+            em.persist(member);
+            return member.getId();
+        });
+        engine.refreshNow();
+    }
+
+    @AfterEach
+    public void after(){
+        tx.executeWithoutResult(status -> {
+            em.createQuery("delete from Member m where m.team.id in (select t.id from Team t where t.name = :name)")
+                    .setParameter("name", teamName).executeUpdate();
+            em.createQuery("delete from Team t where t.name = :name").setParameter("name", teamName).executeUpdate();
+        });
+        //JPQL 벌크 삭제는 이벤트가 없어서 다시 읽는다.
+        engine.reload();
+    }
+
+    @Test
+    public void answersFromSnapshot(){
+        MemberSearchCondition condition = new MemberSearchCondition();
+        condition.setTeamName(teamName);
+        condition.setAgeGoe(20);
+
+        assertThat(engine.snapshot()).isNotNull();
+        assertThat(usernames(routingRepository.search(condition))).containsExactly("member2", "member3", "member4", "member5");
+        assertThat(routingRepository.searchPageComplex(condition, PageRequest.of(1, 3)).getTotalElements()).isEqualTo(4);
+        assertThat(routingRepository.countByTeamName(condition)).containsEntry(teamName, 4L);
+    }
+
+    @Test
+    public void staleSnapshotGoesToDb(){
+        tx.executeWithoutResult(status -> em.find(Member.class, member1Id).setUsername("renamed"));
+
+        //반영 안된 커밋이 budget(0)보다 오래됨 -> DB
+        assertThat(engine.snapshot()).isNull();
+        MemberSearchCondition condition = new MemberSearchCondition();
+        condition.setUsername("renamed");
+        condition.setTeamName(teamName);
+        assertThat(routingRepository.search(condition)).hasSize(1);
+
+        engine.refreshNow();
+        assertThat(engine.snapshot()).isNotNull();
+        assertThat(routingRepository.search(condition)).hasSize(1);
+    }
+
+    @Test
+    public void uncommittedChangesGoToDb(){
+        tx.executeWithoutResult(status -> {
+            em.find(Member.class, member1Id).setAge(99);
+            em.flush();
+            //이 트랜잭션에서 바꾼 값은 스냅샷에 없다.
+            assertThat(engine.snapshot()).isNull();
+            status.setRollbackOnly();
+        });
+        //롤백된 변경은 반영할 것이 없다.
+        assertThat(engine.snapshot()).isNotNull();
+    }
+
+    private static List<String> usernames(List<MemberTeamDto> rows) {
+        return rows.stream().map(MemberTeamDto::getUsername).collect(Collectors.toList());
+    }
+}
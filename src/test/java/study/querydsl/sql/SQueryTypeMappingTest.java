@@ -0,0 +1,85 @@
+package study.querydsl.sql;
+
+import com.querydsl.core.types.Path;
+import com.querydsl.sql.ColumnMetadata;
+import com.querydsl.sql.RelationalPathBase;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.persister.entity.AbstractEntityPersister;
+import org.hibernate.type.Type;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.annotation.Transactional;
+import study.querydsl.entity.Member;
+import study.querydsl.entity.Team;
+
+import javax.persistence.EntityManagerFactory;
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * SMember, STeam은 codegen 없이 직접 쓴 것이라(스키마를 ddl-auto가 실행할 때 만들어서 빌드 때는 읽을 DB가 없다)
+ * 엔티티 매핑(hibernate가 만드는 테이블)과 컬럼 이름, JDBC 타입이 같은지 여기서 확인한다.
+ * 엔티티에 컬럼을 추가/변경하고 S 클래스를 안고치면 깨진다.
+ */
+@SpringBootTest
+@Transactional
+class SQueryTypeMappingTest {
+
+    @Autowired
+    EntityManagerFactory emf;
+
+    @Test
+    public void memberColumnsMatchEntityMapping(){
+        assertSameColumns(Member.class, SMember.member);
+    }
+
+    @Test
+    public void teamColumnsMatchEntityMapping(){
+        assertSameColumns(Team.class, STeam.team);
+    }
+
+    private void assertSameColumns(Class<?> entityClass, RelationalPathBase<?> table) {
+        SessionFactoryImplementor sessionFactory = emf.unwrap(SessionFactoryImplementor.class);
+        AbstractEntityPersister persister = (AbstractEntityPersister) sessionFactory.getMetamodel().entityPersister(entityClass);
+
+        assertThat(table.getTableName()).isEqualToIgnoringCase(persister.getTableName());
+        assertThat(columns(table)).isEqualTo(columns(persister, sessionFactory));
+    }
+
+    //컬럼 이름(대문자) -> JDBC 타입
+    private static Map<String, Integer> columns(AbstractEntityPersister persister, SessionFactoryImplementor sessionFactory) {
+        Map<String, Integer> columns = new TreeMap<>();
+        put(columns, persister.getIdentifierColumnNames(), persister.getIdentifierType(), sessionFactory);
+        String[] properties = persister.getPropertyNames();
+        for (int i = 0; i < properties.length; i++) {
+            //mappedBy 컬렉션(Team.members)은 컬럼이 없다.
+            put(columns, persister.getPropertyColumnNames(i), persister.getPropertyTypes()[i], sessionFactory);
+        }
+        return columns;
+    }
+
+    private static void put(Map<String, Integer> columns, String[] names, Type type, SessionFactoryImplementor sessionFactory) {
+        if (names.length == 0) {
+            return;
+        }
+        int[] sqlTypes = type.sqlTypes(sessionFactory);
+        assertThat(sqlTypes).as(Arrays.toString(names)).hasSameSizeAs(names);
+        for (int i = 0; i < names.length; i++) {
+            columns.put(names[i].toUpperCase(Locale.ROOT), sqlTypes[i]);
+        }
+    }
+
+    private static Map<String, Integer> columns(RelationalPathBase<?> table) {
+        Map<String, Integer> columns = new TreeMap<>();
+        for (Path<?> column : table.getColumns()) {
+            ColumnMetadata metadata = table.getMetadata(column);
+            columns.put(metadata.getName().toUpperCase(Locale.ROOT), metadata.getJdbcType());
+        }
+        return columns;
+    }
+}